@@ -0,0 +1,25 @@
+package pips;
+
+/**
+ * Flag that lets another thread ask a running solver to stop.
+ * Solvers poll it every few hundred search nodes, together with the thread's interrupt status.
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the token (which may be null) was cancelled or the current thread was interrupted
+     */
+    public static boolean shouldStop(CancellationToken token) {
+        return (token != null && token.cancelled) || Thread.currentThread().isInterrupted();
+    }
+}
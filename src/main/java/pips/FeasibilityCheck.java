@@ -0,0 +1,253 @@
+package pips;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Arrays;
+
+/**
+ * Counting arguments that reject a puzzle before any search: they take a fraction of a
+ * millisecond, where a doomed search can run through its whole budget. Passing the check does
+ * not mean the puzzle has a solution, only that none of these arguments rules it out.
+ *
+ * - the puzzle is well formed: node_details, pairs of pips from 0 to RegionConstraint.MAX_VALUE,
+ *   and region expressions PipsPuzzle can read
+ * - there are exactly two cells per domino, and the board splits into dominoes at all
+ * - the pips each cell can show given its regions, for example 6 for C=6, are on enough domino
+ *   halves: for every set of pip values, the cells limited to those values must not outnumber
+ *   the halves showing them
+ * - an equals region can take one value on all its cells, and an unequal region has enough
+ *   different values
+ * - the pips on all dominoes add up to the targets of the sum regions plus what the cells in no
+ *   sum region can hold
+ */
+public class FeasibilityCheck {
+
+    private static final int VALUES = RegionConstraint.MAX_VALUE + 1;
+
+    private final boolean malformed;
+    private final String reason;
+    private final PipsPuzzle model;
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public FeasibilityCheck(JsonNode puzzle) {
+        String problem = findMalformation(puzzle);
+        PipsPuzzle model = null;
+        if (problem == null) {
+            try {
+                model = PipsPuzzle.fromJson(puzzle);
+            } catch (IllegalArgumentException e) {
+                problem = e.getMessage();
+            }
+        }
+        malformed = problem != null;
+        reason = malformed ? problem : findContradiction(model);
+        this.model = model;
+    }
+
+    /**
+     * @return the typed puzzle the check was run on, so callers need not parse it again, or null if it is malformed
+     */
+    PipsPuzzle getModel() {
+        return model;
+    }
+
+    /**
+     * @return true if the puzzle is malformed or has been shown to have no solution
+     */
+    public boolean isRejected() {
+        return reason != null;
+    }
+
+    /**
+     * @return true if the puzzle was rejected because it cannot be read, rather than solved
+     */
+    public boolean isMalformed() {
+        return malformed;
+    }
+
+    /**
+     * @return why the puzzle was rejected, or null if it was not
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    private static String findMalformation(JsonNode puzzle) {
+        if (puzzle == null || !puzzle.has("node_details") || !puzzle.get("node_details").isObject()) {
+            return "No node_details";
+        }
+        JsonNode dominoes = puzzle.get("dominoes");
+        if (dominoes == null || !dominoes.isArray()) {
+            return "No dominoes";
+        }
+        for (JsonNode domino : dominoes) {
+            if (!domino.isArray() || domino.size() != 2) {
+                return "Domino " + domino + " is not a pair of pips";
+            }
+            for (JsonNode pip : domino) {
+                if (!pip.isInt() || pip.asInt() < 0 || pip.asInt() > RegionConstraint.MAX_VALUE) {
+                    return "Domino " + domino + " has pips outside 0-" + RegionConstraint.MAX_VALUE;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String findContradiction(PipsPuzzle model) {
+        int cells = model.size();
+        if (cells != 2 * model.getDominoes().size()) {
+            return cells + " cells cannot take " + model.getDominoes().size() + " dominoes";
+        }
+        int[][] neighbors = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            neighbors[cell] = model.getNeighbors(cell);
+        }
+        if (!new TilingChecker(neighbors).isTileable()) {
+            return "The board cannot be split into dominoes";
+        }
+
+        int[] supply = new int[VALUES];
+        int total = 0;
+        int[] halves = new int[cells];
+        int h = 0;
+        for (Domino domino : model.getDominoes()) {
+            supply[domino.pip1()]++;
+            supply[domino.pip2()]++;
+            total += domino.pip1() + domino.pip2();
+            halves[h++] = domino.pip1();
+            halves[h++] = domino.pip2();
+        }
+        Arrays.sort(halves);
+
+        // Pips each cell can show on its own, as a bit mask
+        int[] values = new int[cells];
+        Arrays.fill(values, RegionConstraint.UNASSIGNED);
+        int[] domains = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            for (int pip = 0; pip < VALUES; pip++) {
+                values[cell] = pip;
+                if (supply[pip] > 0 && model.isConsistent(cell, values)) {
+                    domains[cell] |= 1 << pip;
+                }
+            }
+            values[cell] = RegionConstraint.UNASSIGNED;
+            if (domains[cell] == 0) {
+                return "No pips left for " + model.getNode(cell);
+            }
+        }
+        // limited[set] counts the cells whose pips all lie in set, by summing over the subsets of each set
+        int[] limited = new int[1 << VALUES];
+        for (int cell = 0; cell < cells; cell++) {
+            limited[domains[cell]]++;
+        }
+        for (int pip = 0; pip < VALUES; pip++) {
+            for (int set = 0; set < 1 << VALUES; set++) {
+                if ((set & 1 << pip) != 0) {
+                    limited[set] += limited[set ^ 1 << pip];
+                }
+            }
+        }
+        for (int set = 1; set < 1 << VALUES; set++) {
+            int available = 0;
+            for (int pip = 0; pip < VALUES; pip++) {
+                if ((set & 1 << pip) != 0) {
+                    available += supply[pip];
+                }
+            }
+            if (limited[set] > available) {
+                return limited[set] + " cells need pips from " + pips(set) + ", the dominoes have " + available;
+            }
+        }
+
+        for (RegionConstraint region : model.getRegions()) {
+            String problem = checkRegion(model, region, values, domains, supply, halves);
+            if (problem != null) {
+                return problem;
+            }
+        }
+
+        // Sum regions that share no cell fix part of the total; the other cells take what is left
+        boolean[] covered = new boolean[cells];
+        int targets = 0;
+        int coveredCells = 0;
+        for (RegionConstraint region : model.getRegions()) {
+            if (region instanceof RegionConstraint.SumEquals sum
+                    && Arrays.stream(sum.cells()).noneMatch(cell -> covered[cell])) {
+                for (int cell : sum.cells()) {
+                    covered[cell] = true;
+                }
+                targets += sum.target();
+                coveredCells += sum.cells().length;
+            }
+        }
+        int rest = cells - coveredCells;
+        int least = Arrays.stream(halves, 0, rest).sum();
+        int most = Arrays.stream(halves, cells - rest, cells).sum();
+        if (total - targets < least || total - targets > most) {
+            return "The dominoes have " + total + " pips, the sum regions take " + targets + " and the other "
+                    + rest + " cells can hold " + least + " to " + most;
+        }
+        return null;
+    }
+
+    private static String checkRegion(PipsPuzzle model, RegionConstraint region, int[] values, int[] domains,
+                                      int[] supply, int[] halves) {
+        int[] cells = region.cells();
+        if (region instanceof RegionConstraint.SumEquals sum) {
+            int least = Arrays.stream(halves, 0, cells.length).sum();
+            int most = Arrays.stream(halves, halves.length - cells.length, halves.length).sum();
+            if (sum.target() < least || sum.target() > most) {
+                return "The " + describe(model, region) + " needs " + sum.target() + ", the dominoes allow " + least + " to " + most;
+            }
+        } else if (region instanceof RegionConstraint.AllEqual) {
+            int common = (1 << VALUES) - 1;
+            for (int cell : cells) {
+                common &= domains[cell];
+            }
+            boolean fits = false;
+            for (int pip = 0; pip < VALUES && !fits; pip++) {
+                if ((common & 1 << pip) == 0 || supply[pip] < cells.length) {
+                    continue;
+                }
+                for (int cell : cells) {
+                    values[cell] = pip;
+                }
+                fits = true;
+                for (int cell : cells) {
+                    fits &= model.isConsistent(cell, values);
+                }
+                for (int cell : cells) {
+                    values[cell] = RegionConstraint.UNASSIGNED;
+                }
+            }
+            if (!fits) {
+                return "No pips are on enough dominoes to fill the " + describe(model, region);
+            }
+        } else if (region instanceof RegionConstraint.AllDifferent) {
+            int union = 0;
+            for (int cell : cells) {
+                union |= domains[cell];
+            }
+            if (Integer.bitCount(union) < cells.length) {
+                return "The " + describe(model, region) + " has " + cells.length + " cells but only " + Integer.bitCount(union) + " possible pips";
+            }
+        }
+        return null;
+    }
+
+    private static String describe(PipsPuzzle model, RegionConstraint region) {
+        return region.type() + " region of " + Arrays.stream(region.cells()).mapToObj(model::getNode).toList();
+    }
+
+    private static String pips(int set) {
+        StringBuilder pips = new StringBuilder("{");
+        for (int pip = 0; pip < VALUES; pip++) {
+            if ((set & 1 << pip) != 0) {
+                pips.append(pips.length() > 1 ? ", " : "").append(pip);
+            }
+        }
+        return pips.append('}').toString();
+    }
+}
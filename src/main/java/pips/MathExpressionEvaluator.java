@@ -228,7 +228,7 @@ public class MathExpressionEvaluator {
     /**
      * Extract all variable names from the expression.
      */
-    private static Set<String> extractVariables(String expr) {
+    static Set<String> extractVariables(String expr) {
         Set<String> variables = new HashSet<>();
         Pattern pattern = Pattern.compile("[A-Za-z]+"); // Match one or more letters
         Matcher matcher = pattern.matcher(expr);
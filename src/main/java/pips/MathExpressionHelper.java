@@ -2,13 +2,64 @@ package pips;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pips_jfr.ExpressionCompileEvent;
+import pips_jfr.ExpressionEvaluateEvent;
 
 /**
  * Utility class to provide math expression evaluation functionality.
  * Serves as a helper for evaluating expressions with variables.
+ *
+ * Expressions over at most MAX_TABLE_ARITY variables (system property pips.truthTableArity,
+ * default 3, 0 to disable) are answered from a cached truth table instead of the evaluator.
+ * The table has one entry per combination of pip values 0-6 or "unassigned" for each variable,
+ * so it reproduces the evaluator's answers for partial assignments as well. Entries are computed
+ * by the evaluator the first time they are needed; later checks are a single array lookup.
  */
 public class MathExpressionHelper {
 
+    static final int MAX_TABLE_ARITY = Integer.getInteger("pips.truthTableArity", 3);
+
+    // Table digit of an unassigned variable; assigned variables use their pip value
+    private static final int UNASSIGNED = MathExpressionEvaluator.MAX_DOMINO_VALUE + 1;
+    private static final int DIGITS = UNASSIGNED + 1;
+    private static final byte UNKNOWN = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+
+    private static final Map<String, TruthTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Answers of the evaluator for one expression, indexed by the digits of its variables.
+     * Entries start UNKNOWN and are filled on first use; concurrent fills write the same value.
+     * A table without entries stands for an expression with too many variables to tabulate.
+     */
+    private record TruthTable(String[] variables, byte[] entries) {
+
+        static TruthTable of(String expression) {
+            ExpressionCompileEvent event = new ExpressionCompileEvent();
+            event.begin();
+            String[] variables = MathExpressionEvaluator.extractVariables(expression).toArray(new String[0]);
+            TruthTable table;
+            if (variables.length > MAX_TABLE_ARITY) {
+                table = new TruthTable(variables, null);
+            } else {
+                int size = 1;
+                for (int i = 0; i < variables.length; i++) {
+                    size *= DIGITS;
+                }
+                table = new TruthTable(variables, new byte[size]);
+            }
+            if (event.shouldCommit()) {
+                event.expression = expression;
+                event.result = table.entries() == null ? "no table" : "truth table of " + table.entries().length + " entries";
+                event.commit();
+            }
+            return table;
+        }
+    }
+
     /**
      * Evaluates if a mathematical expression is satisfied with the given node and value.
      * This method enforces domino pip constraints (values must be between 0 and 6).
@@ -22,7 +73,7 @@ public class MathExpressionHelper {
         Map<String, Integer> varValues = new HashMap<>();
         varValues.put(node, value);
 
-        return MathExpressionEvaluator.evaluate(expression, varValues, true);
+        return evaluateWithTable(expression, varValues);
     }
 
     /**
@@ -36,7 +87,7 @@ public class MathExpressionHelper {
     public static boolean satisfies(String expression, Map<String, Integer> varValues) {
         if(expression.contains("ANY"))
             return true;
-        return MathExpressionEvaluator.evaluate(expression, varValues, true);
+        return evaluateWithTable(expression, varValues);
     }
 
     /**
@@ -49,7 +100,60 @@ public class MathExpressionHelper {
      * @return true if the expression is satisfied, false otherwise
      */
     public static boolean satisfies(String expression, Map<String, Integer> varValues, boolean checkDominoConstraints) {
-        return MathExpressionEvaluator.evaluate(expression, varValues, checkDominoConstraints);
+        if (checkDominoConstraints) {
+            return evaluateWithTable(expression, varValues);
+        }
+        return MathExpressionEvaluator.evaluate(expression, varValues, false);
+    }
+
+    /**
+     * Same answer as MathExpressionEvaluator.evaluate(expression, varValues, true), from the
+     * expression's truth table when it has one and every assigned value is a valid pip.
+     */
+    private static boolean evaluateWithTable(String expression, Map<String, Integer> varValues) {
+        if (expression == null || varValues == null) {
+            return evaluate(expression, varValues, false);
+        }
+        TruthTable table = tables.computeIfAbsent(expression, TruthTable::of);
+        if (table.entries() == null) {
+            return evaluate(expression, varValues, false);
+        }
+
+        int index = 0;
+        for (String variable : table.variables()) {
+            Integer value = varValues.get(variable);
+            int digit = value == null ? UNASSIGNED : value;
+            if (digit < MathExpressionEvaluator.MIN_DOMINO_VALUE || digit > UNASSIGNED || (value != null && digit == UNASSIGNED)) {
+                return evaluate(expression, varValues, false);
+            }
+            index = index * DIGITS + digit;
+        }
+
+        byte entry = table.entries()[index];
+        if (entry == UNKNOWN) {
+            Map<String, Integer> assigned = new HashMap<>();
+            for (String variable : table.variables()) {
+                Integer value = varValues.get(variable);
+                if (value != null) {
+                    assigned.put(variable, value);
+                }
+            }
+            entry = evaluate(expression, assigned, true) ? TRUE : FALSE;
+            table.entries()[index] = entry;
+        }
+        return entry == TRUE;
     }
 
-}
\ No newline at end of file
+    private static boolean evaluate(String expression, Map<String, Integer> varValues, boolean tableMiss) {
+        ExpressionEvaluateEvent event = new ExpressionEvaluateEvent();
+        event.begin();
+        boolean satisfied = MathExpressionEvaluator.evaluate(expression, varValues, true);
+        if (event.shouldCommit()) {
+            event.expression = expression;
+            event.tableMiss = tableMiss;
+            event.satisfied = satisfied;
+            event.commit();
+        }
+        return satisfied;
+    }
+}
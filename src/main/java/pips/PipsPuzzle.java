@@ -0,0 +1,237 @@
+package pips;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import pips_jfr.ExpressionCompileEvent;
+import pips_jfr.PuzzleLoadEvent;
+
+/**
+ * A puzzle in the node_details format, parsed once into index-based arrays and typed region
+ * constraints so that engines do not have to walk the JSON tree, look nodes up by name or
+ * evaluate expression strings while searching.
+ *
+ * Regions are read from the typed "constraints" list written by PipsJsonConverter when the puzzle
+ * has one, and otherwise from the expression of each node. Regions without a rule are left out.
+ */
+public class PipsPuzzle {
+
+    private static final Pattern VARIABLE = Pattern.compile("[A-Za-z]+");
+
+    private final List<String> nodes = new ArrayList<>();
+    private final Map<String, Integer> nodeIndex = new HashMap<>();
+    private final int[][] neighbors;
+    private final List<RegionConstraint> regions = new ArrayList<>();
+    private final int[][] regionsOfNode;
+    private final List<Domino> dominoes = new ArrayList<>();
+
+    private PipsPuzzle(JsonNode puzzle) {
+        PuzzleLoadEvent event = new PuzzleLoadEvent();
+        event.begin();
+        JsonNode nodeDetails = puzzle.get("node_details");
+        nodeDetails.fieldNames().forEachRemaining(name -> {
+            nodeIndex.put(name, nodes.size());
+            nodes.add(name);
+        });
+
+        neighbors = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++) {
+            List<Integer> peers = new ArrayList<>();
+            for (JsonNode peer : nodeDetails.get(nodes.get(i)).get("peers")) {
+                Integer index = nodeIndex.get(peer.asText());
+                if (index != null && !peers.contains(index)) {
+                    peers.add(index);
+                }
+            }
+            neighbors[i] = toArray(peers);
+        }
+
+        if (puzzle.has("constraints")) {
+            for (JsonNode constraint : puzzle.get("constraints")) {
+                List<Integer> cells = new ArrayList<>();
+                for (JsonNode node : constraint.get("nodes")) {
+                    cells.add(nodeIndex.get(node.asText()));
+                }
+                JsonNode target = constraint.get("target");
+                regions.add(RegionConstraint.of(constraint.get("type").asText(), toArray(cells), target == null ? null : target.asInt()));
+            }
+        } else {
+            // Each node carries the expression of its region; identical expressions describe the same region
+            Map<String, RegionConstraint> byExpression = new LinkedHashMap<>();
+            for (String node : nodes) {
+                JsonNode expression = nodeDetails.get(node).get("expression");
+                String expr = expression == null ? "ANY" : expression.asText().replace(" ", "");
+                if (!expr.contains("ANY")) {
+                    byExpression.computeIfAbsent(expr, this::compileRegion);
+                }
+            }
+            regions.addAll(byExpression.values());
+        }
+        regions.removeIf(region -> region instanceof RegionConstraint.Any);
+
+        List<List<Integer>> perNode = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            perNode.add(new ArrayList<>());
+        }
+        for (int r = 0; r < regions.size(); r++) {
+            for (int cell : regions.get(r).cells()) {
+                perNode.get(cell).add(r);
+            }
+        }
+        regionsOfNode = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++) {
+            regionsOfNode[i] = toArray(perNode.get(i));
+        }
+
+        JsonNode dominoList = puzzle.get("dominoes");
+        if (dominoList != null) {
+            for (JsonNode domino : dominoList) {
+                dominoes.add(new Domino(domino.get(0).asInt(), domino.get(1).asInt()));
+            }
+        }
+        if (event.shouldCommit()) {
+            event.format = "node_details";
+            event.nodes = nodes.size();
+            event.dominoes = dominoes.size();
+            event.regions = regions.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public static PipsPuzzle fromJson(JsonNode puzzle) {
+        return new PipsPuzzle(puzzle);
+    }
+
+    private RegionConstraint compileRegion(String expr) {
+        ExpressionCompileEvent event = new ExpressionCompileEvent();
+        event.begin();
+        RegionConstraint region = parseRegion(expr);
+        if (event.shouldCommit()) {
+            event.expression = expr;
+            event.result = region.type();
+            event.commit();
+        }
+        return region;
+    }
+
+    /**
+     * Reads a region from the expression strings of the node_details format: sums and comparisons
+     * such as A+B=7, A+B<7 and A>3, equalities such as A=B=C and inequalities such as A!=B!=C.
+     * Older converter output wrote equals regions as A+B+C=null, which is read as an equality too.
+     *
+     * @throws IllegalArgumentException for any other expression
+     */
+    private RegionConstraint parseRegion(String expr) {
+        List<Integer> cells = new ArrayList<>();
+        Matcher matcher = VARIABLE.matcher(expr);
+        while (matcher.find()) {
+            Integer index = nodeIndex.get(matcher.group());
+            if (index != null && !cells.contains(index)) {
+                cells.add(index);
+            }
+        }
+        int[] cellArray = toArray(cells);
+
+        if (expr.matches("[A-Za-z]+(!=[A-Za-z]+)+")) {
+            return new RegionConstraint.AllDifferent(cellArray);
+        }
+        String[] sides = expr.split("[<>=]");
+        String variableSum = "[A-Za-z]+(\\+[A-Za-z]+)*";
+        if (sides.length == 2 && sides[0].matches(variableSum) && sides[1].matches("\\d+")) {
+            int target = Integer.parseInt(sides[1]);
+            if (expr.contains("<")) {
+                return new RegionConstraint.Less(cellArray, target);
+            } else if (expr.contains(">")) {
+                return new RegionConstraint.Greater(cellArray, target);
+            }
+            return new RegionConstraint.SumEquals(cellArray, target);
+        }
+        if (expr.matches("[A-Za-z]+(=[A-Za-z]+)+") || expr.matches(variableSum + "=null")) {
+            return new RegionConstraint.AllEqual(cellArray);
+        }
+        throw new IllegalArgumentException("Unsupported region expression: " + expr);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public String getNode(int index) {
+        return nodes.get(index);
+    }
+
+    public Integer indexOf(String node) {
+        return nodeIndex.get(node);
+    }
+
+    public int[] getNeighbors(int node) {
+        return neighbors[node];
+    }
+
+    public List<RegionConstraint> getRegions() {
+        return regions;
+    }
+
+    public int[] getRegionsOfNode(int node) {
+        return regionsOfNode[node];
+    }
+
+    /**
+     * @param values Pip value of every node, RegionConstraint.UNASSIGNED for empty nodes
+     * @return false if some region of the node can no longer be satisfied
+     */
+    public boolean isConsistent(int node, int[] values) {
+        for (int region : regionsOfNode[node]) {
+            if (!regions.get(region).isConsistent(values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as isConsistent(int, int[]) for an assignment keyed by node name, missing nodes being empty.
+     */
+    public boolean isConsistent(String node, Map<String, Integer> assignment) {
+        int index = nodeIndex.get(node);
+        int[] values = new int[nodes.size()];
+        for (int region : regionsOfNode[index]) {
+            for (int cell : regions.get(region).cells()) {
+                values[cell] = assignment.getOrDefault(nodes.get(cell), RegionConstraint.UNASSIGNED);
+            }
+            if (!regions.get(region).isConsistent(values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<Domino> getDominoes() {
+        return dominoes;
+    }
+
+    /**
+     * @return the node-to-value map for an array of values indexed like getNodes()
+     */
+    public Map<String, Integer> toAssignment(int[] values) {
+        Map<String, Integer> assignment = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            assignment.put(nodes.get(i), values[i]);
+        }
+        return assignment;
+    }
+}
@@ -5,16 +5,95 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
 
+import pips_jfr.SearchEvent;
+
 public class PipsSolver {
 
     private static final JsonNode input;
-    private static final LinkedHashMap<String, JsonNode> nodePartnerOrder = new LinkedHashMap<>();
-    private static final HashMap<Integer, List<Domino>> availableDominoes = new HashMap<>();
     private static boolean debugEnabled = false;
     static final int MAX_DOMINO_VALUE = 7;
-    private static boolean isPuzzleSolved = false;
+    // Deadline, cancellation and interrupts are polled every CHECK_INTERVAL + 1 nodes.
+    // Nodes here are expensive (map copies and region checks), so the interval is short.
+    private static final int CHECK_INTERVAL = 0x0F;
+    private static final int DEFAULT_TABLE_CAPACITY = 1 << 16;
+    private static final long ZOBRIST_SEED = 0x9E3779B97F4A7C15L;
+    // Nogoods with more placements than this are rarely met again and are not kept
+    private static final int MAX_NOGOOD_SIZE = 3;
+    private static final int MAX_NOGOODS = 1 << 16;
+
+    private final JsonNode puzzle;
+    private final PipsPuzzle model;
+    private final LinkedHashMap<String, JsonNode> nodePartnerOrder = new LinkedHashMap<>();
+    private final HashMap<Integer, List<Domino>> availableDominoes = new HashMap<>();
+    private final Map<String, Integer> nodeIndex = new HashMap<>();
+    private int[][] neighbors;
+    // Cells sharing a region with each cell, by index
+    private int[][] regionPeers;
+    // Cells whose options change when a cell is filled: its neighbours, its region peers and their neighbours
+    private int[][] affectedBy;
+    // Name and PipsPuzzle index of each cell, by index
+    private String[] nodeNames;
+    private int[] modelCells;
+    // Domino types of the puzzle, and the type of each [low pip][high pip]
+    private int[] typeLow;
+    private int[] typeHigh;
+    private final int[][] typeIndex = new int[MAX_DOMINO_VALUE + 1][MAX_DOMINO_VALUE + 1];
+    // Dominoes per type, indexed [low pip][high pip]
+    private final int[][] dominoSupply = new int[MAX_DOMINO_VALUE + 1][MAX_DOMINO_VALUE + 1];
+    private ZobristKeys zobristKeys;
+    private TranspositionTable sharedTable;
+    private final FeasibilityCheck feasibilityCheck;
+
+    // Search state for the current solve() call
+    private boolean isPuzzleSolved = false;
+    private boolean cancelled;
+    private CancellationToken cancellationToken;
+    private long nodeCount;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean limitReached;
+    private long rootBranchesTotal;
+    private long rootBranchesDone;
+    private Map<String, Integer> solution;
+    private TilingChecker tilingChecker;
+    private long prunedNodes;
+    private int[][] dominoesLeft;
+    private TranspositionTable deadStates;
+    private long tableHits;
+
+    // Conflict-directed backjumping. The call at depth d places the domino of level d; cellLevel
+    // is the level that filled each cell, -1 while empty, and levelKey, levelLow and levelHigh
+    // describe the placement of each level. A failing call leaves in failure the levels its
+    // failure depends on, all lower than its own.
+    private int[] cellLevel;
+    private long[] levelKey;
+    private int[] levelLow;
+    private int[] levelHigh;
+    private BitSet failure;
+    private long backjumps;
+    // Small sets of placements that no solution contains, indexed by each of their placements
+    private Map<Long, List<long[]>> nogoods;
+    private Set<List<Long>> knownNogoods;
+    private long nogoodHits;
+
+    // Dynamic variable ordering: the search goes on from the empty cell with the fewest options.
+    // options[c][t] counts the ways to cover the empty cell c with a domino of type t, over its
+    // empty neighbours and both orientations, that keep the regions of both cells satisfiable;
+    // optionCount[c] adds them up over the types with dominoes left. A placement only changes the
+    // rows of the cells affected by its two cells, which are recounted on the way down and put
+    // back from savedCells, savedRows and savedCounts of its level on the way up.
+    private int[] values;
+    private int[][] options;
+    private int[] optionCount;
+    private int[][] savedCells;
+    private int[][][] savedRows;
+    private int[][] savedCounts;
+    private int[] visitMark;
+    private int visitStamp;
 
     static {
         input = readInput();
@@ -35,10 +114,246 @@ public class PipsSolver {
         return input != null;
     }
 
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     * @throws IllegalArgumentException if FeasibilityCheck finds the puzzle malformed, with its reason
+     */
+    public PipsSolver(JsonNode puzzle) {
+        this.puzzle = puzzle;
+        // The check parses the puzzle once for both of us, and reads malformed input before anything else does
+        this.feasibilityCheck = new FeasibilityCheck(puzzle);
+        if (feasibilityCheck.isMalformed()) {
+            throw new IllegalArgumentException("Malformed puzzle: " + feasibilityCheck.getReason());
+        }
+        this.model = feasibilityCheck.getModel();
+        sortNodesBasedOnPartners();
+        orderDominoes();
+        indexNodes();
+
+        int maxCount = 0;
+        for (JsonNode domino : puzzle.get("dominoes")) {
+            int low = Math.min(domino.get(0).asInt(), domino.get(1).asInt());
+            int high = Math.max(domino.get(0).asInt(), domino.get(1).asInt());
+            maxCount = Math.max(maxCount, ++dominoSupply[low][high]);
+        }
+        List<int[]> types = new ArrayList<>();
+        for (int low = 0; low <= MAX_DOMINO_VALUE; low++) {
+            for (int high = low; high <= MAX_DOMINO_VALUE; high++) {
+                typeIndex[low][high] = dominoSupply[low][high] > 0 ? types.size() : -1;
+                if (dominoSupply[low][high] > 0) {
+                    types.add(new int[]{low, high});
+                }
+            }
+        }
+        typeLow = types.stream().mapToInt(type -> type[0]).toArray();
+        typeHigh = types.stream().mapToInt(type -> type[1]).toArray();
+        zobristKeys = new ZobristKeys(nodeIndex.size(), MAX_DOMINO_VALUE, maxCount, ZOBRIST_SEED);
+    }
+
+    private void indexNodes() {
+        for (String node : nodePartnerOrder.keySet()) {
+            nodeIndex.put(node, nodeIndex.size());
+        }
+        neighbors = new int[nodeIndex.size()][];
+        for (Map.Entry<String, JsonNode> entry : nodePartnerOrder.entrySet()) {
+            List<Integer> peers = new ArrayList<>();
+            for (JsonNode peer : entry.getValue().get("peers")) {
+                Integer index = nodeIndex.get(peer.asText());
+                if (index != null && !peers.contains(index)) {
+                    peers.add(index);
+                }
+            }
+            neighbors[nodeIndex.get(entry.getKey())] = peers.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        regionPeers = new int[nodeIndex.size()][];
+        for (Map.Entry<String, Integer> entry : nodeIndex.entrySet()) {
+            Set<Integer> peers = new LinkedHashSet<>();
+            for (int region : model.getRegionsOfNode(model.indexOf(entry.getKey()))) {
+                for (int cell : model.getRegions().get(region).cells()) {
+                    peers.add(nodeIndex.get(model.getNode(cell)));
+                }
+            }
+            peers.remove(entry.getValue());
+            regionPeers[entry.getValue()] = peers.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        nodeNames = nodePartnerOrder.keySet().toArray(new String[0]);
+        modelCells = new int[nodeNames.length];
+        affectedBy = new int[nodeNames.length][];
+        for (int cell = 0; cell < nodeNames.length; cell++) {
+            modelCells[cell] = model.indexOf(nodeNames[cell]);
+            Set<Integer> affected = new LinkedHashSet<>();
+            for (int neighbor : neighbors[cell]) {
+                affected.add(neighbor);
+            }
+            for (int peer : regionPeers[cell]) {
+                affected.add(peer);
+                for (int neighbor : neighbors[peer]) {
+                    affected.add(neighbor);
+                }
+            }
+            affected.remove(cell);
+            affectedBy[cell] = affected.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Shares a table of dead states with other solvers of the same puzzle, for example parallel
+     * workers. Without one, every solve() starts with a fresh table of its own.
+     */
+    public void setTranspositionTable(TranspositionTable table) {
+        this.sharedTable = table;
+    }
+
+    /**
+     * @return the number of states in the last solve() that were cut because the table knew them to be dead
+     */
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    /**
+     * @return the number of times the last solve() jumped back over levels that had no part in a failure
+     */
+    public long getBackjumps() {
+        return backjumps;
+    }
+
+    /**
+     * @return the number of placements in the last solve() that were skipped because they completed a recorded nogood
+     */
+    public long getNogoodHits() {
+        return nogoodHits;
+    }
+
+    /**
+     * @return the check run on the puzzle before any search; solve() answers UNSAT right away when it rejects the puzzle
+     */
+    public FeasibilityCheck getFeasibilityCheck() {
+        return feasibilityCheck;
+    }
+
+    /**
+     * @return the number of branches cut by the tiling check in the last solve()
+     */
+    public long getPrunedNodes() {
+        return prunedNodes;
+    }
+
+    /**
+     * Sets the token polled during solve(). Interrupting the solving thread stops the search as well.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Searches for a solution, visiting at most nodeBudget search nodes.
+     */
+    public SolveResult<Map<String, Integer>> solve(long nodeBudget) {
+        return solve(nodeBudget, null);
+    }
+
+    /**
+     * Searches for a solution, stopping once the wall-clock budget has elapsed.
+     */
+    public SolveResult<Map<String, Integer>> solve(Duration budget) {
+        return solve(Long.MAX_VALUE, budget);
+    }
+
+    private SolveResult<Map<String, Integer>> solve(long nodeBudget, Duration budget) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        SolveResult<Map<String, Integer>> result = search(nodeBudget, budget);
+        if (event.shouldCommit()) {
+            event.engine = "Backtracking";
+            event.mode = "first";
+            event.status = result.status().name();
+            event.nodes = result.nodesVisited();
+            event.solutions = result.solutions().size();
+            event.prunedNodes = prunedNodes;
+            event.commit();
+        }
+        return result;
+    }
+
+    private SolveResult<Map<String, Integer>> search(long nodeBudget, Duration budget) {
+        nodeLimit = nodeBudget;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+        nodeCount = 0;
+        limitReached = false;
+        cancelled = false;
+        rootBranchesDone = 0;
+        solution = null;
+        isPuzzleSolved = false;
+        prunedNodes = 0;
+        tilingChecker = new TilingChecker(neighbors);
+        tableHits = 0;
+        int levels = nodeIndex.size() / 2 + 1;
+        cellLevel = new int[nodeIndex.size()];
+        Arrays.fill(cellLevel, -1);
+        levelKey = new long[levels];
+        levelLow = new int[levels];
+        levelHigh = new int[levels];
+        failure = new BitSet();
+        backjumps = 0;
+        nogoods = new HashMap<>();
+        knownNogoods = new HashSet<>();
+        nogoodHits = 0;
+        deadStates = sharedTable != null ? sharedTable : new TranspositionTable(DEFAULT_TABLE_CAPACITY);
+        dominoesLeft = new int[MAX_DOMINO_VALUE + 1][];
+        long stateHash = 0;
+        for (int low = 0; low <= MAX_DOMINO_VALUE; low++) {
+            dominoesLeft[low] = dominoSupply[low].clone();
+            for (int high = low; high <= MAX_DOMINO_VALUE; high++) {
+                stateHash ^= zobristKeys.dominoCount(low, high, dominoSupply[low][high]);
+            }
+        }
+
+        if (nodePartnerOrder.isEmpty() || feasibilityCheck.isRejected()) {
+            return new SolveResult<>(SolveStatus.UNSAT, List.of(), 0, 0);
+        }
+        initOptions(levels);
+        String currentNode = nodeNames[mostConstrainedCell()];
+        LinkedHashSet<String> availableNodes = new LinkedHashSet<>(nodePartnerOrder.keySet());
+        availableNodes.remove(currentNode);
+        int orientedDominoes = availableDominoes.values().stream().mapToInt(List::size).sum();
+        rootBranchesTotal = (long) nodePartnerOrder.get(currentNode).get("peers").size() * orientedDominoes;
+
+        solvePipsPuzzle(currentNode, availableNodes, new HashMap<>(availableDominoes), new HashMap<>(), stateHash, 0);
+
+        if (solution != null) {
+            return new SolveResult<>(SolveStatus.SOLVED, List.of(solution), nodeCount, 0);
+        }
+        if (cancelled) {
+            return new SolveResult<>(SolveStatus.CANCELLED, List.of(), nodeCount, -1);
+        }
+        if (limitReached) {
+            // Extrapolate from the share of root branches finished so far
+            long remaining = rootBranchesDone == 0 ? -1 : nodeCount * (rootBranchesTotal - rootBranchesDone) / rootBranchesDone;
+            return new SolveResult<>(SolveStatus.BUDGET_EXHAUSTED, List.of(), nodeCount, remaining);
+        }
+        return new SolveResult<>(SolveStatus.UNSAT, List.of(), nodeCount, 0);
+    }
+
+    private boolean isLimitReached() {
+        if (limitReached) {
+            return true;
+        }
+        if (++nodeCount > nodeLimit) {
+            limitReached = true;
+        } else if ((nodeCount & CHECK_INTERVAL) == 0) {
+            cancelled = CancellationToken.shouldStop(cancellationToken);
+            limitReached = cancelled || (hasDeadline && System.nanoTime() - deadline > 0);
+        }
+        return limitReached;
+    }
+
     private void orderDominoes() {
-        if (input != null && input.has("pips_medium_puzzles")) {
-            JsonNode puzzle = input.get("pips_medium_puzzles");
-            JsonNode dominoes = puzzle.get(0).get("dominoes");
+        if (puzzle != null) {
+            JsonNode dominoes = puzzle.get("dominoes");
             if (dominoes != null && dominoes.isArray()) {
                 for (JsonNode domino : dominoes) {
                     if (domino.isArray() && domino.size() == 2) {
@@ -53,97 +368,419 @@ public class PipsSolver {
         }
     }
 
-    private boolean solvePipsPuzzle(String currentNode, LinkedHashSet<String> localNodePartnerOrder, HashMap<Integer, List<Domino>> availableDominoes, HashMap<String, Integer> assignedValues) {
+    /**
+     * Covers currentNode with a domino and goes on from the empty node with the fewest options. Every
+     * solution has to cover currentNode, so once one domino of it has a subtree that fails, the
+     * other ways to continue from that domino would fail as well and are not tried.
+     *
+     * A failure leaves in failure the levels it depends on: regions sharing cells with earlier
+     * placements, peers filled earlier, dominoes used earlier, and the filled cells around a part
+     * of the board that cannot be tiled. When the failure of a subtree does not depend on the
+     * domino of this level, trying other dominoes here is pointless, and the search jumps back
+     * to the most recent level it does depend on. Failures that depend on few enough levels are
+     * kept as nogoods and cut the same combination of placements anywhere else in the tree.
+     *
+     * @param stateHash Zobrist hash of the filled nodes and the remaining dominoes, see ZobristKeys
+     */
+    private boolean solvePipsPuzzle(String currentNode, LinkedHashSet<String> localNodePartnerOrder, HashMap<Integer, List<Domino>> availableDominoes, HashMap<String, Integer> assignedValues, long stateHash, int depth) {
+        if(isLimitReached()) {
+            return false;
+        }
+        // The same filled nodes and remaining dominoes, continuing from the same node, lead to the same subtree
+        long stateKey = stateHash ^ zobristKeys.nextNode(nodeIndex.get(currentNode));
+        if(deadStates.contains(stateKey)) {
+            tableHits++;
+            // The whole state is dead, which depends on every level
+            failure = new BitSet();
+            failure.set(0, depth);
+            return false;
+        }
 
+        int subjectIndex = nodeIndex.get(currentNode);
+        BitSet conflict = new BitSet();
         for(JsonNode node: nodePartnerOrder.get(currentNode).get("peers")) {
             String nodeName = node.asText();
-            if(!assignedValues.containsKey(nodeName)) {
-                if(debugEnabled)
+            if(assignedValues.containsKey(nodeName)) {
+                // A peer filled earlier takes away its dominoes with this node
+                conflict.set(cellLevel[nodeIndex.get(nodeName)]);
+            } else {
+                if(debugEnabled) {
                     System.out.println("\n******** Solving for "+ currentNode + nodeName+" ********");
+                }
+                int followerIndex = nodeIndex.get(nodeName);
                 for(int pip = 0; pip <= MAX_DOMINO_VALUE; pip++) {
                     List<Domino> dominoesWithPip = availableDominoes.get(pip);
                     if(dominoesWithPip!= null && !dominoesWithPip.isEmpty()) {
                         for (Domino d : dominoesWithPip) {
-                            if(debugEnabled)
+                            if(isPuzzleSolved || limitReached) {
+                                return isPuzzleSolved;
+                            }
+                            if(depth == 0) {
+                                rootBranchesDone++;
+                            }
+                            if(debugEnabled) {
                                 System.out.println("\nUsing "+ d +" for "+ currentNode + nodeName);
-                            if(assignDominoToNode(d, currentNode, node.asText(), assignedValues)) {
-                                if(debugEnabled)
-                                    System.out.println("Assigned "+ d +" to "+ currentNode + nodeName);
-                                HashMap<String, Integer> updatedAssignedValues = new HashMap<>(assignedValues);
-                                updatedAssignedValues.put(currentNode, d.pip1());
-                                updatedAssignedValues.put(nodeName, d.pip2());
-
-                                HashMap<Integer, List<Domino>> updatedAvailableDominoes = new HashMap<>();
-                                for (Map.Entry<Integer, List<Domino>> entry : availableDominoes.entrySet()) {
-                                    updatedAvailableDominoes.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                            }
+                            if(!assignDominoToNode(d, currentNode, node.asText(), assignedValues)) {
+                                if(debugEnabled) {
+                                    System.out.println("Failed to assign "+ d +" to "+ nodeName);
                                 }
-                                int pip1 = d.pip1(); int pip2 = d.pip2();
-                                updatedAvailableDominoes.get(pip1).remove(d);
-                                updatedAvailableDominoes.get(pip2).removeIf(domino -> domino.pip1() == pip2 && domino.pip2() == pip1);
-
-                                LinkedHashSet<String> updatedLocalNodePartnerOrder = new LinkedHashSet<>(localNodePartnerOrder);
-                                updatedLocalNodePartnerOrder.removeAll(updatedAssignedValues.keySet());
-                                if(updatedLocalNodePartnerOrder.isEmpty() && !isPuzzleSolved) {
-                                    isPuzzleSolved = true;
-                                    System.out.println("********* Puzzle Solved *********" + updatedAssignedValues);
+                                addRegionCulprits(subjectIndex, followerIndex, conflict);
+                                continue;
+                            }
+                            int pip1 = d.pip1(); int pip2 = d.pip2();
+                            long key = placementKey(subjectIndex, followerIndex, pip1, pip2);
+                            BitSet nogood = completedNogood(key, depth);
+                            if(nogood != null) {
+                                nogoodHits++;
+                                conflict.or(nogood);
+                                continue;
+                            }
+                            if(debugEnabled) {
+                                System.out.println("Assigned "+ d +" to "+ currentNode + nodeName);
+                            }
+                            HashMap<String, Integer> updatedAssignedValues = new HashMap<>(assignedValues);
+                            updatedAssignedValues.put(currentNode, pip1);
+                            updatedAssignedValues.put(nodeName, pip2);
+
+                            HashMap<Integer, List<Domino>> updatedAvailableDominoes = new HashMap<>();
+                            for (Map.Entry<Integer, List<Domino>> entry : availableDominoes.entrySet()) {
+                                updatedAvailableDominoes.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                            }
+                            // One copy each way round, other copies of the same domino stay available
+                            updatedAvailableDominoes.get(pip1).remove(d);
+                            updatedAvailableDominoes.get(pip2).remove(new Domino(pip2, pip1));
+
+                            LinkedHashSet<String> updatedLocalNodePartnerOrder = new LinkedHashSet<>(localNodePartnerOrder);
+                            updatedLocalNodePartnerOrder.removeAll(updatedAssignedValues.keySet());
+                            if(updatedLocalNodePartnerOrder.isEmpty() && !isPuzzleSolved) {
+                                isPuzzleSolved = true;
+                                solution = updatedAssignedValues;
+                                if(debugEnabled) {
                                     System.out.println("Remaining domino: " + updatedAvailableDominoes);
-                                    return true;
                                 }
-                                for(JsonNode peerNode: nodePartnerOrder.get(nodeName).get("peers")) {
-                                    if(updatedAssignedValues.containsKey(peerNode.asText()))
-                                        continue;
-                                    String peerNodeName = peerNode.asText();
-                                    boolean result = solvePipsPuzzle(peerNodeName, updatedLocalNodePartnerOrder, updatedAvailableDominoes, updatedAssignedValues);
-                                    if(result) {
-                                        if(updatedAssignedValues.size() == nodePartnerOrder.size()) {
-                                            System.out.println("********* Puzzle Solved *********" + updatedAssignedValues);
-                                            return true;
-                                        }
+                                return true;
+                            }
+                            // Both nodes are now covered; skip the subtree if the rest of the board cannot be tiled
+                            tilingChecker.fill(subjectIndex);
+                            tilingChecker.fill(followerIndex);
+                            if(!tilingChecker.isTileable()) {
+                                prunedNodes++;
+                                for(int cell : tilingChecker.untileableBoundary()) {
+                                    if(cellLevel[cell] >= 0) {
+                                        conflict.set(cellLevel[cell]);
                                     }
                                 }
+                                tilingChecker.unfill(subjectIndex);
+                                tilingChecker.unfill(followerIndex);
+                                continue;
+                            }
+                            int low = Math.min(pip1, pip2);
+                            int high = Math.max(pip1, pip2);
+                            int left = dominoesLeft[low][high]--;
+                            long childHash = stateHash
+                                    ^ zobristKeys.cellValue(subjectIndex, pip1) ^ zobristKeys.cellValue(followerIndex, pip2)
+                                    ^ zobristKeys.dominoCount(low, high, left) ^ zobristKeys.dominoCount(low, high, left - 1);
+                            cellLevel[subjectIndex] = depth;
+                            cellLevel[followerIndex] = depth;
+                            levelKey[depth] = key;
+                            levelLow[depth] = low;
+                            levelHigh[depth] = high;
+                            values[modelCells[subjectIndex]] = pip1;
+                            values[modelCells[followerIndex]] = pip2;
+                            updateOptions(subjectIndex, followerIndex, typeIndex[low][high], left == 1, depth);
 
-                                if(!updatedLocalNodePartnerOrder.isEmpty()) {
-                                    boolean result = solvePipsPuzzle(updatedLocalNodePartnerOrder.stream().toList().get(0), updatedLocalNodePartnerOrder, updatedAvailableDominoes, updatedAssignedValues);
-                                    if (result && !isPuzzleSolved) {
-                                        isPuzzleSolved = true;
-                                        return true;
-                                    }
+                            // Go on from the empty node with the fewest ways left to cover it
+                            String nextNode = nodeNames[mostConstrainedCell()];
+                            boolean result = solvePipsPuzzle(nextNode, updatedLocalNodePartnerOrder, updatedAvailableDominoes, updatedAssignedValues, childHash, depth + 1);
+
+                            cellLevel[subjectIndex] = -1;
+                            cellLevel[followerIndex] = -1;
+                            if(result || isPuzzleSolved) {
+                                isPuzzleSolved = true;
+                                return true;
+                            }
+                            restoreOptions(typeIndex[low][high], left == 1, depth);
+                            values[modelCells[subjectIndex]] = RegionConstraint.UNASSIGNED;
+                            values[modelCells[followerIndex]] = RegionConstraint.UNASSIGNED;
+                            tilingChecker.unfill(subjectIndex);
+                            tilingChecker.unfill(followerIndex);
+                            dominoesLeft[low][high]++;
+                            if(limitReached) {
+                                return false;
+                            }
+                            if(!failure.get(depth)) {
+                                // The subtree fails whatever this level places: give up on this node too
+                                if(debugEnabled) {
+                                    System.out.println("Backjumping from "+ currentNode + " to level " + (failure.length() - 1));
                                 }
-                            } else {
-                                if(debugEnabled)
-                                    System.out.println("Failed to assign "+ d +" to "+ nodeName);
+                                backjumps++;
+                                deadStates.add(stateKey);
+                                return false;
                             }
+                            conflict.or(failure);
                         }
                     }
                 }
-                if(debugEnabled)
+                if(debugEnabled) {
                     System.out.println("Going to next peer of "+ currentNode);
+                }
             }
         }
-        if(debugEnabled)
+        if(debugEnabled) {
             System.out.println("Backtracking from "+ currentNode);
+        }
+        if(!limitReached && !isPuzzleSolved) {
+            addMissingDominoCulprits(currentNode, availableDominoes, assignedValues, depth, conflict);
+            conflict.clear(depth);
+            failure = conflict;
+            recordNogood(conflict);
+            deadStates.add(stateKey);
+        }
         return false;
     }
 
-    private boolean assignDominoToNode(Domino d, String currentNode, String peerNode, HashMap<String, Integer> assignedValues) {
-        JsonNode subject = nodePartnerOrder.get(currentNode);
-        JsonNode follower = nodePartnerOrder.get(peerNode);
+    private void initOptions(int levels) {
+        values = new int[model.size()];
+        Arrays.fill(values, RegionConstraint.UNASSIGNED);
+        options = new int[nodeNames.length][];
+        optionCount = new int[nodeNames.length];
+        savedCells = new int[levels][];
+        savedRows = new int[levels][][];
+        savedCounts = new int[levels][];
+        visitMark = new int[nodeNames.length];
+        visitStamp = 0;
+        for (int cell = 0; cell < nodeNames.length; cell++) {
+            countOptions(cell);
+        }
+    }
 
-        String subjectExpr = subject.get("expression").asText();
-        String followerExpr = follower.get("expression").asText();
+    /**
+     * Recounts the options of an empty cell into a new row, leaving the old row to be saved.
+     */
+    private void countOptions(int cell) {
+        int[] row = new int[typeLow.length];
+        options[cell] = row;
+        optionCount[cell] = 0;
+        if (cellLevel[cell] >= 0) {
+            return;
+        }
+        int subject = modelCells[cell];
+        for (int neighbor : neighbors[cell]) {
+            if (cellLevel[neighbor] >= 0) {
+                continue;
+            }
+            int follower = modelCells[neighbor];
+            for (int type = 0; type < row.length; type++) {
+                row[type] += fits(subject, follower, typeLow[type], typeHigh[type]) ? 1 : 0;
+                if (typeLow[type] != typeHigh[type]) {
+                    row[type] += fits(subject, follower, typeHigh[type], typeLow[type]) ? 1 : 0;
+                }
+            }
+        }
+        for (int type = 0; type < row.length; type++) {
+            if (dominoesLeft[typeLow[type]][typeHigh[type]] > 0) {
+                optionCount[cell] += row[type];
+            }
+        }
+    }
 
+    private boolean fits(int subject, int follower, int pip1, int pip2) {
+        values[subject] = pip1;
+        values[follower] = pip2;
+        boolean fits = model.isConsistent(subject, values) && model.isConsistent(follower, values);
+        values[subject] = RegionConstraint.UNASSIGNED;
+        values[follower] = RegionConstraint.UNASSIGNED;
+        return fits;
+    }
+
+    /**
+     * Brings the options up to date after level depth filled subject and follower with a domino
+     * of the given type, which exhausted the type if it was the last one.
+     */
+    private void updateOptions(int subject, int follower, int type, boolean exhausted, int depth) {
+        visitStamp++;
+        int[] cells = new int[affectedBy[subject].length + affectedBy[follower].length + 2];
+        int n = 0;
+        for (int[] group : new int[][]{{subject, follower}, affectedBy[subject], affectedBy[follower]}) {
+            for (int cell : group) {
+                if (visitMark[cell] != visitStamp) {
+                    visitMark[cell] = visitStamp;
+                    cells[n++] = cell;
+                }
+            }
+        }
+        int[][] rows = new int[n][];
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = options[cells[i]];
+            counts[i] = optionCount[cells[i]];
+        }
+        savedCells[depth] = Arrays.copyOf(cells, n);
+        savedRows[depth] = rows;
+        savedCounts[depth] = counts;
+        if (exhausted) {
+            for (int cell = 0; cell < optionCount.length; cell++) {
+                optionCount[cell] -= options[cell][type];
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            countOptions(cells[i]);
+        }
+    }
+
+    // Undoes updateOptions() of level depth
+    private void restoreOptions(int type, boolean exhausted, int depth) {
+        int[] cells = savedCells[depth];
+        for (int i = 0; i < cells.length; i++) {
+            options[cells[i]] = savedRows[depth][i];
+            optionCount[cells[i]] = savedCounts[depth][i] - (exhausted ? savedRows[depth][i][type] : 0);
+        }
+        if (exhausted) {
+            for (int cell = 0; cell < optionCount.length; cell++) {
+                optionCount[cell] += options[cell][type];
+            }
+        }
+    }
+
+    // The empty cell with the fewest options, the first in partner order on a tie
+    private int mostConstrainedCell() {
+        int best = -1;
+        for (int cell = 0; cell < optionCount.length; cell++) {
+            if (cellLevel[cell] < 0 && (best < 0 || optionCount[cell] < optionCount[best])) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    // Levels that filled cells sharing a region with either cell, which decide whether a pair of pips fits
+    private void addRegionCulprits(int subject, int follower, BitSet conflict) {
+        for(int[] peers : new int[][]{regionPeers[subject], regionPeers[follower]}) {
+            for(int cell : peers) {
+                if(cellLevel[cell] >= 0) {
+                    conflict.set(cellLevel[cell]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Dominoes used up by earlier levels were never tried on currentNode. If one of them would fit
+     * next to it, the levels that used its copies are part of the failure; if it fits nowhere,
+     * the regions that rule it out are.
+     */
+    private void addMissingDominoCulprits(String currentNode, HashMap<Integer, List<Domino>> availableDominoes,
+                                         HashMap<String, Integer> assignedValues, int depth, BitSet conflict) {
+        int subjectIndex = nodeIndex.get(currentNode);
+        for(int low = 0; low <= MAX_DOMINO_VALUE; low++) {
+            for(int high = low; high <= MAX_DOMINO_VALUE; high++) {
+                if(dominoSupply[low][high] == 0 || isAvailable(availableDominoes, low, high)) {
+                    continue;
+                }
+                boolean fits = false;
+                for(JsonNode peer : nodePartnerOrder.get(currentNode).get("peers")) {
+                    String peerName = peer.asText();
+                    if(assignedValues.containsKey(peerName)) {
+                        continue;
+                    }
+                    if(assignDominoToNode(new Domino(low, high), currentNode, peerName, assignedValues)
+                            || assignDominoToNode(new Domino(high, low), currentNode, peerName, assignedValues)) {
+                        fits = true;
+                    } else {
+                        addRegionCulprits(subjectIndex, nodeIndex.get(peerName), conflict);
+                    }
+                }
+                if(fits) {
+                    for(int level = 0; level < depth; level++) {
+                        if(levelLow[level] == low && levelHigh[level] == high) {
+                            conflict.set(level);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isAvailable(HashMap<Integer, List<Domino>> availableDominoes, int low, int high) {
+        List<Domino> dominoes = availableDominoes.get(low);
+        return dominoes != null && dominoes.contains(new Domino(low, high));
+    }
+
+    // Identifies a placement by its two cells and their pips, whichever way round it was made
+    private long placementKey(int subject, int follower, int pip1, int pip2) {
+        int n = nodeIndex.size();
+        if(subject > follower) {
+            return placementKey(follower, subject, pip2, pip1);
+        }
+        return (((long) subject * n + follower) * (MAX_DOMINO_VALUE + 1) + pip1) * (MAX_DOMINO_VALUE + 1) + pip2;
+    }
+
+    /**
+     * @return the levels of the other placements of a recorded nogood that this placement would
+     *         complete, or null if it completes none
+     */
+    private BitSet completedNogood(long key, int depth) {
+        List<long[]> candidates = nogoods.get(key);
+        if(candidates == null) {
+            return null;
+        }
+        for(long[] nogood : candidates) {
+            BitSet levels = new BitSet();
+            boolean complete = true;
+            for(long other : nogood) {
+                if(other == key) {
+                    continue;
+                }
+                int level = levelOf(other, depth);
+                if(level < 0) {
+                    complete = false;
+                    break;
+                }
+                levels.set(level);
+            }
+            if(complete) {
+                return levels;
+            }
+        }
+        return null;
+    }
+
+    private int levelOf(long key, int depth) {
+        for(int level = 0; level < depth; level++) {
+            if(levelKey[level] == key) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    // The placements of the given levels can never all be part of a solution
+    private void recordNogood(BitSet levels) {
+        if(levels.cardinality() > MAX_NOGOOD_SIZE || knownNogoods.size() >= MAX_NOGOODS) {
+            return;
+        }
+        long[] nogood = levels.stream().mapToLong(level -> levelKey[level]).sorted().toArray();
+        if(!knownNogoods.add(Arrays.stream(nogood).boxed().toList())) {
+            return;
+        }
+        for(long key : nogood) {
+            nogoods.computeIfAbsent(key, k -> new ArrayList<>()).add(nogood);
+        }
+    }
+
+    private boolean assignDominoToNode(Domino d, String currentNode, String peerNode, HashMap<String, Integer> assignedValues) {
         HashMap<String, Integer> tempAssignedValues = new HashMap<>(assignedValues);
         tempAssignedValues.put(currentNode, d.pip1());
         tempAssignedValues.put(peerNode, d.pip2());
 
-        return  MathExpressionHelper.satisfies(subjectExpr, tempAssignedValues) &&
-               MathExpressionHelper.satisfies(followerExpr, tempAssignedValues);
+        return model.isConsistent(currentNode, tempAssignedValues) &&
+               model.isConsistent(peerNode, tempAssignedValues);
     }
 
     private void sortNodesBasedOnPartners() {
-        if (input != null && input.has("pips_medium_puzzles")) {
-            JsonNode puzzle = input.get("pips_medium_puzzles");
-            JsonNode nodeDetails = puzzle.get(0).get("node_details");
+        if (puzzle != null) {
+            JsonNode nodeDetails = puzzle.get("node_details");
             if (nodeDetails != null && nodeDetails.isObject()) {
                 nodeDetails.fields().forEachRemaining(entry -> nodePartnerOrder.put(entry.getKey(), entry.getValue()));
                 List<Map.Entry<String, JsonNode>> entries = new ArrayList<>(nodePartnerOrder.entrySet());
@@ -171,22 +808,24 @@ public class PipsSolver {
     }
 
     public static void main(String[] args) {
-        PipsSolver solver = new PipsSolver();
-        if(isJsonLoaded()) {
+        if(isJsonLoaded() && input.has("pips_medium_puzzles")) {
             System.out.println("Olaf Pips Solver is running...");
             long start = System.currentTimeMillis();
 
-            solver.sortNodesBasedOnPartners();
+            PipsSolver solver = new PipsSolver(input.get("pips_medium_puzzles").get(0));
             solver.printNodePartnerOrder();
-            solver.orderDominoes();
             solver.printDominoes();
 
-            assert !nodePartnerOrder.isEmpty();
-            String currentNode = nodePartnerOrder.entrySet().iterator().next().getKey();
-            LinkedHashSet<String> availableNodes = new LinkedHashSet<>( nodePartnerOrder.keySet());
-            availableNodes.remove(currentNode);
-
-            solver.solvePipsPuzzle(currentNode, availableNodes, new HashMap<>(availableDominoes), new HashMap<>());
+            if (solver.getFeasibilityCheck().isRejected()) {
+                System.out.println("Rejected before the search: " + solver.getFeasibilityCheck().getReason());
+            }
+            SolveResult<Map<String, Integer>> result = solver.solve(Long.MAX_VALUE);
+            if (result.status() == SolveStatus.SOLVED) {
+                System.out.println("********* Puzzle Solved *********" + result.firstSolution());
+            }
+            System.out.println("Search status: " + result.status() + " after " + result.nodesVisited() + " nodes, "
+                    + solver.getPrunedNodes() + " branches cut by the tiling check, " + solver.getTableHits() + " dead states skipped, "
+                    + solver.getBackjumps() + " backjumps, " + solver.getNogoodHits() + " placements cut by nogoods");
             long end = System.currentTimeMillis();
             System.out.println("\nOlaf Pips Solver finished in " + (end - start) + " ms.");
         }
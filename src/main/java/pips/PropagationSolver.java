@@ -0,0 +1,633 @@
+package pips;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Constraint propagation solver for Pips.
+ *
+ * Every node keeps a domain of possible pip values (a bitmask over 0-6) and a set of possible mates,
+ * the neighbours it may share a domino with. Region propagators (sum, equals, unequal, less,
+ * greater) narrow the domains, the pairing propagator removes values and mates that no remaining
+ * domino supports, and the supply propagator checks the domino multiset against what the board
+ * still needs.
+ * Changes are processed from a queue until nothing changes, and only then does the search branch,
+ * on the node with the smallest domain.
+ */
+public class PropagationSolver {
+
+    private static final int MAX_VALUE = MathExpressionEvaluator.MAX_DOMINO_VALUE;
+    private static final int FULL_DOMAIN = (1 << (MAX_VALUE + 1)) - 1;
+    private static final int CHECK_INTERVAL = 0xFF;
+
+    private final PipsPuzzle puzzle;
+    private final int n;
+    private final int[][] neighbors;
+    private final List<RegionConstraint> regions;
+    // Domino types are unordered pip pairs; typeOf[a][b] == typeOf[b][a]
+    private final int[][] typeOf = new int[MAX_VALUE + 1][MAX_VALUE + 1];
+    private final List<int[]> dominoTypes = new ArrayList<>();
+    private int[] initialSupply;
+
+    // Search statistics and limits for the current solve() call
+    private long nodeCount;
+    private long choicePoints;
+    private long propagations;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean limitReached;
+    private boolean cancelled;
+    private CancellationToken cancellationToken;
+    private Map<String, Integer> solution;
+
+    // Work queue of nodes whose domain or mates changed
+    private int[] queue;
+    private int queueHead;
+    private int queueTail;
+    private boolean[] queued;
+
+    /**
+     * Search state. Copied at every branch, which is cheap for boards of a few dozen nodes.
+     */
+    private static final class State {
+        final int[] domain;
+        final int[] mates;      // bitmask over positions in neighbors[node]
+        final int[] pairedWith; // committed mate, or -1
+        final int[] supply;     // remaining count per domino type
+
+        State(int[] domain, int[] mates, int[] pairedWith, int[] supply) {
+            this.domain = domain;
+            this.mates = mates;
+            this.pairedWith = pairedWith;
+            this.supply = supply;
+        }
+
+        State copy() {
+            return new State(domain.clone(), mates.clone(), pairedWith.clone(), supply.clone());
+        }
+    }
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public PropagationSolver(JsonNode puzzle) {
+        this(PipsPuzzle.fromJson(puzzle));
+    }
+
+    public PropagationSolver(PipsPuzzle puzzle) {
+        this.puzzle = puzzle;
+        this.n = puzzle.size();
+        this.regions = puzzle.getRegions();
+        this.neighbors = new int[n][];
+        for (int i = 0; i < n; i++) {
+            neighbors[i] = puzzle.getNeighbors(i);
+        }
+        readDominoes();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        JsonNode input = new ObjectMapper().readTree(new File(file));
+        for (JsonNode puzzle : input.get("pips_medium_puzzles")) {
+            System.out.println("Propagation Solver is running...");
+            long start = System.currentTimeMillis();
+            PropagationSolver solver = new PropagationSolver(puzzle);
+            SolveResult<Map<String, Integer>> result = solver.solve(Long.MAX_VALUE);
+            long end = System.currentTimeMillis();
+            System.out.println(result.status() + " " + (result.firstSolution() != null ? new TreeMap<>(result.firstSolution()) : ""));
+            System.out.println("Nodes: " + result.nodesVisited() + ", choice points: " + solver.getChoicePoints()
+                    + ", propagator runs: " + solver.getPropagations());
+            System.out.println("Propagation Solver finished in " + (end - start) + " ms.\n");
+        }
+    }
+
+    private void readDominoes() {
+        for (int[] row : typeOf) {
+            Arrays.fill(row, -1);
+        }
+        List<Integer> supply = new ArrayList<>();
+        for (Domino domino : puzzle.getDominoes()) {
+            int a = domino.pip1();
+            int b = domino.pip2();
+            if (typeOf[a][b] < 0) {
+                typeOf[a][b] = typeOf[b][a] = dominoTypes.size();
+                dominoTypes.add(new int[]{Math.min(a, b), Math.max(a, b)});
+                supply.add(0);
+            }
+            supply.set(typeOf[a][b], supply.get(typeOf[a][b]) + 1);
+        }
+        initialSupply = supply.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    public SolveResult<Map<String, Integer>> solve(long nodeBudget) {
+        return solve(nodeBudget, null);
+    }
+
+    public SolveResult<Map<String, Integer>> solve(Duration budget) {
+        return solve(Long.MAX_VALUE, budget);
+    }
+
+    private SolveResult<Map<String, Integer>> solve(long nodeBudget, Duration budget) {
+        nodeLimit = nodeBudget;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+        nodeCount = 0;
+        choicePoints = 0;
+        propagations = 0;
+        limitReached = false;
+        cancelled = false;
+        solution = null;
+
+        queue = new int[n + 1];
+        queued = new boolean[n];
+
+        int[] domain = new int[n];
+        int[] mates = new int[n];
+        int[] pairedWith = new int[n];
+        Arrays.fill(domain, FULL_DOMAIN);
+        Arrays.fill(pairedWith, -1);
+        for (int i = 0; i < n; i++) {
+            mates[i] = (1 << neighbors[i].length) - 1;
+        }
+        State root = new State(domain, mates, pairedWith, initialSupply.clone());
+
+        boolean consistent = n % 2 == 0 && n == 2 * Arrays.stream(initialSupply).sum();
+        if (consistent) {
+            for (int i = 0; i < n; i++) {
+                enqueue(i);
+            }
+            consistent = propagate(root);
+        }
+        if (consistent) {
+            search(root);
+        }
+
+        if (solution != null) {
+            return new SolveResult<>(SolveStatus.SOLVED, List.of(solution), nodeCount, 0);
+        }
+        if (cancelled) {
+            return new SolveResult<>(SolveStatus.CANCELLED, List.of(), nodeCount, -1);
+        }
+        if (limitReached) {
+            return new SolveResult<>(SolveStatus.BUDGET_EXHAUSTED, List.of(), nodeCount, -1);
+        }
+        return new SolveResult<>(SolveStatus.UNSAT, List.of(), nodeCount, 0);
+    }
+
+    public long getChoicePoints() {
+        return choicePoints;
+    }
+
+    public long getPropagations() {
+        return propagations;
+    }
+
+    private boolean search(State state) {
+        if (++nodeCount > nodeLimit || ((nodeCount & CHECK_INTERVAL) == 0 && isStopRequested())) {
+            limitReached = true;
+            return false;
+        }
+
+        // Branch on the smallest domain first; once all values are fixed, on the node with fewest mates
+        int branchNode = -1;
+        int bestSize = Integer.MAX_VALUE;
+        boolean onValues = false;
+        for (int i = 0; i < n; i++) {
+            if (state.pairedWith[i] >= 0) {
+                continue;
+            }
+            int size = Integer.bitCount(state.domain[i]);
+            if (size > 1 && (!onValues || size < bestSize)) {
+                branchNode = i;
+                bestSize = size;
+                onValues = true;
+            } else if (!onValues && Integer.bitCount(state.mates[i]) < bestSize) {
+                branchNode = i;
+                bestSize = Integer.bitCount(state.mates[i]);
+            }
+        }
+
+        if (branchNode < 0) {
+            solution = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                solution.put(puzzle.getNode(i), Integer.numberOfTrailingZeros(state.domain[i]));
+            }
+            return true;
+        }
+
+        choicePoints++;
+        int options = onValues ? state.domain[branchNode] : state.mates[branchNode];
+        for (int bits = options; bits != 0; bits &= bits - 1) {
+            int option = Integer.numberOfTrailingZeros(bits);
+            State child = state.copy();
+            boolean consistent;
+            if (onValues) {
+                consistent = narrow(child, branchNode, 1 << option);
+            } else {
+                consistent = keepOnlyMate(child, branchNode, option);
+            }
+            if (consistent && propagate(child) && search(child)) {
+                return true;
+            }
+            if (limitReached) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStopRequested() {
+        if (CancellationToken.shouldStop(cancellationToken)) {
+            cancelled = true;
+            return true;
+        }
+        return hasDeadline && System.nanoTime() - deadline > 0;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Propagation
+    // ---------------------------------------------------------------------------------------------
+
+    private void enqueue(int node) {
+        if (!queued[node]) {
+            queued[node] = true;
+            queue[queueTail] = node;
+            queueTail = (queueTail + 1) % queue.length;
+        }
+    }
+
+    private void clearQueue() {
+        while (queueHead != queueTail) {
+            queued[queue[queueHead]] = false;
+            queueHead = (queueHead + 1) % queue.length;
+        }
+    }
+
+    /**
+     * Runs the propagators until no domain or mate set changes.
+     *
+     * @return false if some node has no value or mate left
+     */
+    private boolean propagate(State state) {
+        do {
+            while (queueHead != queueTail) {
+                int node = queue[queueHead];
+                queueHead = (queueHead + 1) % queue.length;
+                queued[node] = false;
+                propagations++;
+
+                for (int region : puzzle.getRegionsOfNode(node)) {
+                    if (!propagateRegion(state, regions.get(region))) {
+                        clearQueue();
+                        return false;
+                    }
+                }
+                if (!propagatePairing(state, node)) {
+                    clearQueue();
+                    return false;
+                }
+                for (int neighbor : neighbors[node]) {
+                    if (!propagatePairing(state, neighbor)) {
+                        clearQueue();
+                        return false;
+                    }
+                }
+            }
+            if (!propagateSupply(state)) {
+                clearQueue();
+                return false;
+            }
+        } while (queueHead != queueTail);
+        return true;
+    }
+
+    private boolean narrow(State state, int node, int newDomain) {
+        if (newDomain == state.domain[node]) {
+            return true;
+        }
+        if (newDomain == 0) {
+            return false;
+        }
+        state.domain[node] = newDomain;
+        enqueue(node);
+        return true;
+    }
+
+    private boolean propagateRegion(State state, RegionConstraint region) {
+        int[] cells = region.cells();
+        if (region instanceof RegionConstraint.AllEqual) {
+            int common = FULL_DOMAIN;
+            for (int cell : cells) {
+                common &= state.domain[cell];
+            }
+            for (int cell : cells) {
+                if (!narrow(state, cell, common)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (region instanceof RegionConstraint.AllDifferent) {
+            // Values fixed on one cell are removed from the others; fewer values than cells is a dead end
+            int union = 0;
+            for (int cell : cells) {
+                union |= state.domain[cell];
+                if (Integer.bitCount(state.domain[cell]) != 1) {
+                    continue;
+                }
+                for (int other : cells) {
+                    if (other != cell && !narrow(state, other, state.domain[other] & ~state.domain[cell])) {
+                        return false;
+                    }
+                }
+            }
+            return Integer.bitCount(union) >= cells.length;
+        }
+
+        int low = 0;
+        int high = 0;
+        for (int cell : cells) {
+            low += minValue(state.domain[cell]);
+            high += maxValue(state.domain[cell]);
+        }
+        // Allowed range of the region's total
+        int minTotal;
+        int maxTotal;
+        if (region instanceof RegionConstraint.SumEquals sum) {
+            minTotal = sum.target();
+            maxTotal = sum.target();
+        } else if (region instanceof RegionConstraint.Less less) {
+            minTotal = 0;
+            maxTotal = less.target() - 1;
+        } else if (region instanceof RegionConstraint.Greater greater) {
+            minTotal = greater.target() + 1;
+            maxTotal = Integer.MAX_VALUE;
+        } else {
+            return true;
+        }
+        if (high < minTotal || low > maxTotal) {
+            return false;
+        }
+        if (region instanceof RegionConstraint.SumEquals && MAX_VALUE * cells.length < Long.SIZE) {
+            return propagateExactSum(state, cells, minTotal);
+        }
+        for (int cell : cells) {
+            int othersLow = low - minValue(state.domain[cell]);
+            int othersHigh = high - maxValue(state.domain[cell]);
+            int keep = rangeMask(minTotal - othersHigh, maxTotal == Integer.MAX_VALUE ? MAX_VALUE : maxTotal - othersLow);
+            if (!narrow(state, cell, state.domain[cell] & keep)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps only the values that appear in some combination adding up to the target, using
+     * bitsets of the sums reachable by the cells before and after each cell.
+     */
+    private boolean propagateExactSum(State state, int[] cells, int target) {
+        int k = cells.length;
+        long[] prefix = new long[k + 1];
+        long[] suffix = new long[k + 1];
+        prefix[0] = 1;
+        suffix[k] = 1;
+        for (int i = 0; i < k; i++) {
+            prefix[i + 1] = addValues(prefix[i], state.domain[cells[i]]);
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            suffix[i] = addValues(suffix[i + 1], state.domain[cells[i]]);
+        }
+        if ((prefix[k] >>> target & 1) == 0) {
+            return false;
+        }
+        for (int i = 0; i < k; i++) {
+            // Sums reachable by all the other cells
+            long others = 0;
+            for (long bits = prefix[i]; bits != 0; bits &= bits - 1) {
+                others |= suffix[i + 1] << Long.numberOfTrailingZeros(bits);
+            }
+            int keep = 0;
+            for (int v = 0; v <= MAX_VALUE && v <= target; v++) {
+                if ((others >>> (target - v) & 1) != 0) {
+                    keep |= 1 << v;
+                }
+            }
+            if (!narrow(state, cells[i], state.domain[cells[i]] & keep)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long addValues(long sums, int domain) {
+        long result = 0;
+        for (int bits = domain; bits != 0; bits &= bits - 1) {
+            result |= sums << Integer.numberOfTrailingZeros(bits);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the values and mates of a node that no remaining domino supports, and commits the
+     * domino once both ends of a pair are fixed.
+     */
+    private boolean propagatePairing(State state, int node) {
+        if (state.pairedWith[node] >= 0) {
+            return true;
+        }
+        int supported = 0;
+        int[] nodeNeighbors = neighbors[node];
+        for (int bits = state.mates[node]; bits != 0; bits &= bits - 1) {
+            int slot = Integer.numberOfTrailingZeros(bits);
+            int mate = nodeNeighbors[slot];
+            int values = supportedValues(state, state.domain[node], state.domain[mate]);
+            if (values == 0) {
+                removeMate(state, node, slot);
+            }
+            supported |= values;
+        }
+        if (state.mates[node] == 0 || !narrow(state, node, state.domain[node] & supported)) {
+            return false;
+        }
+
+        if (Integer.bitCount(state.mates[node]) == 1) {
+            int mate = nodeNeighbors[Integer.numberOfTrailingZeros(state.mates[node])];
+            if (!forcePair(state, node, mate)) {
+                return false;
+            }
+            if (Integer.bitCount(state.domain[node]) == 1 && Integer.bitCount(state.domain[mate]) == 1) {
+                int type = typeOf[Integer.numberOfTrailingZeros(state.domain[node])][Integer.numberOfTrailingZeros(state.domain[mate])];
+                if (type < 0 || state.supply[type] == 0) {
+                    return false;
+                }
+                state.supply[type]--;
+                state.pairedWith[node] = mate;
+                state.pairedWith[mate] = node;
+                if (state.supply[type] == 0) {
+                    // The last copy is gone, so nodes that relied on its pips need another look
+                    int pips = (1 << dominoTypes.get(type)[0]) | (1 << dominoTypes.get(type)[1]);
+                    for (int i = 0; i < n; i++) {
+                        if (state.pairedWith[i] < 0 && (state.domain[i] & pips) != 0) {
+                            enqueue(i);
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Values of the first node for which some remaining domino fits with the second node's domain
+    private int supportedValues(State state, int domain, int mateDomain) {
+        int result = 0;
+        for (int bits = domain; bits != 0; bits &= bits - 1) {
+            int a = Integer.numberOfTrailingZeros(bits);
+            for (int other = mateDomain; other != 0; other &= other - 1) {
+                int type = typeOf[a][Integer.numberOfTrailingZeros(other)];
+                if (type >= 0 && state.supply[type] > 0) {
+                    result |= 1 << a;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeMate(State state, int node, int slot) {
+        int mate = neighbors[node][slot];
+        state.mates[node] &= ~(1 << slot);
+        int back = slotOf(mate, node);
+        if (back >= 0 && (state.mates[mate] & (1 << back)) != 0) {
+            state.mates[mate] &= ~(1 << back);
+            enqueue(mate);
+        }
+        enqueue(node);
+    }
+
+    // The node's only possible mate must take it as its own only mate
+    private boolean forcePair(State state, int node, int mate) {
+        int keepSlot = slotOf(mate, node);
+        for (int bits = state.mates[mate] & ~(1 << keepSlot); bits != 0; bits &= bits - 1) {
+            removeMate(state, mate, Integer.numberOfTrailingZeros(bits));
+        }
+        return state.mates[mate] != 0;
+    }
+
+    private boolean keepOnlyMate(State state, int node, int slot) {
+        if ((state.mates[node] & (1 << slot)) == 0) {
+            return false;
+        }
+        for (int bits = state.mates[node] & ~(1 << slot); bits != 0; bits &= bits - 1) {
+            removeMate(state, node, Integer.numberOfTrailingZeros(bits));
+        }
+        return true;
+    }
+
+    /**
+     * Checks the domino multiset against the board: every pip value that fixed nodes still need must
+     * be available, and every remaining domino type needs at least as many places to go as copies.
+     * A single domino with a single possible place is laid there.
+     */
+    private boolean propagateSupply(State state) {
+        int[] needed = new int[MAX_VALUE + 1];
+        for (int i = 0; i < n; i++) {
+            if (state.pairedWith[i] < 0 && Integer.bitCount(state.domain[i]) == 1) {
+                needed[Integer.numberOfTrailingZeros(state.domain[i])]++;
+            }
+        }
+        int[] available = new int[MAX_VALUE + 1];
+        for (int type = 0; type < dominoTypes.size(); type++) {
+            available[dominoTypes.get(type)[0]] += state.supply[type];
+            available[dominoTypes.get(type)[1]] += state.supply[type];
+        }
+        for (int v = 0; v <= MAX_VALUE; v++) {
+            if (needed[v] > available[v]) {
+                return false;
+            }
+        }
+
+        for (int type = 0; type < dominoTypes.size(); type++) {
+            if (state.supply[type] == 0) {
+                continue;
+            }
+            int a = dominoTypes.get(type)[0];
+            int b = dominoTypes.get(type)[1];
+            int places = 0;
+            int lastNode = -1;
+            int lastSlot = -1;
+            for (int node = 0; node < n && places <= state.supply[type]; node++) {
+                if (state.pairedWith[node] >= 0) {
+                    continue;
+                }
+                for (int bits = state.mates[node]; bits != 0; bits &= bits - 1) {
+                    int slot = Integer.numberOfTrailingZeros(bits);
+                    int mate = neighbors[node][slot];
+                    if (mate < node) {
+                        continue;
+                    }
+                    if (fits(state, node, mate, a, b) || fits(state, node, mate, b, a)) {
+                        places++;
+                        lastNode = node;
+                        lastSlot = slot;
+                    }
+                }
+            }
+            if (places < state.supply[type]) {
+                return false;
+            }
+            if (places == 1) {
+                int mate = neighbors[lastNode][lastSlot];
+                int nodeValues = (fits(state, lastNode, mate, a, b) ? 1 << a : 0) | (fits(state, lastNode, mate, b, a) ? 1 << b : 0);
+                int mateValues = (fits(state, lastNode, mate, a, b) ? 1 << b : 0) | (fits(state, lastNode, mate, b, a) ? 1 << a : 0);
+                if (!keepOnlyMate(state, lastNode, lastSlot)
+                        || !narrow(state, lastNode, state.domain[lastNode] & nodeValues)
+                        || !narrow(state, mate, state.domain[mate] & mateValues)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean fits(State state, int node, int mate, int nodeValue, int mateValue) {
+        return (state.domain[node] & (1 << nodeValue)) != 0 && (state.domain[mate] & (1 << mateValue)) != 0;
+    }
+
+    private int slotOf(int node, int neighbor) {
+        int[] nodeNeighbors = neighbors[node];
+        for (int slot = 0; slot < nodeNeighbors.length; slot++) {
+            if (nodeNeighbors[slot] == neighbor) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static int minValue(int domain) {
+        return Integer.numberOfTrailingZeros(domain);
+    }
+
+    private static int maxValue(int domain) {
+        return 31 - Integer.numberOfLeadingZeros(domain);
+    }
+
+    private static int rangeMask(int low, int high) {
+        low = Math.max(low, 0);
+        high = Math.min(high, MAX_VALUE);
+        if (low > high) {
+            return 0;
+        }
+        return ((1 << (high + 1)) - 1) & ~((1 << low) - 1);
+    }
+}
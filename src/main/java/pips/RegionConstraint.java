@@ -0,0 +1,274 @@
+package pips;
+
+import java.util.Arrays;
+
+/**
+ * A region of the board and the rule its pips must follow, over node indices of a PipsPuzzle.
+ *
+ * Constraints are checked against an array of values indexed by node, where UNASSIGNED marks an
+ * empty node. isConsistent() is exact once every cell of the region has a value, and before that
+ * only rejects assignments that no choice of pips for the empty cells could complete.
+ * Constraints compare, hash and print by the contents of their cells rather than the array.
+ */
+public sealed interface RegionConstraint {
+
+    int UNASSIGNED = -1;
+    int MAX_VALUE = MathExpressionEvaluator.MAX_DOMINO_VALUE;
+
+    int[] cells();
+
+    boolean isConsistent(int[] values);
+
+    /**
+     * @return the region type as written in the NYT puzzle files: sum, less, greater, equals, unequal or empty
+     */
+    String type();
+
+    /**
+     * @param type Region type as written in the NYT puzzle files
+     * @param cells Node indices of the region
+     * @param target Target of sum, less and greater regions, ignored otherwise
+     * @throws IllegalArgumentException for an unknown type, or a missing target
+     */
+    static RegionConstraint of(String type, int[] cells, Integer target) {
+        switch (type) {
+            case "equals":
+                return new AllEqual(cells);
+            case "unequal":
+                return new AllDifferent(cells);
+            case "empty":
+                return new Any(cells);
+            default:
+                break;
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Region of type " + type + " needs a target");
+        }
+        return switch (type) {
+            case "sum" -> new SumEquals(cells, target);
+            case "less" -> new Less(cells, target);
+            case "greater" -> new Greater(cells, target);
+            default -> throw new IllegalArgumentException("Unknown region type: " + type);
+        };
+    }
+
+    /**
+     * The pips of the region add up to target.
+     */
+    record SumEquals(int[] cells, int target) implements RegionConstraint {
+        @Override
+        public boolean isConsistent(int[] values) {
+            int sum = 0;
+            int empty = 0;
+            for (int cell : cells) {
+                if (values[cell] == UNASSIGNED) {
+                    empty++;
+                } else {
+                    sum += values[cell];
+                }
+            }
+            return sum <= target && target <= sum + MAX_VALUE * empty;
+        }
+
+        @Override
+        public String type() {
+            return "sum";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SumEquals other && target == other.target && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(cells) + target;
+        }
+
+        @Override
+        public String toString() {
+            return "SumEquals[cells=" + Arrays.toString(cells) + ", target=" + target + "]";
+        }
+    }
+
+    /**
+     * The pips of the region add up to less than target.
+     */
+    record Less(int[] cells, int target) implements RegionConstraint {
+        @Override
+        public boolean isConsistent(int[] values) {
+            int sum = 0;
+            for (int cell : cells) {
+                if (values[cell] != UNASSIGNED) {
+                    sum += values[cell];
+                }
+            }
+            return sum < target;
+        }
+
+        @Override
+        public String type() {
+            return "less";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Less other && target == other.target && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(cells) + target;
+        }
+
+        @Override
+        public String toString() {
+            return "Less[cells=" + Arrays.toString(cells) + ", target=" + target + "]";
+        }
+    }
+
+    /**
+     * The pips of the region add up to more than target.
+     */
+    record Greater(int[] cells, int target) implements RegionConstraint {
+        @Override
+        public boolean isConsistent(int[] values) {
+            int sum = 0;
+            for (int cell : cells) {
+                sum += values[cell] == UNASSIGNED ? MAX_VALUE : values[cell];
+            }
+            return sum > target;
+        }
+
+        @Override
+        public String type() {
+            return "greater";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Greater other && target == other.target && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(cells) + target;
+        }
+
+        @Override
+        public String toString() {
+            return "Greater[cells=" + Arrays.toString(cells) + ", target=" + target + "]";
+        }
+    }
+
+    /**
+     * Every cell of the region shows the same pips.
+     */
+    record AllEqual(int[] cells) implements RegionConstraint {
+        @Override
+        public boolean isConsistent(int[] values) {
+            int seen = UNASSIGNED;
+            for (int cell : cells) {
+                if (values[cell] != UNASSIGNED) {
+                    if (seen != UNASSIGNED && seen != values[cell]) {
+                        return false;
+                    }
+                    seen = values[cell];
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String type() {
+            return "equals";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof AllEqual other && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(cells);
+        }
+
+        @Override
+        public String toString() {
+            return "AllEqual[cells=" + Arrays.toString(cells) + "]";
+        }
+    }
+
+    /**
+     * No two cells of the region show the same pips.
+     */
+    record AllDifferent(int[] cells) implements RegionConstraint {
+        @Override
+        public boolean isConsistent(int[] values) {
+            if (cells.length > MAX_VALUE + 1) {
+                return false;
+            }
+            int seen = 0;
+            for (int cell : cells) {
+                if (values[cell] != UNASSIGNED) {
+                    if ((seen & 1 << values[cell]) != 0) {
+                        return false;
+                    }
+                    seen |= 1 << values[cell];
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String type() {
+            return "unequal";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof AllDifferent other && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(cells);
+        }
+
+        @Override
+        public String toString() {
+            return "AllDifferent[cells=" + Arrays.toString(cells) + "]";
+        }
+    }
+
+    /**
+     * Any pips are allowed.
+     */
+    record Any(int[] cells) implements RegionConstraint {
+        @Override
+        public boolean isConsistent(int[] values) {
+            return true;
+        }
+
+        @Override
+        public String type() {
+            return "empty";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Any other && Arrays.equals(cells, other.cells);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(cells);
+        }
+
+        @Override
+        public String toString() {
+            return "Any[cells=" + Arrays.toString(cells) + "]";
+        }
+    }
+}
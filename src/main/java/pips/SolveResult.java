@@ -0,0 +1,24 @@
+package pips;
+
+import java.util.List;
+
+/**
+ * Result of a budgeted solve. When the budget runs out the solutions found so far are kept,
+ * so callers can still use a partial answer.
+ *
+ * @param status How the search ended
+ * @param solutions Solutions found before the search ended, possibly empty
+ * @param nodesVisited Number of search nodes visited
+ * @param estimatedRemainingNodes Estimated nodes left to search, 0 when finished and -1 when unknown
+ * @param <T> Solution representation of the engine
+ */
+public record SolveResult<T>(SolveStatus status, List<T> solutions, long nodesVisited, long estimatedRemainingNodes) {
+
+    public T firstSolution() {
+        return solutions.isEmpty() ? null : solutions.get(0);
+    }
+
+    public boolean isFinished() {
+        return status != SolveStatus.BUDGET_EXHAUSTED;
+    }
+}
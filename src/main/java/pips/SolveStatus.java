@@ -0,0 +1,15 @@
+package pips;
+
+/**
+ * Outcome of a budgeted solve.
+ */
+public enum SolveStatus {
+    /** The search finished and found at least one solution. */
+    SOLVED,
+    /** The search finished and proved that no solution exists. */
+    UNSAT,
+    /** The node or time budget ran out before the search finished. */
+    BUDGET_EXHAUSTED,
+    /** The search was stopped through its cancellation token or by interrupting the thread. */
+    CANCELLED
+}
@@ -0,0 +1,266 @@
+package pips;
+
+import java.util.Arrays;
+
+/**
+ * Checks whether the cells that are still empty can be covered by dominoes at all, ignoring pips.
+ *
+ * Cells are filled and emptied as the search places and removes dominoes. isTileable() first
+ * checks that every connected component of empty cells has an even number of cells, and as many
+ * cells of each colour when the board graph is bipartite (a grid always is). It then keeps a
+ * maximum matching between the two colours: filling a cell only frees its mate, so the matching
+ * is repaired with Hopcroft-Karp phases from the few unmatched cells instead of being rebuilt.
+ * For boards whose graph is not bipartite only the parity check is applied.
+ */
+public class TilingChecker {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final int[][] neighbors;
+    private final int n;
+    private final int[] color;
+    private final boolean bipartite;
+    private final boolean[] filled;
+    private final int[] mate;
+    private int empty;
+    private int matchedPairs;
+
+    // Scratch space, reused between calls
+    private final int[] queue;
+    private final int[] visited;
+    private int visitStamp;
+    private final int[] layer;
+
+    /**
+     * @param neighbors Neighbouring cells of every cell, as indices
+     */
+    public TilingChecker(int[][] neighbors) {
+        this.neighbors = neighbors;
+        this.n = neighbors.length;
+        this.color = new int[n];
+        this.filled = new boolean[n];
+        this.mate = new int[n];
+        this.queue = new int[n];
+        this.visited = new int[n];
+        this.layer = new int[n];
+        this.empty = n;
+        Arrays.fill(mate, -1);
+        this.bipartite = colourBoard();
+    }
+
+    private boolean colourBoard() {
+        Arrays.fill(color, -1);
+        for (int start = 0; start < n; start++) {
+            if (color[start] >= 0) {
+                continue;
+            }
+            color[start] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int next : neighbors[cell]) {
+                    if (color[next] < 0) {
+                        color[next] = 1 - color[cell];
+                        queue[tail++] = next;
+                    } else if (color[next] == color[cell]) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public void fill(int cell) {
+        if (filled[cell]) {
+            return;
+        }
+        filled[cell] = true;
+        empty--;
+        int partner = mate[cell];
+        if (partner >= 0) {
+            mate[partner] = -1;
+            mate[cell] = -1;
+            matchedPairs--;
+        }
+    }
+
+    public void unfill(int cell) {
+        if (!filled[cell]) {
+            return;
+        }
+        filled[cell] = false;
+        empty++;
+    }
+
+    public boolean isFilled(int cell) {
+        return filled[cell];
+    }
+
+    /**
+     * @return false if the empty cells certainly cannot be tiled with dominoes
+     */
+    public boolean isTileable() {
+        if (empty % 2 != 0 || !componentsBalanced()) {
+            return false;
+        }
+        return !bipartite || repairMatching() == empty / 2;
+    }
+
+    /**
+     * Every component of empty cells must have an even size and, on a bipartite board, as many
+     * cells of one colour as of the other.
+     */
+    private boolean componentsBalanced() {
+        int stamp = ++visitStamp;
+        for (int start = 0; start < n; start++) {
+            if (!filled[start] && visited[start] != stamp && !isBalanced(componentOf(start, stamp))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Explains the last failed isTileable(): some component of empty cells cannot be tiled on its
+     * own, and as long as the cells around it stay filled, no domino placed elsewhere can help it.
+     * Call it right after isTileable() returned false, before filling or emptying cells.
+     *
+     * @return the filled cells bordering that component
+     */
+    public int[] untileableBoundary() {
+        int stamp = ++visitStamp;
+        for (int start = 0; start < n; start++) {
+            if (!filled[start] && visited[start] != stamp) {
+                int size = componentOf(start, stamp);
+                if (!isBalanced(size)) {
+                    return boundaryOf(size);
+                }
+            }
+        }
+        // Balanced everywhere, so the maximum matching left a cell unmatched; the matching is
+        // maximum within each component as well, so that cell's component has no perfect matching
+        for (int cell = 0; cell < n; cell++) {
+            if (!filled[cell] && mate[cell] < 0) {
+                return boundaryOf(componentOf(cell, ++visitStamp));
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Breadth-first search over the empty cells from start, marking them with stamp.
+     *
+     * @return the size of the component, whose cells are left at the front of queue
+     */
+    private int componentOf(int start, int stamp) {
+        visited[start] = stamp;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int next : neighbors[cell]) {
+                if (!filled[next] && visited[next] != stamp) {
+                    visited[next] = stamp;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    // For the component just found by componentOf()
+    private boolean isBalanced(int size) {
+        int balance = 0;
+        for (int i = 0; i < size; i++) {
+            balance += color[queue[i]] == 0 ? 1 : -1;
+        }
+        return size % 2 == 0 && (!bipartite || balance == 0);
+    }
+
+    // Filled neighbours of the component just found by componentOf()
+    private int[] boundaryOf(int size) {
+        boolean[] seen = new boolean[n];
+        int[] boundary = new int[n];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            for (int next : neighbors[queue[i]]) {
+                if (filled[next] && !seen[next]) {
+                    seen[next] = true;
+                    boundary[count++] = next;
+                }
+            }
+        }
+        return Arrays.copyOf(boundary, count);
+    }
+
+    /**
+     * Grows the matching with Hopcroft-Karp phases until no augmenting path is left.
+     *
+     * @return the size of the maximum matching on the empty cells
+     */
+    private int repairMatching() {
+        while (matchedPairs < empty / 2 && buildLayers()) {
+            for (int cell = 0; cell < n; cell++) {
+                if (!filled[cell] && color[cell] == 0 && mate[cell] < 0 && augment(cell)) {
+                    matchedPairs++;
+                }
+            }
+        }
+        return matchedPairs;
+    }
+
+    /**
+     * Breadth-first layering from the unmatched cells of colour 0.
+     *
+     * @return true if some augmenting path exists
+     */
+    private boolean buildLayers() {
+        int head = 0;
+        int tail = 0;
+        for (int cell = 0; cell < n; cell++) {
+            if (!filled[cell] && color[cell] == 0 && mate[cell] < 0) {
+                layer[cell] = 0;
+                queue[tail++] = cell;
+            } else {
+                layer[cell] = UNREACHED;
+            }
+        }
+        boolean found = false;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int next : neighbors[cell]) {
+                if (filled[next]) {
+                    continue;
+                }
+                int partner = mate[next];
+                if (partner < 0) {
+                    found = true;
+                } else if (layer[partner] == UNREACHED) {
+                    layer[partner] = layer[cell] + 1;
+                    queue[tail++] = partner;
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean augment(int cell) {
+        for (int next : neighbors[cell]) {
+            if (filled[next]) {
+                continue;
+            }
+            int partner = mate[next];
+            if (partner < 0 || (layer[partner] == layer[cell] + 1 && augment(partner))) {
+                mate[cell] = next;
+                mate[next] = cell;
+                return true;
+            }
+        }
+        layer[cell] = UNREACHED;
+        return false;
+    }
+}
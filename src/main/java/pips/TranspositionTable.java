@@ -0,0 +1,80 @@
+package pips;
+
+/**
+ * Bounded set of 64-bit state hashes, used to remember search states that are known to have no
+ * solution.
+ *
+ * Hashes live in a fixed array of small buckets, so memory use does not grow with the search;
+ * when a bucket is full the oldest entry in it is overwritten. Forgetting a dead state only
+ * costs a re-search. Buckets are guarded by a fixed number of striped locks, so one table can be
+ * shared by several solvers working on the same puzzle in parallel.
+ */
+public class TranspositionTable {
+
+    private static final int BUCKET_SIZE = 4;
+    private static final int STRIPES = 64;
+
+    private final long[] entries;
+    private final byte[] nextVictim;
+    private final int bucketMask;
+    private final Object[] locks = new Object[STRIPES];
+
+    /**
+     * @param capacity Maximum number of hashes kept, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(capacity / BUCKET_SIZE, 1) * 2 - 1);
+        this.entries = new long[buckets * BUCKET_SIZE];
+        this.nextVictim = new byte[buckets];
+        this.bucketMask = buckets - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public boolean contains(long hash) {
+        long key = nonZero(hash);
+        int bucket = bucketOf(key);
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            int start = bucket * BUCKET_SIZE;
+            for (int i = start; i < start + BUCKET_SIZE; i++) {
+                if (entries[i] == key) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void add(long hash) {
+        long key = nonZero(hash);
+        int bucket = bucketOf(key);
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            int start = bucket * BUCKET_SIZE;
+            for (int i = start; i < start + BUCKET_SIZE; i++) {
+                if (entries[i] == key) {
+                    return;
+                }
+                if (entries[i] == 0) {
+                    entries[i] = key;
+                    return;
+                }
+            }
+            entries[start + nextVictim[bucket]] = key;
+            nextVictim[bucket] = (byte) ((nextVictim[bucket] + 1) % BUCKET_SIZE);
+        }
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    private int bucketOf(long key) {
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+
+    // 0 marks an empty slot
+    private static long nonZero(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
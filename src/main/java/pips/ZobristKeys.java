@@ -0,0 +1,60 @@
+package pips;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of a partial Pips solution. A state hash is the XOR of the keys
+ * of its parts, so placing or removing a domino updates it with a few XORs:
+ * - cellValue(node, value) for every filled node
+ * - dominoCount(low, high, count) for the number of dominoes of each type still available
+ * - nextNode(node) for the node the search continues from
+ *
+ * Keys depend only on the sizes and the seed, so solvers built with the same arguments for the same
+ * puzzle produce the same hashes and can share a TranspositionTable.
+ */
+public class ZobristKeys {
+
+    private final int values;
+    private final long[][] cellValue;
+    private final long[][] dominoCount;
+    private final long[] nextNode;
+
+    /**
+     * @param nodes Number of nodes on the board
+     * @param maxValue Highest pip value
+     * @param maxCount Highest number of dominoes of a single type
+     * @param seed Seed for the keys
+     */
+    public ZobristKeys(int nodes, int maxValue, int maxCount, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        this.values = maxValue + 1;
+        this.cellValue = new long[nodes][values];
+        this.dominoCount = new long[values * values][maxCount + 1];
+        this.nextNode = new long[nodes];
+        for (long[] keys : cellValue) {
+            fill(keys, random);
+        }
+        for (long[] keys : dominoCount) {
+            fill(keys, random);
+        }
+        fill(nextNode, random);
+    }
+
+    private static void fill(long[] keys, SplittableRandom random) {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    public long cellValue(int node, int value) {
+        return cellValue[node][value];
+    }
+
+    public long dominoCount(int pip1, int pip2, int count) {
+        return dominoCount[Math.min(pip1, pip2) * values + Math.max(pip1, pip2)][count];
+    }
+
+    public long nextNode(int node) {
+        return nextNode[node];
+    }
+}
@@ -0,0 +1,64 @@
+package pips_dlx;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes solutions as compact big-endian records:
+ * puzzle index (short), number of placements (short), then per placement the node and peer
+ * indices in DLXPipsSolver.getNodes() (short each), the pips (byte, nodePip in the high four
+ * bits) and the domino index (short). The seven bytes of every row are encoded once, up front.
+ */
+public class BinarySolutionSink implements SolutionSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    static final int PLACEMENT_BYTES = 7;
+
+    private final DataOutputStream out;
+    private final int puzzle;
+    private final byte[][] rowBytes;
+
+    /**
+     * @param nodes Nodes of the puzzle, in column order, see DLXPipsSolver.getNodes()
+     * @param rows Placement of every row of the matrix, see DLXPipsSolver.getPlacements()
+     * @param puzzle Index of the puzzle, written in every record
+     */
+    public BinarySolutionSink(OutputStream out, List<String> nodes, List<Placement> rows, int puzzle) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        this.puzzle = puzzle;
+        Map<String, Integer> nodeIndex = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeIndex.put(nodes.get(i), i);
+        }
+        this.rowBytes = new byte[rows.size()][];
+        for (int r = 0; r < rowBytes.length; r++) {
+            Placement placement = rows.get(r);
+            rowBytes[r] = ByteBuffer.allocate(PLACEMENT_BYTES)
+                    .putShort(nodeIndex.get(placement.node()).shortValue())
+                    .putShort(nodeIndex.get(placement.peer()).shortValue())
+                    .put((byte) (placement.nodePip() << 4 | placement.peerPip()))
+                    .putShort((short) placement.dominoIndex())
+                    .array();
+        }
+    }
+
+    @Override
+    public void accept(int[] rows) throws IOException {
+        out.writeShort(puzzle);
+        out.writeShort(rows.length);
+        for (int r : rows) {
+            out.write(rowBytes[r]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
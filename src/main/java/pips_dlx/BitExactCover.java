@@ -0,0 +1,427 @@
+package pips_dlx;
+
+import pips.CancellationToken;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_jfr.SearchEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Exact cover for matrices of at most 128 columns, with bit operations instead of links.
+ *
+ * Each row is a pair of long masks over the columns, and each column a bitset over the rows.
+ * The uncovered columns are a pair of masks passed down the search, and the rows still usable
+ * are a bitset kept per search level: choosing a row clears, with one AND NOT per word, every
+ * row that shares a column with it. Those conflict sets are computed once per row, so a search
+ * step is a handful of word operations, and backtracking is only returning to the level above.
+ *
+ * Columns are chosen like in DLX, fewest usable rows with ties going the same way, and rows are
+ * tried in the same order, so the search visits the same nodes as DLX and finds the covers in
+ * the same order.
+ */
+public class BitExactCover implements ExactCoverSolver {
+
+    public static final int MAX_COLUMNS = 128;
+
+    // Deadline, cancellation and interrupts are only polled every CHECK_INTERVAL + 1 nodes
+    private static final int CHECK_INTERVAL = 0xFF;
+
+    private final int columns;
+    private final int words;
+    // Columns of each row, as masks over columns 0-63 and 64-127
+    private final long[] rowLow;
+    private final long[] rowHigh;
+    // Rows of each column, and rows sharing a column with each row, as bitsets over the rows
+    private final long[][] columnRows;
+    private final long[][] rowConflicts;
+    // Usable rows at each search level
+    private final long[][] usable;
+
+    private final int[] chosen;
+    private int depth;
+
+    private long nodeCount;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean limitReached;
+    private boolean cancelled;
+    private boolean stopAtFirst;
+    private CancellationToken cancellationToken;
+    private PruningHook pruningHook;
+    private long prunedNodes;
+    private RowOrder rowOrder = RowOrder.MATRIX;
+    private Consumer<int[]> solutionConsumer;
+    private long solutionsFound;
+
+    /**
+     * @throws IllegalArgumentException if the matrix has more than MAX_COLUMNS columns
+     */
+    public BitExactCover(int[][] matrix) {
+        columns = matrix[0].length;
+        if (columns > MAX_COLUMNS) {
+            throw new IllegalArgumentException("BitExactCover supports at most " + MAX_COLUMNS + " columns, got " + columns);
+        }
+        int rows = matrix.length;
+        words = (rows + 63) >>> 6;
+        rowLow = new long[rows];
+        rowHigh = new long[rows];
+        columnRows = new long[columns][words];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (matrix[r][c] == 1) {
+                    if (c < 64) {
+                        rowLow[r] |= 1L << c;
+                    } else {
+                        rowHigh[r] |= 1L << (c - 64);
+                    }
+                    columnRows[c][r >>> 6] |= 1L << r;
+                }
+            }
+        }
+
+        rowConflicts = new long[rows][words];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                if (matrix[r][c] == 1) {
+                    for (int w = 0; w < words; w++) {
+                        rowConflicts[r][w] |= columnRows[c][w];
+                    }
+                }
+            }
+        }
+
+        usable = new long[columns + 1][words];
+        // Rows without a 1 can never be part of a cover
+        for (int r = 0; r < rows; r++) {
+            if ((rowLow[r] | rowHigh[r]) != 0) {
+                usable[0][r >>> 6] |= 1L << r;
+            }
+        }
+        chosen = new int[columns];
+    }
+
+    /**
+     * @return true if the matrix is small enough for this engine
+     */
+    public static boolean fits(int[][] matrix) {
+        return matrix[0].length <= MAX_COLUMNS;
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    @Override
+    public void setPruningHook(PruningHook pruningHook) {
+        this.pruningHook = pruningHook;
+    }
+
+    @Override
+    public void setRowOrder(RowOrder rowOrder) {
+        this.rowOrder = rowOrder;
+    }
+
+    @Override
+    public long getPrunedNodes() {
+        return prunedNodes;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public List<List<Integer>> solve() {
+        List<List<Integer>> solutions = new ArrayList<>();
+        forEachSolution(rows -> solutions.add(toList(rows)));
+        return solutions;
+    }
+
+    @Override
+    public List<Integer> solveFirst() {
+        return solveFirst(Long.MAX_VALUE).firstSolution();
+    }
+
+    @Override
+    public long forEachSolution(Consumer<int[]> onSolution) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        run(false, Long.MAX_VALUE, null, onSolution);
+        commitSearch(event, prunedBefore, "all", status(solutionsFound), solutionsFound);
+        return solutionsFound;
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solve(long nodeBudget) {
+        return solveLimited(false, nodeBudget, null);
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solve(Duration budget) {
+        return solveLimited(false, Long.MAX_VALUE, budget);
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solveFirst(long nodeBudget) {
+        return solveLimited(true, nodeBudget, null);
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solveFirst(Duration budget) {
+        return solveLimited(true, Long.MAX_VALUE, budget);
+    }
+
+    private SolveResult<List<Integer>> solveLimited(boolean firstOnly, long nodeBudget, Duration budget) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        List<List<Integer>> found = new ArrayList<>();
+        run(firstOnly, nodeBudget, budget, rows -> found.add(toList(rows)));
+        SolveStatus status = status(found.size());
+        commitSearch(event, prunedBefore, firstOnly ? "first" : "all", status, found.size());
+        return new SolveResult<>(status, found, nodeCount, limitReached || cancelled ? -1 : 0);
+    }
+
+    private void run(boolean firstOnly, long nodeBudget, Duration budget, Consumer<int[]> onSolution) {
+        stopAtFirst = firstOnly;
+        nodeLimit = nodeBudget;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+        nodeCount = 0;
+        limitReached = false;
+        cancelled = false;
+        solutionConsumer = onSolution;
+        solutionsFound = 0;
+        depth = 0;
+        long allLow = columns >= 64 ? -1L : (1L << columns) - 1;
+        long allHigh = columns <= 64 ? 0 : columns == MAX_COLUMNS ? -1L : (1L << (columns - 64)) - 1;
+        try {
+            search(allLow, allHigh);
+        } finally {
+            solutionConsumer = null;
+        }
+    }
+
+    private SolveStatus status(long solutions) {
+        if (cancelled) {
+            return SolveStatus.CANCELLED;
+        }
+        if (limitReached) {
+            return SolveStatus.BUDGET_EXHAUSTED;
+        }
+        return solutions == 0 ? SolveStatus.UNSAT : SolveStatus.SOLVED;
+    }
+
+    private void commitSearch(SearchEvent event, long prunedBefore, String mode, SolveStatus status, long solutions) {
+        if (event.shouldCommit()) {
+            event.engine = "BitExactCover";
+            event.mode = mode;
+            event.status = status.name();
+            event.nodes = nodeCount;
+            event.solutions = solutions;
+            event.prunedNodes = prunedNodes - prunedBefore;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param openLow Uncovered columns 0-63
+     * @param openHigh Uncovered columns 64-127
+     * @return true if the search should stop: a solution was found and stopAtFirst is set,
+     *         or the budget ran out or the search was cancelled
+     */
+    private boolean search(long openLow, long openHigh) {
+        if ((openLow | openHigh) == 0) {
+            if (isPruned()) {
+                return false;
+            }
+            int[] rows = new int[depth];
+            System.arraycopy(chosen, 0, rows, 0, depth);
+            solutionsFound++;
+            solutionConsumer.accept(rows);
+            return stopAtFirst;
+        }
+        if (++nodeCount > nodeLimit) {
+            limitReached = true;
+            return true;
+        }
+        if ((nodeCount & CHECK_INTERVAL) == 0 && isStopRequested()) {
+            return true;
+        }
+        if (isPruned()) {
+            return false;
+        }
+
+        long[] rows = usable[depth];
+        int column = selectColumn(openLow, openHigh, rows);
+        if (column < 0) {
+            return false;
+        }
+        long[] next = usable[depth + 1];
+        long[] candidates = columnRows[column];
+        if (rowOrder != RowOrder.MATRIX) {
+            for (int row : orderedRows(column, rows)) {
+                if (tryRow(row, rows, next, openLow, openHigh)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int w = 0; w < words; w++) {
+            long bits = candidates[w] & rows[w];
+            while (bits != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (tryRow(row, rows, next, openLow, openHigh)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean tryRow(int row, long[] rows, long[] next, long openLow, long openHigh) {
+        long[] conflicts = rowConflicts[row];
+        for (int k = 0; k < words; k++) {
+            next[k] = rows[k] & ~conflicts[k];
+        }
+        select(row);
+        boolean stop = search(openLow & ~rowLow[row], openHigh & ~rowHigh[row]);
+        deselect();
+        return stop;
+    }
+
+    /**
+     * Usable rows of the column sorted by the row order. Other columns are counted without the rows
+     * of this column, like DLX counts them once the column is covered.
+     */
+    private int[] orderedRows(int column, long[] rows) {
+        long[] candidates = columnRows[column];
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(candidates[w] & rows[w]);
+        }
+        long[] keys = new long[count];
+        int[] found = new int[count];
+        int n = 0;
+        for (int w = 0; w < words; w++) {
+            long bits = candidates[w] & rows[w];
+            while (bits != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int score = rowOrder.initialScore();
+                for (int half = 0; half < 2; half++) {
+                    long others = half == 0 ? rowLow[row] : rowHigh[row];
+                    while (others != 0) {
+                        int other = (half << 6) + Long.numberOfTrailingZeros(others);
+                        others &= others - 1;
+                        if (other != column) {
+                            long[] otherRows = columnRows[other];
+                            int size = 0;
+                            for (int k = 0; k < words; k++) {
+                                size += Long.bitCount(otherRows[k] & rows[k] & ~candidates[k]);
+                            }
+                            score = rowOrder.addColumn(score, size);
+                        }
+                    }
+                }
+                keys[n] = RowOrder.sortKey(score, n);
+                found[n++] = row;
+            }
+        }
+        Arrays.sort(keys);
+        int[] ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = found[(int) keys[i]];
+        }
+        return ordered;
+    }
+
+    /**
+     * MRV heuristic: the uncovered column with the fewest usable rows. Ties go to the highest
+     * column, which is the first one in the header list of DLX.
+     *
+     * @return the column, or -1 if some uncovered column has no usable row left
+     */
+    private int selectColumn(long openLow, long openHigh, long[] rows) {
+        int best = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int half = 1; half >= 0; half--) {
+            long open = half == 0 ? openLow : openHigh;
+            while (open != 0) {
+                int bit = 63 - Long.numberOfLeadingZeros(open);
+                open &= ~(1L << bit);
+                int column = (half << 6) + bit;
+                long[] candidates = columnRows[column];
+                int count = 0;
+                for (int w = 0; w < words && count < fewest; w++) {
+                    count += Long.bitCount(candidates[w] & rows[w]);
+                }
+                if (count < fewest) {
+                    if (count == 0) {
+                        return -1;
+                    }
+                    fewest = count;
+                    best = column;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Polled every CHECK_INTERVAL nodes: deadline, cancellation token and thread interrupt
+    private boolean isStopRequested() {
+        if (CancellationToken.shouldStop(cancellationToken)) {
+            cancelled = true;
+            return true;
+        }
+        if (hasDeadline && System.nanoTime() - deadline > 0) {
+            limitReached = true;
+            return true;
+        }
+        return false;
+    }
+
+    private void select(int row) {
+        chosen[depth++] = row;
+        if (pruningHook != null) {
+            pruningHook.rowSelected(row);
+        }
+    }
+
+    private void deselect() {
+        int row = chosen[--depth];
+        if (pruningHook != null) {
+            pruningHook.rowDeselected(row);
+        }
+    }
+
+    private boolean isPruned() {
+        if (pruningHook != null && !pruningHook.canExtend()) {
+            prunedNodes++;
+            return true;
+        }
+        return false;
+    }
+
+    private static List<Integer> toList(int[] rows) {
+        List<Integer> list = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            list.add(row);
+        }
+        return list;
+    }
+}
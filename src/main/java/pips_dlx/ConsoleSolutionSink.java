@@ -0,0 +1,50 @@
+package pips_dlx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes solutions in the readable layout DLXPipsSolver has always printed, one line per domino.
+ */
+public class ConsoleSolutionSink implements SolutionSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    // Output line of each row of the matrix
+    private final String[] rowLines;
+
+    /**
+     * @param rows Placement of every row of the matrix, see DLXPipsSolver.getPlacements()
+     */
+    public ConsoleSolutionSink(OutputStream out, List<Placement> rows) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.rowLines = new String[rows.size()];
+        for (int r = 0; r < rowLines.length; r++) {
+            Placement placement = rows.get(r);
+            rowLines[r] = "  Nodes [" + placement.node() + ", " + placement.peer() + "] <- Domino ("
+                    + placement.nodePip() + "," + placement.peerPip() + ")\n";
+        }
+    }
+
+    @Override
+    public void accept(int[] rows) throws IOException {
+        writer.write("\nSolution found! Selected rows: ");
+        writer.write(Arrays.toString(rows));
+        writer.write("\n\nDomino placements:\n");
+        for (int r : rows) {
+            writer.write(rowLines[r]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+}
@@ -1,29 +1,79 @@
 package pips_dlx;
 
+import pips.CancellationToken;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_jfr.SearchEvent;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 /**
  * Dancing Links (DLX) implementation for solving exact cover problems.
  * Based on Donald Knuth's Algorithm X with dancing links optimization.
  */
-public class DLX {
+public class DLX implements ExactCoverSolver {
 
     private final ColumnNode header;
     private final List<DancingNode> solution = new ArrayList<>();
     private final List<List<Integer>> allSolutions = new ArrayList<>();
     private final int[][] originalMatrix;
+    // First node of each row, used to select rows from outside the search
+    private DancingNode[] rowNodes;
+    private int preselected;
+
+    // Node and time budgets shared by the randomized and budgeted searches.
+    // Deadline, cancellation and interrupts are only polled every CHECK_INTERVAL + 1 nodes.
+    private static final int CHECK_INTERVAL = 0xFF;
+    private static final int ESTIMATE_PROBES = 100;
+    private Random random;
+    private long nodeCount;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean limitReached;
+    private boolean cancelled;
+    private CancellationToken cancellationToken;
+    private boolean stopAtFirst;
+    private List<List<Integer>> limitedSolutions;
+    private PruningHook pruningHook;
+    private long prunedNodes;
+    private RowOrder rowOrder = RowOrder.MATRIX;
+    // Receives the solutions of forEachSolution() instead of allSolutions
+    private Consumer<int[]> solutionConsumer;
+    private long solutionsFound;
 
     public DLX(int[][] matrix) {
         this.originalMatrix = matrix;
-        this.header = buildLinks(matrix);
+        this.header = buildLinks(matrix, matrix[0].length, false);
     }
 
-    private ColumnNode buildLinks(int[][] matrix) {
-        int numCols = matrix[0].length;
+    private DLX(int[][] rows, int numCols) {
+        this.originalMatrix = null;
+        this.header = buildLinks(rows, numCols, true);
+    }
 
+    /**
+     * Builds the links from rows given as the ascending columns of their ones, such as those of
+     * DLXPipsSolver.buildSparseRows(), without a dense matrix in between.
+     *
+     * @param columns Number of columns of the matrix
+     */
+    public static DLX fromSparseRows(int[][] rows, int columns) {
+        return new DLX(rows, columns);
+    }
+
+    private ColumnNode buildLinks(int[][] matrix, int numCols, boolean sparse) {
         ColumnNode headerNode = new ColumnNode(-1);
         List<ColumnNode> columnNodes = new ArrayList<>();
+        rowNodes = new DancingNode[matrix.length];
 
         // Create column headers
         for (int i = 0; i < numCols; i++) {
@@ -34,19 +84,20 @@ public class DLX {
 
         // Create nodes for each 1 in the matrix
         for (int row = 0; row < matrix.length; row++) {
+            int[] cells = matrix[row];
+            int[] ones = sparse ? cells : IntStream.range(0, numCols).filter(col -> cells[col] == 1).toArray();
             DancingNode prev = null;
-            for (int col = 0; col < numCols; col++) {
-                if (matrix[row][col] == 1) {
-                    ColumnNode colHeader = columnNodes.get(col);
-                    DancingNode newNode = new DancingNode(colHeader, row);
-                    colHeader.up.hookDown(newNode);
-                    colHeader.size++;
-
-                    if (prev == null) {
-                        prev = newNode;
-                    } else {
-                        prev.hookRight(newNode);
-                    }
+            for (int col : ones) {
+                ColumnNode colHeader = columnNodes.get(col);
+                DancingNode newNode = new DancingNode(colHeader, row);
+                colHeader.up.hookDown(newNode);
+                colHeader.size++;
+
+                if (prev == null) {
+                    prev = newNode;
+                    rowNodes[row] = newNode;
+                } else {
+                    prev.hookRight(newNode);
                 }
             }
         }
@@ -54,25 +105,480 @@ public class DLX {
         return headerNode;
     }
 
+    /**
+     * Sets the token polled by every search on this instance. Interrupting the solving thread
+     * stops the search as well, with or without a token.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Sets a hook that every search consults before branching, and informs of the rows it selects.
+     */
+    public void setPruningHook(PruningHook pruningHook) {
+        this.pruningHook = pruningHook;
+    }
+
+    /**
+     * Sets the order in which every search on this instance tries the rows of a column.
+     */
+    public void setRowOrder(RowOrder rowOrder) {
+        this.rowOrder = rowOrder;
+    }
+
+    /**
+     * @return the number of search nodes cut by the pruning hook since the instance was created
+     */
+    public long getPrunedNodes() {
+        return prunedNodes;
+    }
+
+    /**
+     * Adds a row to the partial solution before searching, as if the search had chosen it: its columns
+     * are covered, the pruning hook is told, and every later search only completes the rest and returns
+     * solutions that include it. Rows are undone with deselectRow() in reverse order.
+     *
+     * @return false, leaving the links untouched, if the row clashes with a row already selected
+     */
+    public boolean selectRow(int rowIndex) {
+        DancingNode row = rowNodes[rowIndex];
+        if (row == null) {
+            return false;
+        }
+        DancingNode node = row;
+        do {
+            // Covered columns are unlinked from the header, clashing rows from their columns
+            if (node.column.left.right != node.column || node.up.down != node) {
+                return false;
+            }
+            node = node.right;
+        } while (node != row);
+
+        cover(row.column);
+        for (node = row.right; node != row; node = node.right) {
+            cover(node.column);
+        }
+        select(row);
+        preselected++;
+        return true;
+    }
+
+    /**
+     * Undoes the last selectRow().
+     *
+     * @return the row index that was removed, or -1 if no row is selected
+     */
+    public int deselectRow() {
+        if (preselected == 0) {
+            return -1;
+        }
+        preselected--;
+        DancingNode row = deselect();
+        for (DancingNode node = row.left; node != row; node = node.left) {
+            uncover(node.column);
+        }
+        uncover(row.column);
+        return row.rowIndex;
+    }
+
+    /**
+     * @return true if the last search stopped early because of cancellation or an interrupt
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Finds all solutions. If the search is cancelled, the solutions found so far are returned.
+     */
     public List<List<Integer>> solve() {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        nodeCount = 0;
+        cancelled = false;
         search(0);
+        commitSearch(event, prunedBefore, "all", cancelled ? SolveStatus.CANCELLED
+                : allSolutions.isEmpty() ? SolveStatus.UNSAT : SolveStatus.SOLVED, allSolutions.size());
         return allSolutions;
     }
 
+    /**
+     * Finds all solutions and hands each one to onSolution, as the selected row indices, as soon as
+     * it is found instead of collecting them. If onSolution throws, the search stops with the links
+     * left as they were at that solution, so the instance should not be searched again.
+     *
+     * @return the number of solutions found
+     */
+    public long forEachSolution(Consumer<int[]> onSolution) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        nodeCount = 0;
+        cancelled = false;
+        solutionConsumer = onSolution;
+        solutionsFound = 0;
+        try {
+            search(0);
+        } finally {
+            solutionConsumer = null;
+        }
+        commitSearch(event, prunedBefore, "all", cancelled ? SolveStatus.CANCELLED
+                : solutionsFound == 0 ? SolveStatus.UNSAT : SolveStatus.SOLVED, solutionsFound);
+        return solutionsFound;
+    }
+
     public List<Integer> solveFirst() {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        nodeCount = 0;
+        cancelled = false;
+        List<Integer> result = null;
         if (searchFirst(0)) {
-            List<Integer> result = new ArrayList<>();
+            result = new ArrayList<>();
             for (DancingNode node : solution) {
                 result.add(node.rowIndex);
             }
-            return result;
         }
-        return null;
+        commitSearch(event, prunedBefore, "first", cancelled ? SolveStatus.CANCELLED
+                : result == null ? SolveStatus.UNSAT : SolveStatus.SOLVED, result == null ? 0 : 1);
+        return result;
+    }
+
+    private void commitSearch(SearchEvent event, long prunedBefore, String mode, SolveStatus status, long solutions) {
+        if (event.shouldCommit()) {
+            event.engine = "DLX";
+            event.mode = mode;
+            event.status = status.name();
+            event.nodes = nodeCount;
+            event.solutions = solutions;
+            event.prunedNodes = prunedNodes - prunedBefore;
+            event.commit();
+        }
+    }
+
+    /**
+     * Finds all solutions, visiting at most nodeBudget search nodes.
+     * Links are restored when the budget runs out, so the instance can be solved again.
+     */
+    public SolveResult<List<Integer>> solve(long nodeBudget) {
+        return solveLimited(false, nodeBudget, null);
+    }
+
+    /**
+     * Finds all solutions, stopping once the wall-clock budget has elapsed.
+     */
+    public SolveResult<List<Integer>> solve(Duration budget) {
+        return solveLimited(false, Long.MAX_VALUE, budget);
+    }
+
+    public SolveResult<List<Integer>> solveFirst(long nodeBudget) {
+        return solveLimited(true, nodeBudget, null);
+    }
+
+    public SolveResult<List<Integer>> solveFirst(Duration budget) {
+        return solveLimited(true, Long.MAX_VALUE, budget);
+    }
+
+    private SolveResult<List<Integer>> solveLimited(boolean firstOnly, long nodeBudget, Duration budget) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        SolveResult<List<Integer>> result = searchWithin(firstOnly, nodeBudget, budget);
+        commitSearch(event, prunedBefore, firstOnly ? "first" : "all", result.status(), result.solutions().size());
+        return result;
+    }
+
+    private SolveResult<List<Integer>> searchWithin(boolean firstOnly, long nodeBudget, Duration budget) {
+        stopAtFirst = firstOnly;
+        nodeLimit = nodeBudget;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+        nodeCount = 0;
+        limitReached = false;
+        cancelled = false;
+        limitedSolutions = new ArrayList<>();
+        try {
+            searchLimited();
+            List<List<Integer>> found = limitedSolutions;
+            if (cancelled) {
+                return new SolveResult<>(SolveStatus.CANCELLED, found, nodeCount, -1);
+            }
+            if (limitReached) {
+                long estimate = Math.round(estimateTreeSize(ESTIMATE_PROBES, 1)) - nodeCount;
+                return new SolveResult<>(SolveStatus.BUDGET_EXHAUSTED, found, nodeCount, Math.max(estimate, 0));
+            }
+            return new SolveResult<>(found.isEmpty() ? SolveStatus.UNSAT : SolveStatus.SOLVED, found, nodeCount, 0);
+        } finally {
+            resetLimits();
+        }
+    }
+
+    private void resetLimits() {
+        random = null;
+        stopAtFirst = false;
+        nodeLimit = Long.MAX_VALUE;
+        hasDeadline = false;
+        limitReached = false;
+        limitedSolutions = null;
+    }
+
+    /**
+     * Finds one solution using a seeded randomized search. The rows of the chosen column are
+     * shuffled at every node, and the search restarts whenever a run exceeds its node budget.
+     * Budgets follow the Luby sequence (1, 1, 2, 1, 1, 2, 4, ...) scaled by restartUnit.
+     * The links are fully restored afterwards, so this can be called repeatedly to sample solutions.
+     *
+     * @param seed Seed for the row shuffling
+     * @param restartUnit Number of search nodes in the shortest run
+     * @return the selected row indices, or null if the matrix has no exact cover
+     */
+    public List<Integer> solveRandom(long seed, long restartUnit) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        List<Integer> result = searchRandom(seed, restartUnit);
+        commitSearch(event, prunedBefore, "random", cancelled ? SolveStatus.CANCELLED
+                : result == null ? SolveStatus.UNSAT : SolveStatus.SOLVED, result == null ? 0 : 1);
+        return result;
+    }
+
+    private List<Integer> searchRandom(long seed, long restartUnit) {
+        random = new Random(seed);
+        stopAtFirst = true;
+        cancelled = false;
+        try {
+            for (int run = 1; ; run++) {
+                nodeLimit = luby(run) * restartUnit;
+                nodeCount = 0;
+                limitReached = false;
+                limitedSolutions = new ArrayList<>();
+                if (searchLimited()) {
+                    return limitedSolutions.get(0);
+                }
+                if (!limitReached || cancelled) {
+                    // Either the run finished without hitting its budget, so the whole tree was explored,
+                    // or the search was cancelled
+                    return null;
+                }
+            }
+        } finally {
+            resetLimits();
+        }
+    }
+
+    public List<Integer> solveRandom(long seed) {
+        return solveRandom(seed, 64);
+    }
+
+    /**
+     * Draws up to count solutions, each from an independent randomized search.
+     * Duplicates are possible when the puzzle has only a few solutions.
+     */
+    public List<List<Integer>> sampleSolutions(int count, long seed) {
+        Random seeds = new Random(seed);
+        List<List<Integer>> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Integer> sample = solveRandom(seeds.nextLong());
+            if (sample == null) {
+                break;
+            }
+            samples.add(sample);
+        }
+        return samples;
+    }
+
+    /**
+     * Estimates the number of nodes that solve() will visit, using Knuth's random probe method.
+     * Each probe walks one random path from the root, and the product of the branching factors
+     * seen along the way is an unbiased estimate of the number of nodes on that level.
+     *
+     * @param probes Number of random paths to average over
+     * @param seed Seed for choosing the paths
+     * @return the estimated size of the search tree, including the root
+     */
+    public double estimateTreeSize(int probes, long seed) {
+        Random rnd = new Random(seed);
+        double total = 0;
+        for (int p = 0; p < probes; p++) {
+            total += probe(rnd);
+        }
+        return total / probes;
+    }
+
+    private double probe(Random rnd) {
+        Deque<DancingNode> path = new ArrayDeque<>();
+        double estimate = 1;
+        double levelWeight = 1;
+
+        while (header.right != header) {
+            ColumnNode col = selectColumn();
+            if (col.size == 0) {
+                break;
+            }
+            levelWeight *= col.size;
+            estimate += levelWeight;
+
+            DancingNode row = col.down;
+            for (int skip = rnd.nextInt(col.size); skip > 0; skip--) {
+                row = row.down;
+            }
+            cover(col);
+            for (DancingNode node = row.right; node != row; node = node.right) {
+                cover(node.column);
+            }
+            path.push(row);
+        }
+
+        while (!path.isEmpty()) {
+            DancingNode row = path.pop();
+            for (DancingNode node = row.left; node != row; node = node.left) {
+                uncover(node.column);
+            }
+            uncover(row.column);
+        }
+        return estimate;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Search used by the randomized and budgeted modes. Unlike search() and searchFirst(),
+     * it always uncovers on the way out, leaving the links as they were before the call.
+     *
+     * @return true if the search should stop because a solution was found and stopAtFirst is set
+     */
+    private boolean searchLimited() {
+        if (header.right == header) {
+            if (isPruned()) {
+                return false;
+            }
+            List<Integer> sol = new ArrayList<>();
+            for (DancingNode node : solution) {
+                sol.add(node.rowIndex);
+            }
+            limitedSolutions.add(sol);
+            return stopAtFirst;
+        }
+        if (++nodeCount > nodeLimit || ((nodeCount & CHECK_INTERVAL) == 0 && isStopRequested())) {
+            limitReached = true;
+            return false;
+        }
+        if (isPruned()) {
+            return false;
+        }
+
+        ColumnNode col = selectColumn();
+        cover(col);
+
+        boolean stop = false;
+        DancingNode[] ordered = rowsOf(col);
+        int index = 0;
+        for (DancingNode row = nextRow(col, col, ordered, index); row != col;
+                row = nextRow(col, row, ordered, ++index)) {
+            select(row);
+
+            for (DancingNode node = row.right; node != row; node = node.right) {
+                cover(node.column);
+            }
+
+            stop = searchLimited();
+
+            deselect();
+            for (DancingNode node = row.left; node != row; node = node.left) {
+                uncover(node.column);
+            }
+
+            if (stop || limitReached) {
+                break;
+            }
+        }
+
+        uncover(col);
+        return stop;
+    }
+
+    // Polled every CHECK_INTERVAL nodes: deadline, cancellation token and thread interrupt
+    private boolean isStopRequested() {
+        if (CancellationToken.shouldStop(cancellationToken)) {
+            cancelled = true;
+            return true;
+        }
+        return hasDeadline && System.nanoTime() - deadline > 0;
+    }
+
+    // Rows of the column in insertion order, shuffled when running the randomized search and
+    // then sorted by the row order, so ties stay shuffled. Null when neither applies, so the
+    // plain search walks the column in place instead of copying it on every node
+    private DancingNode[] rowsOf(ColumnNode col) {
+        if (random == null && rowOrder == RowOrder.MATRIX) {
+            return null;
+        }
+        DancingNode[] rows = new DancingNode[col.size];
+        int count = 0;
+        for (DancingNode row = col.down; row != col; row = row.down) {
+            rows[count++] = row;
+        }
+        if (random != null) {
+            for (int i = count - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                DancingNode tmp = rows[i];
+                rows[i] = rows[j];
+                rows[j] = tmp;
+            }
+        }
+        if (rowOrder != RowOrder.MATRIX && count > 1) {
+            long[] keys = new long[count];
+            for (int i = 0; i < count; i++) {
+                int score = rowOrder.initialScore();
+                for (DancingNode node = rows[i].right; node != rows[i]; node = node.right) {
+                    score = rowOrder.addColumn(score, node.column.size);
+                }
+                keys[i] = RowOrder.sortKey(score, i);
+            }
+            Arrays.sort(keys);
+            DancingNode[] sorted = new DancingNode[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = rows[(int) keys[i]];
+            }
+            return sorted;
+        }
+        return rows;
+    }
+
+    // Luby restart sequence, 1-based: 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+    static long luby(int i) {
+        while (true) {
+            int k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+            if ((1L << k) - 1 == i) {
+                return 1L << (k - 1);
+            }
+            i -= (int) (1L << (k - 1)) - 1;
+        }
     }
 
     private void search(int depth) {
         if (header.right == header) {
-            // Found a solution
+            // Found a solution, unless the hook rejects the complete cover
+            if (isPruned()) {
+                return;
+            }
+            if (solutionConsumer != null) {
+                int[] rows = new int[solution.size()];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = solution.get(i).rowIndex;
+                }
+                solutionsFound++;
+                solutionConsumer.accept(rows);
+                return;
+            }
             List<Integer> sol = new ArrayList<>();
             for (DancingNode node : solution) {
                 sol.add(node.rowIndex);
@@ -80,12 +586,21 @@ public class DLX {
             allSolutions.add(sol);
             return;
         }
+        if ((++nodeCount & CHECK_INTERVAL) == 0 && CancellationToken.shouldStop(cancellationToken)) {
+            cancelled = true;
+        }
+        if (cancelled || isPruned()) {
+            return;
+        }
 
         ColumnNode col = selectColumn();
         cover(col);
 
-        for (DancingNode row = col.down; row != col; row = row.down) {
-            solution.add(row);
+        DancingNode[] ordered = rowsOf(col);
+        int index = 0;
+        for (DancingNode row = nextRow(col, col, ordered, index); row != col;
+                row = nextRow(col, row, ordered, ++index)) {
+            select(row);
 
             for (DancingNode node = row.right; node != row; node = node.right) {
                 cover(node.column);
@@ -93,12 +608,15 @@ public class DLX {
 
             search(depth + 1);
 
-            row = solution.remove(solution.size() - 1);
-            col = row.column;
+            deselect();
 
             for (DancingNode node = row.left; node != row; node = node.left) {
                 uncover(node.column);
             }
+
+            if (cancelled) {
+                break;
+            }
         }
 
         uncover(col);
@@ -106,14 +624,23 @@ public class DLX {
 
     private boolean searchFirst(int depth) {
         if (header.right == header) {
-            return true;
+            return !isPruned();
+        }
+        if ((++nodeCount & CHECK_INTERVAL) == 0 && CancellationToken.shouldStop(cancellationToken)) {
+            cancelled = true;
+        }
+        if (cancelled || isPruned()) {
+            return false;
         }
 
         ColumnNode col = selectColumn();
         cover(col);
 
-        for (DancingNode row = col.down; row != col; row = row.down) {
-            solution.add(row);
+        DancingNode[] ordered = rowsOf(col);
+        int index = 0;
+        for (DancingNode row = nextRow(col, col, ordered, index); row != col;
+                row = nextRow(col, row, ordered, ++index)) {
+            select(row);
 
             for (DancingNode node = row.right; node != row; node = node.right) {
                 cover(node.column);
@@ -123,18 +650,52 @@ public class DLX {
                 return true;
             }
 
-            row = solution.remove(solution.size() - 1);
-            col = row.column;
+            deselect();
 
             for (DancingNode node = row.left; node != row; node = node.left) {
                 uncover(node.column);
             }
+
+            if (cancelled) {
+                break;
+            }
         }
 
         uncover(col);
         return false;
     }
 
+    // The row after `row` (the column header to start), or the header once the column is done
+    private static DancingNode nextRow(ColumnNode col, DancingNode row, DancingNode[] ordered, int index) {
+        if (ordered == null) {
+            return row.down;
+        }
+        return index < ordered.length ? ordered[index] : col;
+    }
+
+    private void select(DancingNode row) {
+        solution.add(row);
+        if (pruningHook != null) {
+            pruningHook.rowSelected(row.rowIndex);
+        }
+    }
+
+    private DancingNode deselect() {
+        DancingNode row = solution.remove(solution.size() - 1);
+        if (pruningHook != null) {
+            pruningHook.rowDeselected(row.rowIndex);
+        }
+        return row;
+    }
+
+    private boolean isPruned() {
+        if (pruningHook != null && !pruningHook.canExtend()) {
+            prunedNodes++;
+            return true;
+        }
+        return false;
+    }
+
     // MRV heuristic: choose column with minimum remaining values
     private ColumnNode selectColumn() {
         ColumnNode minCol = null;
@@ -175,6 +736,9 @@ public class DLX {
         col.left.right = col;
     }
 
+    /**
+     * @return the matrix the links were built from, or null if they were built from sparse rows
+     */
     public int[][] getOriginalMatrix() {
         return originalMatrix;
     }
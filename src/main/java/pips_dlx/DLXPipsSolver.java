@@ -4,22 +4,48 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import org.apache.commons.lang3.tuple.Pair;
-import pips.MathExpressionHelper;
+import pips.CancellationToken;
+import pips.FeasibilityCheck;
+import pips.PipsPuzzle;
+import pips.RegionConstraint;
+import pips.TilingChecker;
+import pips_jfr.MatrixBuildEvent;
+import pips_jfr.ResultRenderEvent;
 
 public class DLXPipsSolver {
 
-    private static final JsonNode input;
-    private static final List<String> nodesList = new ArrayList<>();
-    private static final List<Pair<Integer, Integer>> dominoList = new ArrayList<>();
     private static final boolean isDebugMode = false;
     private static final boolean solveAll = true;
 
-    static {
-        input = readInput();
+    private final JsonNode puzzle;
+    // Typed regions of the puzzle, with nodes indexed like nodesList
+    private final PipsPuzzle model;
+    private final List<String> nodesList = new ArrayList<>();
+    private final List<Pair<Integer, Integer>> dominoList = new ArrayList<>();
+    // Placement described by each row of the last matrix built, indexed by row
+    private final List<Placement> rowPlacements = new ArrayList<>();
+    // Placements checked against the regions during the last matrix build
+    private long regionChecks;
+    // Values of all nodes for those checks, empty between them
+    private int[] checkValues;
+    private CancellationToken cancellationToken;
+    private boolean buildCancelled;
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public DLXPipsSolver(JsonNode puzzle) {
+        this.puzzle = puzzle;
+        this.model = PipsPuzzle.fromJson(puzzle);
+        getNodesFromPuzzle();
+        getDominoesFromPuzzle();
     }
 
     public static JsonNode readInput() {
@@ -33,7 +59,7 @@ public class DLXPipsSolver {
         }
     }
 
-    private static void getNodesFromPuzzle(JsonNode puzzle) {
+    private void getNodesFromPuzzle() {
         if (puzzle != null && puzzle.has("node_details")) {
             JsonNode nodeDetails = puzzle.get("node_details");
             nodeDetails.fields().forEachRemaining(entry -> nodesList.add(entry.getKey()));
@@ -43,7 +69,7 @@ public class DLXPipsSolver {
         }
     }
 
-    private static void getDominoesFromPuzzle(JsonNode puzzle) {
+    private void getDominoesFromPuzzle() {
         if (puzzle != null && puzzle.has("node_details")) {
             JsonNode dominoes = puzzle.get("dominoes");
             if (dominoes.isArray()) {
@@ -59,123 +85,383 @@ public class DLXPipsSolver {
         }
     }
 
-    public static void main(String[] args) {
+    /**
+     * Solves every puzzle of pips_medium.json. The system property pips.output picks where the
+     * solutions go: console (the default), count for the number of solutions only, counted by
+     * DecomposingCounter, or ndjson:FILE or binary:FILE for a file written through
+     * NdjsonSolutionSink or BinarySolutionSink.
+     * The system property pips.rowOrder picks the RowOrder of the search: matrix (the default),
+     * least-constraining or scarcest-first.
+     */
+    public static void main(String[] args) throws IOException {
+        JsonNode input = readInput();
+        String output = System.getProperty("pips.output", "console");
+        RowOrder rowOrder = RowOrder.parse(System.getProperty("pips.rowOrder", "matrix"));
         if (input != null && input.has("pips_medium_puzzles")) {
             JsonNode allPuzzles = input.get("pips_medium_puzzles");
-            for (JsonNode puzzle : allPuzzles) {
-                System.out.println("DLX PIPS Solver is running...");
-                long start = System.currentTimeMillis();
-                getNodesFromPuzzle(puzzle);
-                getDominoesFromPuzzle(puzzle);
-                buildExactCoverMatrix(puzzle);
-                long end = System.currentTimeMillis();
-                System.out.println("\nDLX PIPS Solver finished in " + (end - start) + " ms.");
-                clearGameState();
+            int index = output.indexOf(':');
+            if (index < 0 && (output.equals("ndjson") || output.equals("binary"))) {
+                throw new IllegalArgumentException("pips.output=" + output + " needs a file: use " + output + ":FILE");
+            }
+            try (OutputStream file = index < 0 ? null : new FileOutputStream(output.substring(index + 1))) {
+                String format = index < 0 ? output : output.substring(0, index);
+                int puzzleIndex = 0;
+                for (JsonNode puzzle : allPuzzles) {
+                    System.out.println("DLX PIPS Solver is running...");
+                    long start = System.currentTimeMillis();
+                    DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+                    FeasibilityCheck check = new FeasibilityCheck(puzzle);
+                    // Both ways round, so every legal board is a cover; the region hook rejects the rest
+                    int[][] rows = check.isRejected() ? null : solver.buildSparseRows(true);
+                    if (check.isRejected()) {
+                        System.out.println("Rejected before the search: " + check.getReason());
+                    } else if (rows == null) {
+                        System.out.println("No valid placements found.");
+                    } else if (format.equals("count")) {
+                        // Counting needs no covers, so separate parts of the board are counted on their own
+                        System.out.println("\nTotal solutions found: " + new DecomposingCounter(puzzle).countSolutions());
+                    } else {
+                        solver.solveUsingDLX(rows, solver.createSink(format, file, puzzleIndex), format, rowOrder);
+                    }
+                    long end = System.currentTimeMillis();
+                    System.out.println("\nDLX PIPS Solver finished in " + (end - start) + " ms.");
+                    puzzleIndex++;
+                }
+            }
+        }
+    }
+
+    private SolutionSink createSink(String format, OutputStream file, int puzzleIndex) {
+        return switch (format) {
+            case "count" -> SolutionSink.countOnly();
+            case "ndjson" -> new NdjsonSolutionSink(file, rowPlacements, puzzleIndex);
+            case "binary" -> new BinarySolutionSink(file, nodesList, rowPlacements, puzzleIndex);
+            case "console" -> new ConsoleSolutionSink(System.out, rowPlacements);
+            default -> throw new IllegalArgumentException("Unknown pips.output format: " + format);
+        };
+    }
+
+    /**
+     * Sets the token polled while the matrix is built, once per node. Interrupting the building
+     * thread stops the build as well.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * @return true if the last matrix build stopped early because of cancellation or an interrupt,
+     *         in which case it returned null
+     */
+    public boolean isCancelled() {
+        return buildCancelled;
+    }
+
+    /**
+     * @return the typed puzzle, with nodes indexed like getNodes()
+     */
+    public PipsPuzzle getModel() {
+        return model;
+    }
+
+    public List<String> getNodes() {
+        return nodesList;
+    }
+
+    /**
+     * @return the placement described by a row of the matrix returned from buildExactCoverMatrix()
+     */
+    public Placement getPlacement(int rowIndex) {
+        return rowPlacements.get(rowIndex);
+    }
+
+    /**
+     * @return the placement of every row of the matrix returned from buildExactCoverMatrix(), indexed by row
+     */
+    public List<Placement> getPlacements() {
+        return Collections.unmodifiableList(rowPlacements);
+    }
+
+    /**
+     * @return a hook that stops DLX from branching once the uncovered nodes can no longer be tiled
+     *         with dominoes, for the matrix returned from buildExactCoverMatrix()
+     */
+    public PruningHook createTilingHook() {
+        Map<String, Integer> nodeIndex = new HashMap<>();
+        for (int i = 0; i < nodesList.size(); i++) {
+            nodeIndex.put(nodesList.get(i), i);
+        }
+        int[][] neighbors = new int[nodesList.size()][];
+        for (int i = 0; i < nodesList.size(); i++) {
+            List<Integer> peers = new ArrayList<>();
+            puzzle.get("node_details").get(nodesList.get(i)).get("peers").forEach(peer -> {
+                Integer index = nodeIndex.get(peer.asText());
+                if (index != null && !peers.contains(index)) {
+                    peers.add(index);
+                }
+            });
+            neighbors[i] = peers.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        TilingChecker checker = new TilingChecker(neighbors);
+        return new PruningHook() {
+            @Override
+            public void rowSelected(int row) {
+                checker.fill(nodeIndex.get(rowPlacements.get(row).node()));
+                checker.fill(nodeIndex.get(rowPlacements.get(row).peer()));
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+                checker.unfill(nodeIndex.get(rowPlacements.get(row).node()));
+                checker.unfill(nodeIndex.get(rowPlacements.get(row).peer()));
+            }
+
+            @Override
+            public boolean canExtend() {
+                return checker.isTileable();
+            }
+        };
+    }
+
+    /**
+     * @return a hook that stops DLX once a selected row breaks a region of one of its nodes,
+     *         given the values of all rows selected so far, for the matrix returned from
+     *         buildExactCoverMatrix(). The rows only check each placement on its own, so with this
+     *         hook every cover DLX accepts also satisfies every region of the puzzle.
+     */
+    public PruningHook createRegionHook() {
+        int[] values = new int[nodesList.size()];
+        Arrays.fill(values, RegionConstraint.UNASSIGNED);
+        Deque<Placement> selected = new ArrayDeque<>();
+        return new PruningHook() {
+            // Rows at the bottom of the stack whose regions were already checked
+            private int checked;
+
+            @Override
+            public void rowSelected(int row) {
+                Placement placement = rowPlacements.get(row);
+                values[model.indexOf(placement.node())] = placement.nodePip();
+                values[model.indexOf(placement.peer())] = placement.peerPip();
+                selected.push(placement);
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+                Placement placement = rowPlacements.get(row);
+                values[model.indexOf(placement.node())] = RegionConstraint.UNASSIGNED;
+                values[model.indexOf(placement.peer())] = RegionConstraint.UNASSIGNED;
+                selected.pop();
+                checked = Math.min(checked, selected.size());
+            }
+
+            @Override
+            public boolean canExtend() {
+                // Only regions of rows selected since the last check can break. The search adds one
+                // row at a time, but rows selected up front through DLX.selectRow() come in together.
+                Iterator<Placement> newest = selected.iterator();
+                for (int i = selected.size(); i > checked; i--) {
+                    Placement placement = newest.next();
+                    if (!model.isConsistent(model.indexOf(placement.node()), values)
+                            || !model.isConsistent(model.indexOf(placement.peer()), values)) {
+                        return false;
+                    }
+                }
+                checked = selected.size();
+                return true;
             }
+        };
+    }
+
+    private boolean assignDominoToNode(int left, int right, String currentNode, String peerNode) {
+        regionChecks++;
+        int subject = model.indexOf(currentNode);
+        int follower = model.indexOf(peerNode);
+        if (checkValues == null) {
+            checkValues = new int[nodesList.size()];
+            Arrays.fill(checkValues, RegionConstraint.UNASSIGNED);
         }
+        checkValues[subject] = left;
+        checkValues[follower] = right;
+
+        boolean fits = model.isConsistent(subject, checkValues) && model.isConsistent(follower, checkValues);
+        checkValues[subject] = RegionConstraint.UNASSIGNED;
+        checkValues[follower] = RegionConstraint.UNASSIGNED;
+        return fits;
     }
 
-    private static void clearGameState() {
-        nodesList.clear();
-        dominoList.clear();
+    /**
+     * Builds one row per legal placement of a domino on a pair of neighbouring nodes.
+     * Columns are the nodes followed by the dominoes.
+     *
+     * @return the exact cover matrix, or null if no domino fits anywhere
+     */
+    public int[][] buildExactCoverMatrix() {
+        return buildExactCoverMatrix(false);
     }
 
-    private static boolean assignDominoToNode(int left, int right, String currentNode, String peerNode, HashMap<String, Integer> assignedValues, JsonNode puzzle) {
-        String subjectExpr = puzzle.get("node_details").get(currentNode).get("expression").asText();
-        String followerExpr = puzzle.get("node_details").get(peerNode).get("expression").asText();
+    /**
+     * @param bothOrientations If false, a domino gets a row only for the first way round that fits a
+     *                         pair of nodes. If true, a domino with two different halves gets a row for
+     *                         each way round that fits, so every legal board is a cover of the matrix.
+     * @return the exact cover matrix, or null if no domino fits anywhere or the build was cancelled
+     */
+    public int[][] buildExactCoverMatrix(boolean bothOrientations) {
+        int[][] rows = buildSparseRows(bothOrientations);
+        if (rows == null) {
+            return null;
+        }
 
-        HashMap<String, Integer> tempAssignedValues = new HashMap<>(assignedValues);
-        tempAssignedValues.put(currentNode, left);
-        tempAssignedValues.put(peerNode, right);
+        int[][] matrix = new int[rows.length][];
+        for (int r = 0; r < rows.length; r++) {
+            matrix[r] = new int[getColumnCount()];
+            for (int column : rows[r]) {
+                matrix[r][column] = 1;
+            }
+        }
 
-        return MathExpressionHelper.satisfies(subjectExpr, tempAssignedValues) &&
-                MathExpressionHelper.satisfies(followerExpr, tempAssignedValues);
+        if (isDebugMode) {
+            System.out.println("\nExact cover matrix: " + matrix.length + " rows x " + getColumnCount() + " columns");
+            for (int i = 0; i < matrix.length; i++) {
+                System.out.println("Row " + i + ": " + Arrays.toString(matrix[i]));
+            }
+        }
+
+        return matrix;
     }
 
-    private static void buildExactCoverMatrix(JsonNode puzzle) {
-        int columns = nodesList.size() + dominoList.size();
+    /**
+     * Builds the same rows as buildExactCoverMatrix(bothOrientations), each given as the ascending
+     * columns of its three ones: the two nodes and the domino. A large board has hundreds of
+     * thousands of rows, which take a few megabytes this way instead of hundreds.
+     *
+     * @return the rows, or null if no domino fits anywhere or the build was cancelled
+     */
+    public int[][] buildSparseRows(boolean bothOrientations) {
+        MatrixBuildEvent event = new MatrixBuildEvent();
+        event.begin();
+        regionChecks = 0;
+        buildCancelled = false;
         List<int[]> exactCoverMatrix = new ArrayList<>();
         Set<String> peersSet = new HashSet<>();
+        rowPlacements.clear();
 
         for (String node : nodesList) {
+            if (CancellationToken.shouldStop(cancellationToken)) {
+                buildCancelled = true;
+                exactCoverMatrix.clear();
+                rowPlacements.clear();
+                break;
+            }
             JsonNode nodeDetails = puzzle.get("node_details").get(node);
             nodeDetails.get("peers").forEach(peerNode -> {
                 if (peersSet.contains(node + peerNode.asText()) || peersSet.contains(peerNode.asText() + node)) {
                     return;
                 }
                 peersSet.add(node + peerNode.asText());
-                for (Pair<Integer, Integer> domino : dominoList) {
-                    if (assignDominoToNode(domino.getLeft(), domino.getRight(), node, peerNode.asText(), new HashMap<>(), puzzle) ||
-                            (domino.getLeft().intValue() != domino.getRight().intValue() && assignDominoToNode(domino.getRight(), domino.getLeft(), node, peerNode.asText(), new HashMap<>(), puzzle))) {
-                        int[] row = new int[columns];
-                        int nodeIndex = nodesList.indexOf(node);
-                        int peerIndex = nodesList.indexOf(peerNode.asText());
-                        int dominoIndex = dominoList.indexOf(domino) + nodesList.size();
-
-                        row[nodeIndex] = 1;
-                        row[peerIndex] = 1;
-                        row[dominoIndex] = 1;
-
-                        exactCoverMatrix.add(row);
+                // Index the dominoes by position: identical dominoes are still separate columns
+                for (int d = 0; d < dominoList.size(); d++) {
+                    Pair<Integer, Integer> domino = dominoList.get(d);
+                    int left = domino.getLeft();
+                    int right = domino.getRight();
+                    boolean fits = assignDominoToNode(left, right, node, peerNode.asText());
+                    if (fits) {
+                        addRow(exactCoverMatrix, node, peerNode.asText(), left, right, d);
+                    }
+                    if ((!fits || bothOrientations) && left != right
+                            && assignDominoToNode(right, left, node, peerNode.asText())) {
+                        addRow(exactCoverMatrix, node, peerNode.asText(), right, left, d);
                     }
                 }
             });
         }
 
-        if (exactCoverMatrix.isEmpty()) {
-            System.out.println("No valid placements found.");
-            return;
+        if (event.shouldCommit()) {
+            event.rows = exactCoverMatrix.size();
+            event.columns = getColumnCount();
+            event.bothOrientations = bothOrientations;
+            event.regionChecks = regionChecks;
+            event.commit();
         }
+        return exactCoverMatrix.isEmpty() ? null : exactCoverMatrix.toArray(new int[0][]);
+    }
 
-        int[][] matrix = exactCoverMatrix.toArray(new int[0][]);
+    /**
+     * @return the number of columns of the matrix: the nodes followed by the dominoes
+     */
+    public int getColumnCount() {
+        return nodesList.size() + dominoList.size();
+    }
 
-        if (isDebugMode) {
-            System.out.println("\nExact cover matrix: " + matrix.length + " rows x " + columns + " columns");
-            for (int i = 0; i < matrix.length; i++) {
-                System.out.println("Row " + i + ": " + Arrays.toString(matrix[i]));
-            }
-        }
+    private void addRow(List<int[]> exactCoverMatrix, String node, String peer, int nodePip, int peerPip, int d) {
+        int nodeIndex = model.indexOf(node);
+        int peerIndex = model.indexOf(peer);
+        int dominoIndex = d + nodesList.size();
 
-        solveUsingDLX(matrix);
+        exactCoverMatrix.add(new int[]{Math.min(nodeIndex, peerIndex), Math.max(nodeIndex, peerIndex), dominoIndex});
+        rowPlacements.add(new Placement(node, peer, nodePip, peerPip, d));
     }
 
-    private static void solveUsingDLX(int[][] matrix) {
+    private void solveUsingDLX(int[][] rows, SolutionSink sink, String format, RowOrder rowOrder) throws IOException {
+
+        // Forced placements and placements that would strand a node or domino are settled before the search.
+        // The two orientations of a domino on a pair share their columns, so duplicates are not merged.
+        MatrixPreprocessor preprocessor = MatrixPreprocessor.fromSparseRows(rows, getColumnCount(), false, null);
+        if (isDebugMode) {
+            System.out.println(preprocessor);
+        }
+        if (preprocessor.isInfeasible()) {
+            sink.close();
+            System.out.println("\nNo solution exists.");
+            return;
+        }
+        int[][] reduced = preprocessor.getSparseRows();
 
-        DLX dlx = new DLX(matrix);
-        List<List<Integer>> solutions = new ArrayList<>();
+        // The bit-parallel engine for boards of up to 128 nodes and dominoes, DLX for larger ones
+        ExactCoverSolver engine = ExactCoverSolver.ofSparseRows(reduced, preprocessor.getColumnCount());
+        engine.setPruningHook(preprocessor.wrap(PruningHook.combine(createTilingHook(), createRegionHook())));
+        engine.setRowOrder(rowOrder);
 
-        if(!solveAll) {
-            List<Integer> firstSolution = dlx.solveFirst();
-            if(firstSolution != null) {
-                solutions.add(firstSolution);
-            }
-        } else {
-            solutions = dlx.solve();
-            System.out.println("\nTotal solutions found: " + (solutions != null ? solutions.size() : 0));
-        }
-
-        if (solutions != null && !solutions.isEmpty()) {
-            for (List<Integer> solution : solutions) {
-                System.out.println("\nSolution found! Selected rows: " + solution);
-                System.out.println("\nDomino placements:");
-                for (int rowIndex : solution) {
-                    int[] row = matrix[rowIndex];
-                    List<String> coveredNodes = new ArrayList<>();
-                    Pair<Integer, Integer> usedDomino = null;
-
-                    for (int col = 0; col < row.length; col++) {
-                        if (row[col] == 1) {
-                            if (col < nodesList.size()) {
-                                coveredNodes.add(nodesList.get(col));
-                            } else {
-                                usedDomino = dominoList.get(col - nodesList.size());
-                            }
-                        }
-                    }
-                    System.out.println("  Nodes " + coveredNodes + " <- Domino " + usedDomino);
+        if (isDebugMode) {
+            System.out.println("Exact cover engine: " + engine.getClass().getSimpleName());
+            System.out.println("Estimated search tree size: " + Math.round(DLX.fromSparseRows(reduced, preprocessor.getColumnCount()).estimateTreeSize(100, 1)) + " nodes");
+        }
+
+        ResultRenderEvent render = new ResultRenderEvent();
+        render.begin();
+        long solutionCount;
+        try (sink) {
+            if (!solveAll) {
+                List<Integer> firstSolution = engine.solveFirst();
+                solutionCount = firstSolution == null ? 0 : 1;
+                if (firstSolution != null) {
+                    sink.accept(preprocessor.toOriginal(firstSolution.stream().mapToInt(Integer::intValue).toArray()));
                 }
+            } else {
+                solutionCount = engine.forEachSolution(cover -> {
+                    try {
+                        sink.accept(preprocessor.toOriginal(cover));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
             }
-        } else {
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (render.shouldCommit()) {
+            render.target = format;
+            render.items = (int) Math.min(solutionCount, Integer.MAX_VALUE);
+            render.commit();
+        }
+        if (isDebugMode) {
+            System.out.println("Branches cut by the tiling check: " + engine.getPrunedNodes());
+        }
+
+        if (solveAll) {
+            System.out.println("\nTotal solutions found: " + solutionCount);
+        }
+        if (solutionCount == 0) {
             System.out.println("\nNo solution exists.");
         }
     }
@@ -0,0 +1,432 @@
+package pips_dlx;
+
+import pips.CancellationToken;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_jfr.SearchEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Exact cover with Knuth's dancing cells: the same search as DLX, over sparse sets in flat int
+ * arrays instead of linked nodes.
+ *
+ * The active items (columns) form a sparse set, and so do the active options (rows) of each item:
+ * a segment of one array with the active entries first, a size, and the position of every entry.
+ * Removing an entry swaps it just past the end of the active part and shrinks the size, so the
+ * removed entries stay in place behind it. Undoing a removal is then only growing the size back,
+ * in the reverse order; backtracking writes counters but no links.
+ *
+ * Columns are chosen by the same rule as DLX, fewest active rows. Uncovering leaves the items in
+ * another order than before, so ties can break differently and the node counts of the two engines
+ * differ slightly.
+ */
+public class DancingCells implements ExactCoverSolver {
+
+    // Deadline, cancellation and interrupts are only polled every CHECK_INTERVAL + 1 nodes
+    private static final int CHECK_INTERVAL = 0xFF;
+
+    // Sparse set of active items, and the position of every item in it
+    private final int[] items;
+    private final int[] itemPos;
+    private int activeItems;
+
+    // Cells are the 1s of the matrix, numbered row by row. The cells of option o are
+    // optionStart[o] until optionStart[o + 1]; cellItem and cellOption say where a cell lies.
+    private final int[] optionStart;
+    private final int[] cellItem;
+    private final int[] cellOption;
+    // The options of item i are the cells setCells[setStart[i] .. setStart[i] + setSize[i]),
+    // as a sparse set; cellPos is the position of a cell in the set of its item
+    private final int[] setStart;
+    private final int[] setSize;
+    private final int[] setCells;
+    private final int[] cellPos;
+
+    private final int[] chosen;
+    private int depth;
+
+    private long nodeCount;
+    private long nodeLimit = Long.MAX_VALUE;
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean limitReached;
+    private boolean cancelled;
+    private boolean stopAtFirst;
+    private CancellationToken cancellationToken;
+    private PruningHook pruningHook;
+    private long prunedNodes;
+    private RowOrder rowOrder = RowOrder.MATRIX;
+    private Consumer<int[]> solutionConsumer;
+    private long solutionsFound;
+
+    public DancingCells(int[][] matrix) {
+        int columns = matrix[0].length;
+        int cells = 0;
+        int[] count = new int[columns];
+        for (int[] row : matrix) {
+            for (int col = 0; col < columns; col++) {
+                if (row[col] == 1) {
+                    count[col]++;
+                    cells++;
+                }
+            }
+        }
+
+        items = new int[columns];
+        itemPos = new int[columns];
+        setStart = new int[columns];
+        setSize = new int[columns];
+        for (int col = 0; col < columns; col++) {
+            items[col] = col;
+            itemPos[col] = col;
+            if (col > 0) {
+                setStart[col] = setStart[col - 1] + count[col - 1];
+            }
+        }
+        activeItems = columns;
+
+        optionStart = new int[matrix.length + 1];
+        cellItem = new int[cells];
+        cellOption = new int[cells];
+        setCells = new int[cells];
+        cellPos = new int[cells];
+        int cell = 0;
+        for (int row = 0; row < matrix.length; row++) {
+            optionStart[row] = cell;
+            for (int col = 0; col < columns; col++) {
+                if (matrix[row][col] == 1) {
+                    cellItem[cell] = col;
+                    cellOption[cell] = row;
+                    cellPos[cell] = setSize[col];
+                    setCells[setStart[col] + setSize[col]++] = cell;
+                    cell++;
+                }
+            }
+        }
+        optionStart[matrix.length] = cell;
+        chosen = new int[columns];
+    }
+
+    @Override
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    @Override
+    public void setPruningHook(PruningHook pruningHook) {
+        this.pruningHook = pruningHook;
+    }
+
+    @Override
+    public void setRowOrder(RowOrder rowOrder) {
+        this.rowOrder = rowOrder;
+    }
+
+    @Override
+    public long getPrunedNodes() {
+        return prunedNodes;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public List<List<Integer>> solve() {
+        List<List<Integer>> solutions = new ArrayList<>();
+        forEachSolution(rows -> solutions.add(toList(rows)));
+        return solutions;
+    }
+
+    @Override
+    public List<Integer> solveFirst() {
+        SolveResult<List<Integer>> result = solveFirst(Long.MAX_VALUE);
+        return result.firstSolution();
+    }
+
+    /**
+     * Finds all solutions and hands each one to onSolution as soon as it is found. If onSolution
+     * throws, the sets are left as they were at that solution, so the instance should not be searched again.
+     *
+     * @return the number of solutions found
+     */
+    @Override
+    public long forEachSolution(Consumer<int[]> onSolution) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        run(false, Long.MAX_VALUE, null, onSolution);
+        commitSearch(event, prunedBefore, "all", status(solutionsFound), solutionsFound);
+        return solutionsFound;
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solve(long nodeBudget) {
+        return solveLimited(false, nodeBudget, null);
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solve(Duration budget) {
+        return solveLimited(false, Long.MAX_VALUE, budget);
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solveFirst(long nodeBudget) {
+        return solveLimited(true, nodeBudget, null);
+    }
+
+    @Override
+    public SolveResult<List<Integer>> solveFirst(Duration budget) {
+        return solveLimited(true, Long.MAX_VALUE, budget);
+    }
+
+    private SolveResult<List<Integer>> solveLimited(boolean firstOnly, long nodeBudget, Duration budget) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long prunedBefore = prunedNodes;
+        List<List<Integer>> found = new ArrayList<>();
+        run(firstOnly, nodeBudget, budget, rows -> found.add(toList(rows)));
+        SolveStatus status = status(found.size());
+        commitSearch(event, prunedBefore, firstOnly ? "first" : "all", status, found.size());
+        return new SolveResult<>(status, found, nodeCount, limitReached || cancelled ? -1 : 0);
+    }
+
+    private void run(boolean firstOnly, long nodeBudget, Duration budget, Consumer<int[]> onSolution) {
+        stopAtFirst = firstOnly;
+        nodeLimit = nodeBudget;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+        nodeCount = 0;
+        limitReached = false;
+        cancelled = false;
+        solutionConsumer = onSolution;
+        solutionsFound = 0;
+        try {
+            search();
+        } finally {
+            solutionConsumer = null;
+        }
+    }
+
+    private SolveStatus status(long solutions) {
+        if (cancelled) {
+            return SolveStatus.CANCELLED;
+        }
+        if (limitReached) {
+            return SolveStatus.BUDGET_EXHAUSTED;
+        }
+        return solutions == 0 ? SolveStatus.UNSAT : SolveStatus.SOLVED;
+    }
+
+    private void commitSearch(SearchEvent event, long prunedBefore, String mode, SolveStatus status, long solutions) {
+        if (event.shouldCommit()) {
+            event.engine = "DancingCells";
+            event.mode = mode;
+            event.status = status.name();
+            event.nodes = nodeCount;
+            event.solutions = solutions;
+            event.prunedNodes = prunedNodes - prunedBefore;
+            event.commit();
+        }
+    }
+
+    /**
+     * Always restores the items and options on the way out.
+     *
+     * @return true if the search should stop: a solution was found and stopAtFirst is set,
+     *         or the budget ran out or the search was cancelled
+     */
+    private boolean search() {
+        if (activeItems == 0) {
+            if (isPruned()) {
+                return false;
+            }
+            int[] rows = new int[depth];
+            System.arraycopy(chosen, 0, rows, 0, depth);
+            solutionsFound++;
+            solutionConsumer.accept(rows);
+            return stopAtFirst;
+        }
+        if (++nodeCount > nodeLimit) {
+            limitReached = true;
+            return true;
+        }
+        if ((nodeCount & CHECK_INTERVAL) == 0 && isStopRequested()) {
+            return true;
+        }
+        if (isPruned()) {
+            return false;
+        }
+
+        int item = selectItem();
+        cover(item);
+        boolean stop = false;
+        int start = setStart[item];
+        int[] ordered = rowOrder == RowOrder.MATRIX ? null : orderedCells(item);
+        for (int p = 0; p < setSize[item] && !stop; p++) {
+            int cell = ordered == null ? setCells[start + p] : ordered[p];
+            int option = cellOption[cell];
+            select(option);
+            for (int c = optionStart[option]; c < optionStart[option + 1]; c++) {
+                if (c != cell) {
+                    cover(cellItem[c]);
+                }
+            }
+
+            stop = search();
+
+            for (int c = optionStart[option + 1] - 1; c >= optionStart[option]; c--) {
+                if (c != cell) {
+                    uncover(cellItem[c]);
+                }
+            }
+            deselect();
+        }
+        uncover(item);
+        return stop;
+    }
+
+    // Polled every CHECK_INTERVAL nodes: deadline, cancellation token and thread interrupt
+    private boolean isStopRequested() {
+        if (CancellationToken.shouldStop(cancellationToken)) {
+            cancelled = true;
+            return true;
+        }
+        if (hasDeadline && System.nanoTime() - deadline > 0) {
+            limitReached = true;
+            return true;
+        }
+        return false;
+    }
+
+    // Active cells of a covered item, sorted by the row order of their options
+    private int[] orderedCells(int item) {
+        int start = setStart[item];
+        int size = setSize[item];
+        long[] keys = new long[size];
+        for (int p = 0; p < size; p++) {
+            int cell = setCells[start + p];
+            int option = cellOption[cell];
+            int score = rowOrder.initialScore();
+            for (int c = optionStart[option]; c < optionStart[option + 1]; c++) {
+                if (c != cell) {
+                    score = rowOrder.addColumn(score, setSize[cellItem[c]]);
+                }
+            }
+            keys[p] = RowOrder.sortKey(score, p);
+        }
+        Arrays.sort(keys);
+        int[] cells = new int[size];
+        for (int p = 0; p < size; p++) {
+            cells[p] = setCells[start + (int) keys[p]];
+        }
+        return cells;
+    }
+
+    // MRV heuristic: the active item with the fewest active options
+    private int selectItem() {
+        int best = items[0];
+        int fewest = setSize[best];
+        for (int k = 1; k < activeItems && fewest > 0; k++) {
+            int size = setSize[items[k]];
+            if (size < fewest) {
+                fewest = size;
+                best = items[k];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Removes the item from the active items, and every option containing it from the sets of its other items.
+     */
+    private void cover(int item) {
+        int pos = itemPos[item];
+        int last = items[--activeItems];
+        items[pos] = last;
+        itemPos[last] = pos;
+        items[activeItems] = item;
+        itemPos[item] = activeItems;
+
+        int start = setStart[item];
+        for (int p = 0; p < setSize[item]; p++) {
+            int cell = setCells[start + p];
+            int option = cellOption[cell];
+            for (int c = optionStart[option]; c < optionStart[option + 1]; c++) {
+                if (c != cell) {
+                    hide(c);
+                }
+            }
+        }
+    }
+
+    // Swaps the cell to the end of its item's active options and shrinks the set
+    private void hide(int cell) {
+        int item = cellItem[cell];
+        int start = setStart[item];
+        int pos = cellPos[cell];
+        int lastPos = --setSize[item];
+        int other = setCells[start + lastPos];
+        setCells[start + pos] = other;
+        cellPos[other] = pos;
+        setCells[start + lastPos] = cell;
+        cellPos[cell] = lastPos;
+    }
+
+    /**
+     * Reverses cover(item). The removed entries are still where cover() left them, so only sizes change.
+     */
+    private void uncover(int item) {
+        int start = setStart[item];
+        for (int p = setSize[item] - 1; p >= 0; p--) {
+            int cell = setCells[start + p];
+            int option = cellOption[cell];
+            for (int c = optionStart[option + 1] - 1; c >= optionStart[option]; c--) {
+                if (c != cell) {
+                    setSize[cellItem[c]]++;
+                }
+            }
+        }
+        activeItems++;
+    }
+
+    private void select(int option) {
+        chosen[depth++] = option;
+        if (pruningHook != null) {
+            pruningHook.rowSelected(option);
+        }
+    }
+
+    private void deselect() {
+        int option = chosen[--depth];
+        if (pruningHook != null) {
+            pruningHook.rowDeselected(option);
+        }
+    }
+
+    private boolean isPruned() {
+        if (pruningHook != null && !pruningHook.canExtend()) {
+            prunedNodes++;
+            return true;
+        }
+        return false;
+    }
+
+    private static List<Integer> toList(int[] rows) {
+        List<Integer> list = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            list.add(row);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,474 @@
+package pips_dlx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pips.CancellationToken;
+import pips.PipsPuzzle;
+import pips.RegionConstraint;
+import pips.SolveResult;
+import pips.SolveStatus;
+
+/**
+ * Counts the solutions of a puzzle, or solves it, by splitting the board into independent parts
+ * as the search goes.
+ *
+ * After every placement the empty nodes are split into connected components, linking nodes that
+ * are peers or share a region, so no region straddles two components. Components are searched
+ * separately, but they draw on one domino supply, so each result is kept per set of dominoes
+ * used: a map from used dominoes to the number of ways, with one of them as a witness. Sibling
+ * maps are combined by multiplying the counts of every pair of disjoint sets, which is where the
+ * product of the parts replaces enumerating it. Large components are searched in parallel on a
+ * fork/join pool.
+ *
+ * Both check every region against the pips placed so far, trying each domino both ways round,
+ * so they count and find solutions of the puzzle. A region's empty cells are always in one
+ * component and the rest of its cells are filled, so the parts stay independent. Results are
+ * reused only when the filled cells leave the regions of the component in the same state: the
+ * same partial sum, common pip or pips taken.
+ */
+public class DecomposingCounter {
+
+    private static final int PARALLEL_THRESHOLD = 12;
+    private static final int CACHE_LIMIT = 1 << 18;
+    // Deadline and cancellation are polled every CHECK_INTERVAL + 1 search nodes
+    private static final int CHECK_INTERVAL = 0xFF;
+
+    private final PipsPuzzle model;
+    private final int nodeCount;
+    private final int[][] linked;
+    // Rows of the matrix with both orientations as node, peer, domino, node pip and peer pip,
+    // and the rows covering each node
+    private final int[][] rows;
+    private final int[][] rowsOfNode;
+    private final ForkJoinPool pool;
+    private final AtomicLong splits = new AtomicLong();
+    private final AtomicLong nodes = new AtomicLong();
+    // Results of components already seen with the same dominoes available and the same state of their regions
+    private final Map<List<Object>, Map<BitSet, Ways>> cache = new ConcurrentHashMap<>();
+
+    private CancellationToken cancellationToken;
+    // Settings of the current call
+    private CancellationToken activeToken;
+    private boolean hasDeadline;
+    private long deadline;
+    private volatile boolean stopped;
+    private volatile boolean cancelled;
+
+    /**
+     * Number of covers of a component that use a set of dominoes, and the rows of one of them.
+     */
+    private record Ways(long count, Cover witness) {
+
+        Ways plus(Ways other) {
+            return new Ways(count + other.count, witness);
+        }
+    }
+
+    /**
+     * Rows of a cover as a tree, so that joining the covers of two components takes one node.
+     * A leaf holds a row, an inner node has row -1.
+     */
+    private record Cover(int row, Cover left, Cover right) {
+
+        void addRows(List<Integer> out) {
+            if (row >= 0) {
+                out.add(row);
+            }
+            if (left != null) {
+                left.addRows(out);
+            }
+            if (right != null) {
+                right.addRows(out);
+            }
+        }
+    }
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public DecomposingCounter(JsonNode puzzle) {
+        this(puzzle, ForkJoinPool.commonPool());
+    }
+
+    public DecomposingCounter(JsonNode puzzle, ForkJoinPool pool) {
+        this.pool = pool;
+        DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+        this.model = solver.getModel();
+        this.nodeCount = model.size();
+
+        List<Set<Integer>> links = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            links.add(new LinkedHashSet<>());
+            for (int peer : model.getNeighbors(i)) {
+                links.get(i).add(peer);
+            }
+        }
+        for (RegionConstraint region : model.getRegions()) {
+            for (int cell : region.cells()) {
+                for (int other : region.cells()) {
+                    if (other != cell) {
+                        links.get(cell).add(other);
+                    }
+                }
+            }
+        }
+        this.linked = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            linked[i] = links.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int[][] matrix = solver.buildExactCoverMatrix(true);
+        int rowCount = matrix == null ? 0 : matrix.length;
+        this.rows = new int[rowCount][];
+        List<List<Integer>> byNode = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            byNode.add(new ArrayList<>());
+        }
+        for (int r = 0; r < rowCount; r++) {
+            Placement placement = solver.getPlacement(r);
+            rows[r] = new int[]{model.indexOf(placement.node()), model.indexOf(placement.peer()), placement.dominoIndex(),
+                    placement.nodePip(), placement.peerPip()};
+            byNode.get(rows[r][0]).add(r);
+            byNode.get(rows[r][1]).add(r);
+        }
+        this.rowsOfNode = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++) {
+            rowsOfNode[i] = byNode.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        JsonNode input = new ObjectMapper().readTree(new File(file));
+        for (JsonNode puzzle : input.get("pips_medium_puzzles")) {
+            long start = System.currentTimeMillis();
+            DecomposingCounter counter = new DecomposingCounter(puzzle);
+            long count = counter.countSolutions();
+            SolveResult<Map<String, Integer>> result = counter.solve(Duration.ofSeconds(10));
+            System.out.println("Solutions: " + count + ", component splits: " + counter.getSplits()
+                    + ", solve: " + result.status() + " " + result.firstSolution()
+                    + ", finished in " + (System.currentTimeMillis() - start) + " ms.");
+        }
+    }
+
+    /**
+     * Sets the token polled during solve(). The parts are searched on pool threads, so interrupting
+     * the calling thread only stops a solve that has not started yet.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * @return the number of solutions, the same as DLX.solve().size() on the matrix of
+     *         DLXPipsSolver.buildExactCoverMatrix(true) with its tiling and region hooks
+     */
+    public long countSolutions() {
+        Map<BitSet, Ways> ways = search(null, null);
+        return ways.values().stream().mapToLong(Ways::count).sum();
+    }
+
+    /**
+     * Finds a solution that satisfies every region, solving the parts of the board independently.
+     * The whole search space of each part is walked, so unlike the backtracking engines it does not
+     * stop at the first solution, but the parts multiply instead of being enumerated.
+     *
+     * @return the pips of every node, or why there is none; nodesVisited counts search nodes over all parts
+     */
+    public SolveResult<Map<String, Integer>> solve(Duration budget) {
+        Map<BitSet, Ways> ways = search(budget, cancellationToken);
+        if (stopped) {
+            SolveStatus status = cancelled ? SolveStatus.CANCELLED : SolveStatus.BUDGET_EXHAUSTED;
+            return new SolveResult<>(status, List.of(), nodes.get(), -1);
+        }
+        Optional<Ways> any = ways.values().stream().findFirst();
+        if (any.isEmpty()) {
+            return new SolveResult<>(SolveStatus.UNSAT, List.of(), nodes.get(), 0);
+        }
+        List<Integer> cover = new ArrayList<>();
+        any.get().witness().addRows(cover);
+        Map<String, Integer> values = new HashMap<>();
+        for (int r : cover) {
+            values.put(model.getNode(rows[r][0]), rows[r][3]);
+            values.put(model.getNode(rows[r][1]), rows[r][4]);
+        }
+        return new SolveResult<>(SolveStatus.SOLVED, List.of(values), nodes.get(), 0);
+    }
+
+    private Map<BitSet, Ways> search(Duration budget, CancellationToken token) {
+        activeToken = token;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+        stopped = false;
+        cancelled = false;
+        splits.set(0);
+        nodes.set(0);
+        cache.clear();
+        if (rows.length == 0) {
+            return Map.of();
+        }
+        BitSet all = new BitSet(nodeCount);
+        all.set(0, nodeCount);
+        BitSet dominoes = new BitSet();
+        for (int[] row : rows) {
+            dominoes.set(row[2]);
+        }
+        int[] values = new int[nodeCount];
+        Arrays.fill(values, RegionConstraint.UNASSIGNED);
+        if (CancellationToken.shouldStop(activeToken)) {
+            stopped = true;
+            cancelled = true;
+            return Map.of();
+        }
+        return pool.invoke(new ComponentTask(all, dominoes, values));
+    }
+
+    /**
+     * @return the number of times the empty nodes fell apart into several components in the last count or solve
+     */
+    public long getSplits() {
+        return splits.get();
+    }
+
+    /**
+     * Searches one set of empty nodes with the available dominoes, keyed by the set of dominoes
+     * each cover uses.
+     */
+    private final class ComponentTask extends RecursiveTask<Map<BitSet, Ways>> {
+        private static final long serialVersionUID = 1L;
+
+        private final BitSet empty;
+        private final BitSet available;
+        // Pips placed so far, indexed by node; this task's own copy
+        private final int[] values;
+
+        ComponentTask(BitSet empty, BitSet available, int[] values) {
+            this.empty = empty;
+            this.available = available;
+            this.values = values;
+        }
+
+        @Override
+        protected Map<BitSet, Ways> compute() {
+            return searchComponents(empty, available);
+        }
+
+        private Map<BitSet, Ways> search(BitSet empty, BitSet available) {
+            if (empty.isEmpty()) {
+                return Map.of(new BitSet(), new Ways(1, null));
+            }
+            if (empty.cardinality() % 2 != 0 || empty.cardinality() / 2 > available.cardinality() || isStopRequested()) {
+                return Map.of();
+            }
+            List<Object> key = List.of(empty, available, regionStates(empty));
+            Map<BitSet, Ways> cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+
+            // Branch on the node with the fewest usable rows
+            int branchNode = -1;
+            int fewest = Integer.MAX_VALUE;
+            for (int node = empty.nextSetBit(0); node >= 0; node = empty.nextSetBit(node + 1)) {
+                int usable = 0;
+                for (int r : rowsOfNode[node]) {
+                    if (isUsable(r, empty, available)) {
+                        usable++;
+                    }
+                }
+                if (usable < fewest) {
+                    fewest = usable;
+                    branchNode = node;
+                }
+                if (usable == 0) {
+                    return Map.of();
+                }
+            }
+
+            Map<BitSet, Ways> result = new HashMap<>();
+            for (int r : rowsOfNode[branchNode]) {
+                if (!isUsable(r, empty, available)) {
+                    continue;
+                }
+                int[] row = rows[r];
+                BitSet restEmpty = (BitSet) empty.clone();
+                restEmpty.clear(row[0]);
+                restEmpty.clear(row[1]);
+                BitSet restAvailable = (BitSet) available.clone();
+                restAvailable.clear(row[2]);
+
+                values[row[0]] = row[3];
+                values[row[1]] = row[4];
+                Cover placed = new Cover(r, null, null);
+                for (Map.Entry<BitSet, Ways> entry : searchComponents(restEmpty, restAvailable).entrySet()) {
+                    BitSet used = (BitSet) entry.getKey().clone();
+                    used.set(row[2]);
+                    Ways ways = entry.getValue();
+                    result.merge(used, new Ways(ways.count(), joinCovers(placed, ways.witness())), Ways::plus);
+                }
+                values[row[0]] = RegionConstraint.UNASSIGNED;
+                values[row[1]] = RegionConstraint.UNASSIGNED;
+            }
+            // A stopped search misses covers, so its result is not reused
+            if (cache.size() < CACHE_LIMIT && !stopped) {
+                cache.put(key, result);
+            }
+            return result;
+        }
+
+        private Map<BitSet, Ways> searchComponents(BitSet empty, BitSet available) {
+            List<BitSet> components = components(empty);
+            if (components.size() <= 1) {
+                return search(empty, available);
+            }
+            splits.incrementAndGet();
+            for (BitSet component : components) {
+                if (component.cardinality() % 2 != 0) {
+                    return Map.of();
+                }
+            }
+
+            List<ComponentTask> forked = new ArrayList<>();
+            List<Map<BitSet, Ways>> parts = new ArrayList<>();
+            for (BitSet component : components) {
+                if (component.cardinality() >= PARALLEL_THRESHOLD) {
+                    ComponentTask task = new ComponentTask(component, available, values.clone());
+                    task.fork();
+                    forked.add(task);
+                } else {
+                    parts.add(search(component, available));
+                }
+            }
+            for (ComponentTask task : forked) {
+                parts.add(task.join());
+            }
+
+            Map<BitSet, Ways> combined = Map.of(new BitSet(), new Ways(1, null));
+            for (Map<BitSet, Ways> part : parts) {
+                combined = combineDisjoint(combined, part);
+                if (combined.isEmpty()) {
+                    break;
+                }
+            }
+            return combined;
+        }
+
+        private boolean isUsable(int r, BitSet empty, BitSet available) {
+            int[] row = rows[r];
+            if (!empty.get(row[0]) || !empty.get(row[1]) || !available.get(row[2])) {
+                return false;
+            }
+            values[row[0]] = row[3];
+            values[row[1]] = row[4];
+            boolean fits = model.isConsistent(row[0], values) && model.isConsistent(row[1], values);
+            values[row[0]] = RegionConstraint.UNASSIGNED;
+            values[row[1]] = RegionConstraint.UNASSIGNED;
+            return fits;
+        }
+
+        // What the filled cells of each region of the component leave for its empty cells, in a fixed order
+        private List<Integer> regionStates(BitSet component) {
+            List<Integer> states = new ArrayList<>();
+            BitSet seen = new BitSet();
+            for (int node = component.nextSetBit(0); node >= 0; node = component.nextSetBit(node + 1)) {
+                for (int index : model.getRegionsOfNode(node)) {
+                    if (seen.get(index)) {
+                        continue;
+                    }
+                    seen.set(index);
+                    RegionConstraint region = model.getRegions().get(index);
+                    int state = 0;
+                    for (int cell : region.cells()) {
+                        if (component.get(cell)) {
+                            continue;
+                        }
+                        if (region instanceof RegionConstraint.AllEqual) {
+                            state = values[cell];
+                        } else if (region instanceof RegionConstraint.AllDifferent) {
+                            state |= 1 << values[cell];
+                        } else if (!(region instanceof RegionConstraint.Any)) {
+                            state += values[cell];
+                        }
+                    }
+                    states.add(state);
+                }
+            }
+            return states;
+        }
+    }
+
+    // Polled every CHECK_INTERVAL + 1 search nodes, on whichever thread gets there
+    private boolean isStopRequested() {
+        if ((nodes.incrementAndGet() & CHECK_INTERVAL) == 0 && !stopped) {
+            if (activeToken != null && activeToken.isCancelled()) {
+                cancelled = true;
+                stopped = true;
+            } else if (hasDeadline && System.nanoTime() - deadline > 0) {
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    private static Cover joinCovers(Cover a, Cover b) {
+        return a == null ? b : b == null ? a : new Cover(-1, a, b);
+    }
+
+    /**
+     * Multiplies the counts of every pair of entries whose domino sets do not overlap, keeping one
+     * witness for each union.
+     */
+    private static Map<BitSet, Ways> combineDisjoint(Map<BitSet, Ways> left, Map<BitSet, Ways> right) {
+        Map<BitSet, Ways> combined = new HashMap<>();
+        for (Map.Entry<BitSet, Ways> a : left.entrySet()) {
+            for (Map.Entry<BitSet, Ways> b : right.entrySet()) {
+                if (!a.getKey().intersects(b.getKey())) {
+                    BitSet union = (BitSet) a.getKey().clone();
+                    union.or(b.getKey());
+                    Ways ways = new Ways(a.getValue().count() * b.getValue().count(),
+                            joinCovers(a.getValue().witness(), b.getValue().witness()));
+                    combined.merge(union, ways, Ways::plus);
+                }
+            }
+        }
+        return combined;
+    }
+
+    private List<BitSet> components(BitSet empty) {
+        List<BitSet> components = new ArrayList<>();
+        BitSet seen = new BitSet(nodeCount);
+        int[] queue = new int[nodeCount];
+        for (int start = empty.nextSetBit(0); start >= 0; start = empty.nextSetBit(start + 1)) {
+            if (seen.get(start)) {
+                continue;
+            }
+            BitSet component = new BitSet(nodeCount);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            seen.set(start);
+            while (head < tail) {
+                int node = queue[head++];
+                component.set(node);
+                for (int next : linked[node]) {
+                    if (empty.get(next) && !seen.get(next)) {
+                        seen.set(next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+}
@@ -0,0 +1,87 @@
+package pips_dlx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares the exact cover engines on the bundled puzzles. Each engine enumerates every cover of
+ * the default matrix (no pruning hooks, solutions counted but not kept) on a fresh instance,
+ * after warm-up runs, and the median time of the measured runs is reported. Solution counts must
+ * agree between engines; a mismatch is flagged in the table.
+ *
+ * Usage: ExactCoverBenchmark [runs] [puzzleFile...]
+ */
+public class ExactCoverBenchmark {
+
+    private static final int WARMUP_RUNS = 5;
+    private static final String[] DEFAULT_FILES = {
+            "src/main/resources/all_pips.json",
+            "src/main/resources/pips_medium.json",
+            "src/main/resources/pips_modified.json",
+            "src/main/resources/pips_hard.json"
+    };
+
+    public static void main(String[] args) throws IOException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 15;
+        String[] files = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : DEFAULT_FILES;
+
+        Map<String, Function<int[][], ExactCoverSolver>> engines = new LinkedHashMap<>();
+        engines.put("DLX", DLX::new);
+        engines.put("DancingCells", DancingCells::new);
+        engines.put("BitExactCover", matrix -> BitExactCover.fits(matrix) ? new BitExactCover(matrix) : new DLX(matrix));
+
+        System.out.printf("%-24s %6s %10s", "puzzle", "rows", "solutions");
+        engines.keySet().forEach(engine -> System.out.printf(" %22s", engine + " ms / nodes"));
+        System.out.println();
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (String file : files) {
+            JsonNode puzzles = mapper.readTree(new File(file)).get("pips_medium_puzzles");
+            String name = new File(file).getName().replace(".json", "");
+            for (int p = 0; p < puzzles.size(); p++) {
+                int[][] matrix = new DLXPipsSolver(puzzles.get(p)).buildExactCoverMatrix();
+                if (matrix == null) {
+                    continue;
+                }
+                StringBuilder row = new StringBuilder();
+                long expected = -1;
+                boolean mismatch = false;
+                for (Map.Entry<String, Function<int[][], ExactCoverSolver>> engine : engines.entrySet()) {
+                    long[] nanos = new long[runs];
+                    long solutions = 0;
+                    long nodes = 0;
+                    for (int run = -WARMUP_RUNS; run < runs; run++) {
+                        ExactCoverSolver solver = engine.getValue().apply(matrix);
+                        long start = System.nanoTime();
+                        solutions = solver.forEachSolution(rows -> {
+                        });
+                        long elapsed = System.nanoTime() - start;
+                        nodes = solver.getNodeCount();
+                        if (run >= 0) {
+                            nanos[run] = elapsed;
+                        }
+                    }
+                    Arrays.sort(nanos);
+                    double millis = nanos[runs / 2] / 1e6;
+                    totals.merge(engine.getKey(), millis, Double::sum);
+                    mismatch |= expected >= 0 && expected != solutions;
+                    expected = solutions;
+                    row.append(String.format(" %12.2f / %7d", millis, nodes));
+                }
+                System.out.printf("%-24s %6d %10d%s%s%n", name + " #" + p, matrix.length, expected, row,
+                        mismatch ? "  solution counts differ" : "");
+            }
+        }
+        System.out.printf("%-42s", "total of medians");
+        totals.values().forEach(total -> System.out.printf(" %12.2f %9s", total, ""));
+        System.out.println();
+    }
+}
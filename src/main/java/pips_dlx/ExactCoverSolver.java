@@ -0,0 +1,98 @@
+package pips_dlx;
+
+import pips.CancellationToken;
+import pips.SolveResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An engine for exact cover: choosing rows of a 0/1 matrix so that every column has exactly one 1
+ * among them. Solutions are the indices of the chosen rows. DLX and DancingCells take the same
+ * matrix and give the same answers, so callers can switch engines without touching how the
+ * matrix is built or how rows are read back.
+ */
+public interface ExactCoverSolver {
+
+    /**
+     * @return a BitExactCover when the matrix has at most BitExactCover.MAX_COLUMNS columns, which
+     *         covers the daily boards, and a DLX otherwise
+     */
+    static ExactCoverSolver of(int[][] matrix) {
+        return BitExactCover.fits(matrix) ? new BitExactCover(matrix) : new DLX(matrix);
+    }
+
+    /**
+     * Same as of(int[][]) for rows given as the ascending columns of their ones. Only a matrix
+     * small enough for BitExactCover is ever built in full.
+     */
+    static ExactCoverSolver ofSparseRows(int[][] rows, int columns) {
+        if (columns > BitExactCover.MAX_COLUMNS) {
+            return DLX.fromSparseRows(rows, columns);
+        }
+        int[][] matrix = new int[rows.length][columns];
+        for (int r = 0; r < rows.length; r++) {
+            for (int column : rows[r]) {
+                matrix[r][column] = 1;
+            }
+        }
+        return new BitExactCover(matrix);
+    }
+
+    /**
+     * Sets the token polled by every search. Interrupting the solving thread stops the search as well.
+     */
+    void setCancellationToken(CancellationToken cancellationToken);
+
+    /**
+     * Installs a hook that can cut branches the matrix does not rule out on its own.
+     */
+    void setPruningHook(PruningHook pruningHook);
+
+    /**
+     * Sets the order in which the rows of the branching column are tried, RowOrder.MATRIX by default.
+     */
+    void setRowOrder(RowOrder rowOrder);
+
+    /**
+     * Finds all solutions. If the search is cancelled, the solutions found so far are returned.
+     */
+    List<List<Integer>> solve();
+
+    /**
+     * @return the rows of one solution, or null if there is none
+     */
+    List<Integer> solveFirst();
+
+    /**
+     * Finds all solutions and hands each one to onSolution as soon as it is found.
+     *
+     * @return the number of solutions found
+     */
+    long forEachSolution(Consumer<int[]> onSolution);
+
+    /**
+     * Finds all solutions, visiting at most nodeBudget search nodes.
+     */
+    SolveResult<List<Integer>> solve(long nodeBudget);
+
+    /**
+     * Finds all solutions, stopping once the wall-clock budget has elapsed.
+     */
+    SolveResult<List<Integer>> solve(Duration budget);
+
+    SolveResult<List<Integer>> solveFirst(long nodeBudget);
+
+    SolveResult<List<Integer>> solveFirst(Duration budget);
+
+    /**
+     * @return the number of search nodes visited by the last search
+     */
+    long getNodeCount();
+
+    /**
+     * @return the number of search nodes cut by the pruning hook since the instance was created
+     */
+    long getPrunedNodes();
+}
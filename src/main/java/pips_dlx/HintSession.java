@@ -0,0 +1,177 @@
+package pips_dlx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import pips.CancellationToken;
+import pips.SolveResult;
+import pips.SolveStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers "is this partial board still solvable, and what is a good next move?" while a player
+ * fills in a puzzle.
+ *
+ * The exact cover matrix and its links are built once per session. Each domino the player lays is
+ * selected in DLX up front, and taking it back deselects it, so a check only searches the part of
+ * the board that is still empty. The matrix has a row for both ways round of every domino and the
+ * search checks region expressions as it goes, so any board the player can lay is recognised and
+ * every completion returned is a valid solution.
+ */
+public class HintSession {
+
+    private final DLXPipsSolver solver;
+    private final DLX dlx;
+    // Rows of the matrix for each pair of nodes, keyed by both orders of the pair
+    private final Map<String, List<Integer>> rowsByCells = new HashMap<>();
+    private final List<Integer> placedRows = new ArrayList<>();
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public HintSession(JsonNode puzzle) {
+        this.solver = new DLXPipsSolver(puzzle);
+        int[][] matrix = solver.buildExactCoverMatrix(true);
+        if (matrix == null) {
+            this.dlx = null;
+            return;
+        }
+        this.dlx = new DLX(matrix);
+        dlx.setPruningHook(PruningHook.combine(solver.createTilingHook(), solver.createRegionHook()));
+        for (int r = 0; r < matrix.length; r++) {
+            Placement placement = solver.getPlacement(r);
+            rowsByCells.computeIfAbsent(cellsKey(placement.node(), placement.peer()), k -> new ArrayList<>()).add(r);
+            rowsByCells.computeIfAbsent(cellsKey(placement.peer(), placement.node()), k -> new ArrayList<>()).add(r);
+        }
+    }
+
+    private static String cellsKey(String node, String peer) {
+        return node + "|" + peer;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        if (dlx != null) {
+            dlx.setCancellationToken(cancellationToken);
+        }
+    }
+
+    /**
+     * Lays a domino showing nodePip on node and peerPip on peer. Any unused domino with those pips is taken.
+     *
+     * @return false, leaving the board unchanged, if no unused domino with those pips can go there:
+     *         the nodes are not neighbours or already covered, the placement breaks a region on its own,
+     *         or every matching domino is already on the board
+     */
+    public boolean place(String node, int nodePip, String peer, int peerPip) {
+        for (int r : rowsByCells.getOrDefault(cellsKey(node, peer), List.of())) {
+            Placement placement = solver.getPlacement(r);
+            boolean matches = placement.node().equals(node)
+                    ? placement.nodePip() == nodePip && placement.peerPip() == peerPip
+                    : placement.nodePip() == peerPip && placement.peerPip() == nodePip;
+            if (matches && dlx.selectRow(r)) {
+                placedRows.add(r);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the domino covering the node. Dominoes laid after it are lifted and laid again.
+     *
+     * @return false if no domino covers the node
+     */
+    public boolean takeBack(String node) {
+        int index = -1;
+        for (int i = 0; i < placedRows.size(); i++) {
+            Placement placement = solver.getPlacement(placedRows.get(i));
+            if (placement.node().equals(node) || placement.peer().equals(node)) {
+                index = i;
+            }
+        }
+        if (index < 0) {
+            return false;
+        }
+        List<Integer> later = new ArrayList<>(placedRows.subList(index + 1, placedRows.size()));
+        while (placedRows.size() > index) {
+            dlx.deselectRow();
+            placedRows.remove(placedRows.size() - 1);
+        }
+        for (int r : later) {
+            dlx.selectRow(r);
+            placedRows.add(r);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the domino laid last.
+     *
+     * @return false if the board is empty
+     */
+    public boolean undo() {
+        if (placedRows.isEmpty()) {
+            return false;
+        }
+        dlx.deselectRow();
+        placedRows.remove(placedRows.size() - 1);
+        return true;
+    }
+
+    /**
+     * @return the dominoes on the board, in the order they were laid
+     */
+    public List<Placement> getPlaced() {
+        List<Placement> placed = new ArrayList<>();
+        for (int r : placedRows) {
+            placed.add(solver.getPlacement(r));
+        }
+        return Collections.unmodifiableList(placed);
+    }
+
+    /**
+     * Searches for one way to finish the board, visiting at most nodeBudget search nodes.
+     *
+     * @return SOLVED with the placements still missing, UNSAT if the board cannot be finished,
+     *         or BUDGET_EXHAUSTED / CANCELLED if the search stopped before deciding
+     */
+    public SolveResult<List<Placement>> complete(long nodeBudget) {
+        return toPlacements(dlx == null ? null : dlx.solveFirst(nodeBudget));
+    }
+
+    public SolveResult<List<Placement>> complete(Duration budget) {
+        return toPlacements(dlx == null ? null : dlx.solveFirst(budget));
+    }
+
+    /**
+     * @return a placement that leads to a solution from the current board, or null if there is none
+     *         or the search ran out of time
+     */
+    public Placement hint(Duration budget) {
+        SolveResult<List<Placement>> result = complete(budget);
+        if (result.solutions().isEmpty() || result.solutions().get(0).isEmpty()) {
+            return null;
+        }
+        return result.solutions().get(0).get(0);
+    }
+
+    private SolveResult<List<Placement>> toPlacements(SolveResult<List<Integer>> result) {
+        if (result == null) {
+            return new SolveResult<>(SolveStatus.UNSAT, List.of(), 0, 0);
+        }
+        List<List<Placement>> completions = new ArrayList<>();
+        for (List<Integer> rows : result.solutions()) {
+            // The rows laid by the player come first in every solution
+            List<Placement> missing = new ArrayList<>();
+            for (int r : rows.subList(placedRows.size(), rows.size())) {
+                missing.add(solver.getPlacement(r));
+            }
+            completions.add(missing);
+        }
+        return new SolveResult<>(result.status(), completions, result.nodesVisited(), result.estimatedRemainingNodes());
+    }
+}
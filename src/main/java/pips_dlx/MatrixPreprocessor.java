@@ -0,0 +1,380 @@
+package pips_dlx;
+
+import pips.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Simplifies an exact cover matrix before the search, with reductions that keep every cover:
+ *
+ * - a column with a single row forces that row: it is taken out of the matrix together with its
+ *   columns and every row sharing a column with it
+ * - a row that shares a column with every row of some other column is removed, since choosing it
+ *   would leave that column uncoverable
+ * - rows with the same columns are merged into the first of them
+ *
+ * The reductions feed each other, so they are repeated until none applies. The reduced matrix
+ * keeps the remaining rows and columns in their original order; toOriginal() turns one of its
+ * covers back into rows of the original matrix, forced rows included, and wrap() lets a pruning
+ * hook written for the original matrix run on the reduced one.
+ *
+ * Merged rows stand for each other, so a cover that uses one of them stands for the covers using
+ * its duplicates instead, which are not found separately. Pass mergeDuplicates = false when the
+ * rows differ in something a hook looks at, like the pip orientation of a placement.
+ *
+ * Rows are kept as lists of their columns and columns as lists of their rows, so memory grows
+ * with the number of ones rather than with the square of the rows. A row blocking a column must
+ * share a column with the column's first row, so only those rows are tried for each column.
+ * fromSparseRows() takes the rows of a large board without a dense matrix, and getSparseRows()
+ * gives the reduced matrix back the same way.
+ *
+ * On large boards the reductions take seconds, so they can be given a cancellation token. A
+ * cancelled preprocessor stops reducing and keeps what it has; its matrix still has every cover.
+ */
+public class MatrixPreprocessor {
+
+    private final int originalRows;
+    private final int originalColumns;
+    private final int[][] reducedRows;
+    private int[][] reduced;
+    // Original index of each row and column of the reduced matrix
+    private final int[] rowMap;
+    private final int[] columnMap;
+    private final List<Integer> forcedRows = new ArrayList<>();
+    private final boolean infeasible;
+    private boolean cancelled;
+    private int duplicateRows;
+    private int blockingRows;
+    private int conflictingRows;
+
+    public MatrixPreprocessor(int[][] matrix) {
+        this(matrix, true);
+    }
+
+    public MatrixPreprocessor(int[][] matrix, boolean mergeDuplicates) {
+        this(matrix, mergeDuplicates, null);
+    }
+
+    /**
+     * @param cancellationToken Polled once per column while reducing; interrupting the thread
+     *                          stops the reductions as well
+     */
+    public MatrixPreprocessor(int[][] matrix, boolean mergeDuplicates, CancellationToken cancellationToken) {
+        this(toSparseRows(matrix), matrix[0].length, mergeDuplicates, cancellationToken);
+    }
+
+    /**
+     * Same as the constructor for rows given as the ascending columns of their ones, such as those
+     * of DLXPipsSolver.buildSparseRows().
+     *
+     * @param columns Number of columns of the matrix
+     */
+    public static MatrixPreprocessor fromSparseRows(int[][] rows, int columns, boolean mergeDuplicates,
+                                                    CancellationToken cancellationToken) {
+        return new MatrixPreprocessor(rows, columns, mergeDuplicates, cancellationToken);
+    }
+
+    private static int[][] toSparseRows(int[][] matrix) {
+        int[][] rows = new int[matrix.length][];
+        for (int r = 0; r < matrix.length; r++) {
+            int[] cells = matrix[r];
+            rows[r] = IntStream.range(0, cells.length).filter(c -> cells[c] == 1).toArray();
+        }
+        return rows;
+    }
+
+    private MatrixPreprocessor(int[][] rowColumns, int columnCount, boolean mergeDuplicates, CancellationToken cancellationToken) {
+        originalRows = rowColumns.length;
+        originalColumns = columnCount;
+        int[] sizes = new int[originalColumns];
+        for (int[] cols : rowColumns) {
+            for (int c : cols) {
+                sizes[c]++;
+            }
+        }
+        int[][] columnRows = new int[originalColumns][];
+        for (int c = 0; c < originalColumns; c++) {
+            columnRows[c] = new int[sizes[c]];
+            sizes[c] = 0;
+        }
+        BitSet rows = new BitSet(originalRows);
+        for (int r = 0; r < originalRows; r++) {
+            for (int c : rowColumns[r]) {
+                columnRows[c][sizes[c]++] = r;
+            }
+            // Rows without a 1 are never part of a cover
+            if (rowColumns[r].length > 0) {
+                rows.set(r);
+            }
+        }
+        BitSet columns = new BitSet(originalColumns);
+        columns.set(0, originalColumns);
+
+        if (mergeDuplicates) {
+            // Removing rows never changes the columns of the others, so one pass finds every duplicate
+            Map<List<Integer>, Integer> seen = new HashMap<>();
+            for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1)) {
+                if (seen.putIfAbsent(Arrays.stream(rowColumns[r]).boxed().toList(), r) != null) {
+                    rows.clear(r);
+                    duplicateRows++;
+                }
+            }
+        }
+
+        boolean empty = false;
+        boolean changed = true;
+        while (changed && !empty) {
+            changed = false;
+            for (int c = columns.nextSetBit(0); c >= 0; c = columns.nextSetBit(c + 1)) {
+                if (CancellationToken.shouldStop(cancellationToken)) {
+                    cancelled = true;
+                    break;
+                }
+                int first = -1;
+                int count = 0;
+                for (int r : columnRows[c]) {
+                    if (rows.get(r)) {
+                        first = count++ == 0 ? r : first;
+                    }
+                }
+                if (count == 0) {
+                    empty = true;
+                    break;
+                }
+                if (count == 1) {
+                    forcedRows.add(first);
+                    for (int covered : rowColumns[first]) {
+                        columns.clear(covered);
+                        for (int r : columnRows[covered]) {
+                            if (r != first && rows.get(r)) {
+                                rows.clear(r);
+                                conflictingRows++;
+                            }
+                        }
+                    }
+                    rows.clear(first);
+                    changed = true;
+                } else {
+                    changed |= removeBlockingRows(c, first, rows, rowColumns, columnRows);
+                }
+            }
+            if (cancelled) {
+                break;
+            }
+        }
+        infeasible = empty;
+
+        rowMap = rows.stream().toArray();
+        columnMap = columns.stream().toArray();
+        if (infeasible) {
+            reducedRows = null;
+        } else if (columnMap.length == 0) {
+            // The forced rows cover everything: one empty row, never chosen, keeps the matrix
+            // well formed and every engine finds the single empty cover
+            reducedRows = new int[1][0];
+        } else {
+            int[] columnIndex = new int[originalColumns];
+            Arrays.fill(columnIndex, -1);
+            for (int j = 0; j < columnMap.length; j++) {
+                columnIndex[columnMap[j]] = j;
+            }
+            reducedRows = new int[rowMap.length][];
+            for (int i = 0; i < rowMap.length; i++) {
+                reducedRows[i] = Arrays.stream(rowColumns[rowMap[i]]).map(c -> columnIndex[c]).filter(j -> j >= 0).toArray();
+            }
+        }
+    }
+
+    // Removes the rows outside the column that share a column with each of its rows. Such a row
+    // shares a column with the first of them in particular, so only those rows are tried. The row
+    // of the column that cleared the last candidate usually clears the next one too, so it goes first.
+    private boolean removeBlockingRows(int column, int first, BitSet rows, int[][] rowColumns, int[][] columnRows) {
+        boolean removed = false;
+        int clearing = first;
+        for (int shared : rowColumns[first]) {
+            for (int candidate : columnRows[shared]) {
+                if (!rows.get(candidate) || Arrays.binarySearch(rowColumns[candidate], column) >= 0
+                        || !sharesColumn(rowColumns[candidate], rowColumns[clearing])) {
+                    continue;
+                }
+                boolean blocks = true;
+                for (int r : columnRows[column]) {
+                    if (rows.get(r) && !sharesColumn(rowColumns[candidate], rowColumns[r])) {
+                        blocks = false;
+                        clearing = r;
+                        break;
+                    }
+                }
+                if (blocks) {
+                    rows.clear(candidate);
+                    blockingRows++;
+                    removed = true;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static boolean sharesColumn(int[] a, int[] b) {
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] == b[j]) {
+                return true;
+            }
+            if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the reduced matrix, or null if the reductions showed that no cover exists
+     */
+    public int[][] getMatrix() {
+        if (reduced == null && reducedRows != null) {
+            int columns = columnMap.length;
+            reduced = new int[reducedRows.length][columns];
+            for (int i = 0; i < reducedRows.length; i++) {
+                for (int j : reducedRows[i]) {
+                    reduced[i][j] = 1;
+                }
+            }
+        }
+        return reduced;
+    }
+
+    /**
+     * @return the rows of the reduced matrix as the ascending columns of their ones, or null if
+     *         the reductions showed that no cover exists
+     */
+    public int[][] getSparseRows() {
+        return reducedRows;
+    }
+
+    /**
+     * @return the number of columns of the reduced matrix
+     */
+    public int getColumnCount() {
+        return columnMap.length;
+    }
+
+    public boolean isInfeasible() {
+        return infeasible;
+    }
+
+    /**
+     * @return true if the reductions stopped early because of cancellation or an interrupt
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the original rows that are part of every cover, in the order they were forced
+     */
+    public List<Integer> getForcedRows() {
+        return List.copyOf(forcedRows);
+    }
+
+    /**
+     * @return the original index of a row of the reduced matrix
+     */
+    public int originalRow(int row) {
+        return rowMap[row];
+    }
+
+    /**
+     * @return the original rows of a cover of the reduced matrix, forced rows first
+     */
+    public int[] toOriginal(int[] rows) {
+        int[] original = new int[forcedRows.size() + rows.length];
+        for (int i = 0; i < forcedRows.size(); i++) {
+            original[i] = forcedRows.get(i);
+        }
+        for (int i = 0; i < rows.length; i++) {
+            original[forcedRows.size() + i] = rowMap[rows[i]];
+        }
+        return original;
+    }
+
+    public List<Integer> toOriginal(List<Integer> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Integer> original = new ArrayList<>(forcedRows);
+        for (int row : rows) {
+            original.add(rowMap[row]);
+        }
+        return original;
+    }
+
+    /**
+     * Adapts a hook written for the original matrix to a search on the reduced one. The forced rows
+     * are reported to the hook as selected right away, since every cover contains them.
+     */
+    public PruningHook wrap(PruningHook hook) {
+        for (int row : forcedRows) {
+            hook.rowSelected(row);
+        }
+        return new PruningHook() {
+            @Override
+            public void rowSelected(int row) {
+                hook.rowSelected(rowMap[row]);
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+                hook.rowDeselected(rowMap[row]);
+            }
+
+            @Override
+            public boolean canExtend() {
+                return hook.canExtend();
+            }
+        };
+    }
+
+    public int getRemovedRows() {
+        return originalRows - rowMap.length;
+    }
+
+    public int getRemovedColumns() {
+        return originalColumns - columnMap.length;
+    }
+
+    public int getDuplicateRows() {
+        return duplicateRows;
+    }
+
+    /**
+     * @return the rows removed because choosing them would leave another column uncoverable
+     */
+    public int getBlockingRows() {
+        return blockingRows;
+    }
+
+    /**
+     * @return the rows removed because they share a column with a forced row
+     */
+    public int getConflictingRows() {
+        return conflictingRows;
+    }
+
+    @Override
+    public String toString() {
+        if (infeasible) {
+            return "Preprocessing found a column no row can cover";
+        }
+        return String.format("Preprocessing removed %d of %d rows (%d forced, %d conflicting with them, %d blocking a column, %d duplicates) and %d of %d columns",
+                getRemovedRows(), originalRows, forcedRows.size(), conflictingRows, blockingRows, duplicateRows,
+                getRemovedColumns(), originalColumns);
+    }
+}
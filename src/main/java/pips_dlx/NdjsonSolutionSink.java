@@ -0,0 +1,63 @@
+package pips_dlx;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes one JSON object per line and solution:
+ * {"puzzle":0,"solution":0,"placements":[{"node":"A","peer":"B","nodePip":1,"peerPip":2,"domino":0},...]}
+ * The JSON of every row is built once, up front.
+ */
+public class NdjsonSolutionSink implements SolutionSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private final String linePrefix;
+    private final String[] rowJson;
+    private long solutionCount;
+
+    /**
+     * @param rows Placement of every row of the matrix, see DLXPipsSolver.getPlacements()
+     * @param puzzle Index of the puzzle, written on every line
+     */
+    public NdjsonSolutionSink(OutputStream out, List<Placement> rows, int puzzle) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.linePrefix = "{\"puzzle\":" + puzzle + ",\"solution\":";
+        this.rowJson = new String[rows.size()];
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        for (int r = 0; r < rowJson.length; r++) {
+            Placement placement = rows.get(r);
+            rowJson[r] = "{\"node\":\"" + new String(encoder.quoteAsString(placement.node()))
+                    + "\",\"peer\":\"" + new String(encoder.quoteAsString(placement.peer()))
+                    + "\",\"nodePip\":" + placement.nodePip() + ",\"peerPip\":" + placement.peerPip()
+                    + ",\"domino\":" + placement.dominoIndex() + "}";
+        }
+    }
+
+    @Override
+    public void accept(int[] rows) throws IOException {
+        writer.write(linePrefix);
+        writer.write(Long.toString(solutionCount++));
+        writer.write(",\"placements\":[");
+        for (int i = 0; i < rows.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(rowJson[rows[i]]);
+        }
+        writer.write("]}\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+}
@@ -1,6 +1,8 @@
 package pips_dlx;
 
 import com.google.gson.*;
+import pips_jfr.PuzzleLoadEvent;
+import pips_jfr.ResultRenderEvent;
 
 import java.io.*;
 import java.util.*;
@@ -29,6 +31,42 @@ public class PipsJsonConverter {
         // Get the puzzle data (assuming "hard" key, but could be configurable)
         JsonObject puzzle = input.getAsJsonObject("hard");
 
+        // Build output JSON
+        JsonObject output = new JsonObject();
+        JsonArray puzzlesArray = new JsonArray();
+        puzzlesArray.add(convertPuzzle(puzzle));
+        output.add("pips_medium_puzzles", puzzlesArray);
+
+        // Write output file with UTF-8 encoding, disable HTML escaping for = sign
+        ResultRenderEvent event = new ResultRenderEvent();
+        event.begin();
+        try (OutputStreamWriter writer = new OutputStreamWriter(
+                new FileOutputStream(outputFile), java.nio.charset.StandardCharsets.UTF_8)) {
+            Gson gson = new GsonBuilder()
+                    .setPrettyPrinting()
+                    .disableHtmlEscaping()
+                    .create();
+            gson.toJson(output, writer);
+        }
+        if (event.shouldCommit()) {
+            event.target = "file";
+            event.items = puzzlesArray.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Converts one puzzle in the raw NYT format (dominoes and typed regions of cell indices)
+     * into the node_details format read by the solvers.
+     * The regions are also written as a typed "constraints" list (type, nodes and target), which
+     * PipsPuzzle reads instead of the expressions.
+     *
+     * @param puzzle The raw puzzle, e.g. the "easy", "medium" or "hard" object of a daily file
+     * @return the puzzle in the node_details format
+     */
+    public static JsonObject convertPuzzle(JsonObject puzzle) {
+        PuzzleLoadEvent event = new PuzzleLoadEvent();
+        event.begin();
         // Extract dominoes
         JsonArray dominoes = puzzle.getAsJsonArray("dominoes");
 
@@ -108,6 +146,7 @@ public class PipsJsonConverter {
         }
 
         // Third pass: set expressions and partners from regions
+        JsonArray constraints = new JsonArray();
         for (JsonElement regionEl : regions) {
             JsonObject region = regionEl.getAsJsonObject();
             JsonArray indices = region.getAsJsonArray("indices");
@@ -122,6 +161,16 @@ public class PipsJsonConverter {
                 regionNodes.add(cellToNode.get(cellKey));
             }
 
+            JsonObject constraint = new JsonObject();
+            constraint.addProperty("type", type);
+            JsonArray constraintNodes = new JsonArray();
+            regionNodes.forEach(constraintNodes::add);
+            constraint.add("nodes", constraintNodes);
+            if (target != null) {
+                constraint.addProperty("target", target);
+            }
+            constraints.add(constraint);
+
             // Build expression based on type and target
             String expression = buildExpression(regionNodes, type, target);
 
@@ -146,9 +195,6 @@ public class PipsJsonConverter {
             }
         }
 
-        // Build output JSON
-        JsonObject output = new JsonObject();
-        JsonArray puzzlesArray = new JsonArray();
         JsonObject puzzleOutput = new JsonObject();
 
         puzzleOutput.addProperty("no_of_nodes", allNodes.size());
@@ -160,6 +206,7 @@ public class PipsJsonConverter {
         puzzleOutput.add("nodes", nodesArray);
 
         puzzleOutput.add("node_details", nodeDetails);
+        puzzleOutput.add("constraints", constraints);
         puzzleOutput.add("dominoes", dominoes);
 
         // Add cell mapping for reference (helps understand which node is which cell)
@@ -169,18 +216,14 @@ public class PipsJsonConverter {
         }
         puzzleOutput.add("cell_mapping", cellMapping);
 
-        puzzlesArray.add(puzzleOutput);
-        output.add("pips_medium_puzzles", puzzlesArray);
-
-        // Write output file with UTF-8 encoding, disable HTML escaping for = sign
-        try (OutputStreamWriter writer = new OutputStreamWriter(
-                new FileOutputStream(outputFile), java.nio.charset.StandardCharsets.UTF_8)) {
-            Gson gson = new GsonBuilder()
-                    .setPrettyPrinting()
-                    .disableHtmlEscaping()
-                    .create();
-            gson.toJson(output, writer);
+        if (event.shouldCommit()) {
+            event.format = "nyt";
+            event.nodes = allNodes.size();
+            event.dominoes = dominoes.size();
+            event.regions = regions.size();
+            event.commit();
         }
+        return puzzleOutput;
     }
 
     private static String getNodeName(int index) {
@@ -194,22 +237,23 @@ public class PipsJsonConverter {
         return sb.toString();
     }
 
+    /**
+     * Writes a region as an expression string for readers of the node_details format that do not
+     * use the constraints list. Unequal regions are written as A!=B!=C, meaning all cells differ.
+     */
     private static String buildExpression(List<String> nodes, String type, Integer target) {
-        if (type.equals("empty")) {
+        if (type.equals("empty") || (nodes.size() == 1 && (type.equals("equals") || type.equals("unequal")))) {
             return "ANY";
         }
 
-        if (nodes.size() == 1) {
-            // Single node: X=target
-            return nodes.get(0) + "=" + target;
+        if (type.equals("equals")) {
+            return String.join("=", nodes);
         }
 
-        // Multiple nodes: X+Y+Z=target (for sum type)
-        if (type.equals("sum")) {
-            return String.join("+", nodes) + "=" + target;
+        if (type.equals("unequal")) {
+            return String.join("!=", nodes);
         }
 
-        // For other types like "less" or "greater", adjust as needed
         if (type.equals("less") || type.equals("<")) {
             return String.join("+", nodes) + "<" + target;
         }
@@ -218,7 +262,7 @@ public class PipsJsonConverter {
             return String.join("+", nodes) + ">" + target;
         }
 
-        // Default to sum
+        // Sum: X+Y+Z=target
         return String.join("+", nodes) + "=" + target;
     }
 
@@ -0,0 +1,13 @@
+package pips_dlx;
+
+/**
+ * A domino laid on two neighbouring nodes, as described by one row of the exact cover matrix.
+ *
+ * @param node The node that receives nodePip
+ * @param peer The neighbouring node that receives peerPip
+ * @param nodePip Pip value placed on node
+ * @param peerPip Pip value placed on peer
+ * @param dominoIndex Index of the domino in the puzzle's domino list
+ */
+public record Placement(String node, String peer, int nodePip, int peerPip, int dominoIndex) {
+}
@@ -0,0 +1,49 @@
+package pips_dlx;
+
+/**
+ * Lets a caller cut DLX branches using knowledge the exact cover matrix does not capture.
+ * The search reports every row it selects and deselects, and asks canExtend() before it branches
+ * on the next column and before it accepts a complete cover.
+ */
+public interface PruningHook {
+
+    void rowSelected(int row);
+
+    void rowDeselected(int row);
+
+    /**
+     * @return false if the current partial solution certainly cannot be completed
+     */
+    boolean canExtend();
+
+    /**
+     * @return a hook that informs all the given hooks and cuts a branch if any of them would
+     */
+    static PruningHook combine(PruningHook... hooks) {
+        return new PruningHook() {
+            @Override
+            public void rowSelected(int row) {
+                for (PruningHook hook : hooks) {
+                    hook.rowSelected(row);
+                }
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+                for (PruningHook hook : hooks) {
+                    hook.rowDeselected(row);
+                }
+            }
+
+            @Override
+            public boolean canExtend() {
+                for (PruningHook hook : hooks) {
+                    if (!hook.canExtend()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+}
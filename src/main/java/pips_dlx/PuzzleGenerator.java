@@ -0,0 +1,346 @@
+package pips_dlx;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates solvable Pips boards of any size, for scaling benchmarks.
+ *
+ * A board is grown one domino at a time from a random start, each new domino touching the board
+ * and staying inside a box of about 1.5 times the board's area, so the shape is ragged but compact.
+ * The cells are then cut into connected regions with random types, and the dominoes get random pips
+ * that keep equals and unequal regions true; sum, less and greater targets are read off the pips.
+ * The result is a puzzle in the raw NYT format, including the solution, so it has at least one
+ * solution by construction; convertPuzzle() of PipsJsonConverter turns it into the node_details
+ * format.
+ *
+ * The same settings and seed always produce the same puzzle.
+ *
+ * Usage: PuzzleGenerator [cells] [seed] [outputFile]
+ */
+public class PuzzleGenerator {
+
+    private static final int MAX_PIP = 6;
+    private static final int[][] DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    /**
+     * @param cells Number of cells, rounded up to an even number
+     * @param regionSizeWeights Relative frequency of each region size, index 0 being size 1
+     * @param typeWeights Relative frequency of each region type (sum, less, greater, equals, unequal,
+     *                    empty). Equals and unequal regions of a single cell, unequal regions of more
+     *                    than seven cells and greater regions without pips become sum regions.
+     * @param repetition Chance that a domino repeats the pips of one already used instead of drawing
+     *                   new ones
+     */
+    public record Settings(int cells, double[] regionSizeWeights, Map<String, Double> typeWeights, double repetition) {
+
+        /**
+         * Region sizes and types roughly as in the published puzzles.
+         */
+        public static Settings defaults(int cells) {
+            Map<String, Double> types = new LinkedHashMap<>();
+            types.put("sum", 0.45);
+            types.put("equals", 0.15);
+            types.put("unequal", 0.05);
+            types.put("less", 0.1);
+            types.put("greater", 0.1);
+            types.put("empty", 0.15);
+            return new Settings(cells, new double[]{0.35, 0.35, 0.15, 0.1, 0.05}, types, 0.1);
+        }
+    }
+
+    private final Random random;
+
+    public PuzzleGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int cells = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        String outputFile = args.length > 2 ? args[2] : "target/generated_pips.json";
+
+        JsonObject raw = new PuzzleGenerator(seed).generate(Settings.defaults(cells));
+        JsonObject output = new JsonObject();
+        JsonArray puzzles = new JsonArray();
+        puzzles.add(PipsJsonConverter.convertPuzzle(raw));
+        output.add("pips_medium_puzzles", puzzles);
+        // Raw format next to it, under the key PipsJsonConverter.convert() reads
+        output.add("hard", raw);
+
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8)) {
+            Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+            gson.toJson(output, writer);
+        }
+        System.out.println("Generated a board of " + raw.getAsJsonArray("solution").size() * 2 + " cells in " + outputFile);
+    }
+
+    /**
+     * @return a solvable puzzle in the raw NYT format: dominoes, regions and solution
+     */
+    public JsonObject generate(Settings settings) {
+        int dominoCount = (settings.cells() + 1) / 2;
+        List<int[][]> layout = layDominoes(dominoCount);
+
+        List<List<int[]>> regions = cutRegions(layout, settings.regionSizeWeights());
+        List<String> types = new ArrayList<>();
+        Map<String, Integer> regionOf = new HashMap<>();
+        for (int r = 0; r < regions.size(); r++) {
+            types.add(drawType(regions.get(r).size(), settings.typeWeights()));
+            for (int[] cell : regions.get(r)) {
+                regionOf.put(key(cell), r);
+            }
+        }
+
+        // Pips for both halves of every domino, in the order of layout
+        Map<String, Integer> pips = new HashMap<>();
+        List<int[]> usedTypes = new ArrayList<>();
+        JsonArray dominoes = new JsonArray();
+        for (int[][] domino : layout) {
+            int[] halves = null;
+            if (!usedTypes.isEmpty() && random.nextDouble() < settings.repetition()) {
+                int[] type = usedTypes.get(random.nextInt(usedTypes.size()));
+                if (fits(domino, type[0], type[1], pips, regionOf, regions, types)) {
+                    halves = type;
+                } else if (fits(domino, type[1], type[0], pips, regionOf, regions, types)) {
+                    halves = new int[]{type[1], type[0]};
+                }
+            }
+            if (halves == null) {
+                int first = drawPip(domino[0], pips, regionOf, regions, types);
+                pips.put(key(domino[0]), first);
+                halves = new int[]{first, drawPip(domino[1], pips, regionOf, regions, types)};
+                usedTypes.add(halves);
+            }
+            pips.put(key(domino[0]), halves[0]);
+            pips.put(key(domino[1]), halves[1]);
+            dominoes.add(pair(halves[0], halves[1]));
+        }
+
+        JsonArray regionList = new JsonArray();
+        for (int r = 0; r < regions.size(); r++) {
+            regionList.add(describeRegion(regions.get(r), types.get(r), pips));
+        }
+
+        JsonArray solution = new JsonArray();
+        for (int[][] domino : layout) {
+            JsonArray placed = new JsonArray();
+            placed.add(pair(domino[0][0], domino[0][1]));
+            placed.add(pair(domino[1][0], domino[1][1]));
+            solution.add(placed);
+        }
+
+        JsonObject puzzle = new JsonObject();
+        puzzle.add("dominoes", dominoes);
+        puzzle.add("regions", regionList);
+        puzzle.add("solution", solution);
+        return puzzle;
+    }
+
+    private String drawType(int size, Map<String, Double> typeWeights) {
+        List<String> names = new ArrayList<>(typeWeights.keySet());
+        double[] weights = new double[names.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = typeWeights.get(names.get(i));
+        }
+        String type = names.get(draw(weights));
+        boolean trivial = size == 1 && (type.equals("equals") || type.equals("unequal"));
+        return trivial || (type.equals("unequal") && size > MAX_PIP + 1) ? "sum" : type;
+    }
+
+    /**
+     * @return whether the cells of the domino can take the two values without breaking an equals or unequal region
+     */
+    private static boolean fits(int[][] domino, int first, int second, Map<String, Integer> pips,
+                                Map<String, Integer> regionOf, List<List<int[]>> regions, List<String> types) {
+        if (!allowed(domino[0], pips, regionOf, regions, types).contains(first)) {
+            return false;
+        }
+        pips.put(key(domino[0]), first);
+        boolean fits = allowed(domino[1], pips, regionOf, regions, types).contains(second);
+        pips.remove(key(domino[0]));
+        return fits;
+    }
+
+    private int drawPip(int[] cell, Map<String, Integer> pips,
+                        Map<String, Integer> regionOf, List<List<int[]>> regions, List<String> types) {
+        List<Integer> values = allowed(cell, pips, regionOf, regions, types);
+        return values.get(random.nextInt(values.size()));
+    }
+
+    /**
+     * @return the pips the cell can show given the cells of its region that already have pips
+     */
+    private static List<Integer> allowed(int[] cell, Map<String, Integer> pips,
+                                         Map<String, Integer> regionOf, List<List<int[]>> regions, List<String> types) {
+        int region = regionOf.get(key(cell));
+        Set<Integer> seen = new HashSet<>();
+        for (int[] member : regions.get(region)) {
+            Integer value = pips.get(key(member));
+            if (value != null) {
+                seen.add(value);
+            }
+        }
+        List<Integer> values = new ArrayList<>();
+        for (int v = 0; v <= MAX_PIP; v++) {
+            boolean ok = switch (types.get(region)) {
+                case "equals" -> seen.isEmpty() || seen.contains(v);
+                case "unequal" -> !seen.contains(v);
+                default -> true;
+            };
+            if (ok) {
+                values.add(v);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Grows a connected board of dominoes, each one touching the cells laid before it.
+     */
+    private List<int[][]> layDominoes(int dominoCount) {
+        int side = (int) Math.ceil(Math.sqrt(dominoCount * 3.0));
+        Set<String> used = new HashSet<>();
+        List<int[]> cells = new ArrayList<>();
+        List<int[][]> layout = new ArrayList<>();
+
+        int[] first = {side / 2, side / 2};
+        int[] second = {side / 2, side / 2 + 1};
+        layout.add(new int[][]{first, second});
+        for (int[] cell : new int[][]{first, second}) {
+            used.add(key(cell));
+            cells.add(cell);
+        }
+
+        int failures = 0;
+        while (layout.size() < dominoCount) {
+            int[] from = cells.get(random.nextInt(cells.size()));
+            int[] a = step(from, DIRECTIONS[random.nextInt(4)]);
+            int[] b = step(a, DIRECTIONS[random.nextInt(4)]);
+            if (inside(a, side) && inside(b, side) && !used.contains(key(a)) && !used.contains(key(b)) && !key(a).equals(key(b))) {
+                layout.add(new int[][]{a, b});
+                used.add(key(a));
+                used.add(key(b));
+                cells.add(a);
+                cells.add(b);
+                failures = 0;
+            } else if (++failures > 1000) {
+                // The box is crowded around the board, give it another row and column
+                side++;
+                failures = 0;
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Cuts the board into connected regions with sizes drawn from the weights.
+     */
+    private List<List<int[]>> cutRegions(List<int[][]> layout, double[] sizeWeights) {
+        Map<String, int[]> free = new LinkedHashMap<>();
+        for (int[][] domino : layout) {
+            free.put(key(domino[0]), domino[0]);
+            free.put(key(domino[1]), domino[1]);
+        }
+        List<String> order = new ArrayList<>(free.keySet());
+        Collections.shuffle(order, random);
+
+        List<List<int[]>> regions = new ArrayList<>();
+        for (String start : order) {
+            if (!free.containsKey(start)) {
+                continue;
+            }
+            int size = draw(sizeWeights) + 1;
+            List<int[]> region = new ArrayList<>();
+            region.add(free.remove(start));
+            // Add random free neighbours of the region until it has the drawn size or cannot grow
+            while (region.size() < size) {
+                List<int[]> frontier = new ArrayList<>();
+                for (int[] cell : region) {
+                    for (int[] direction : DIRECTIONS) {
+                        int[] next = step(cell, direction);
+                        if (free.containsKey(key(next))) {
+                            frontier.add(next);
+                        }
+                    }
+                }
+                if (frontier.isEmpty()) {
+                    break;
+                }
+                region.add(free.remove(key(frontier.get(random.nextInt(frontier.size())))));
+            }
+            regions.add(region);
+        }
+        return regions;
+    }
+
+    private JsonObject describeRegion(List<int[]> region, String type, Map<String, Integer> pips) {
+        int sum = 0;
+        JsonArray indices = new JsonArray();
+        for (int[] cell : region) {
+            sum += pips.get(key(cell));
+            indices.add(pair(cell[0], cell[1]));
+        }
+
+        Integer target = switch (type) {
+            case "sum" -> sum;
+            case "less" -> sum + 1 + random.nextInt(3);
+            case "greater" -> sum == 0 ? null : Math.max(0, sum - 1 - random.nextInt(3));
+            default -> null;
+        };
+        if (type.equals("greater") && target == null) {
+            type = "sum";
+            target = sum;
+        }
+
+        JsonObject json = new JsonObject();
+        json.add("indices", indices);
+        if (target != null) {
+            json.addProperty("target", target);
+        }
+        json.addProperty("type", type);
+        return json;
+    }
+
+    private int draw(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double r = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static int[] step(int[] cell, int[] direction) {
+        return new int[]{cell[0] + direction[0], cell[1] + direction[1]};
+    }
+
+    private static boolean inside(int[] cell, int side) {
+        return cell[0] >= 0 && cell[1] >= 0 && cell[0] < side && cell[1] < side;
+    }
+
+    private static String key(int[] cell) {
+        return cell[0] + "," + cell[1];
+    }
+
+    private static JsonArray pair(int first, int second) {
+        JsonArray pair = new JsonArray();
+        pair.add(first);
+        pair.add(second);
+        return pair;
+    }
+}
@@ -0,0 +1,55 @@
+package pips_dlx;
+
+/**
+ * The order in which a search tries the rows of the column it branches on. Only first-solution
+ * searches benefit: enumerating every cover visits the same nodes in any order.
+ *
+ * The scores come from the current sizes of the other columns of each row, that is how many rows
+ * are still left for each node and domino the placement uses, and rows are tried by increasing
+ * score with ties kept in matrix order.
+ */
+public enum RowOrder {
+
+    /**
+     * Rows in the order they were added to the matrix.
+     */
+    MATRIX,
+
+    /**
+     * Rows that remove the fewest other rows first: the sum of the sizes of their other columns
+     * is the smallest, so the most options stay open below them.
+     */
+    LEAST_CONSTRAINING,
+
+    /**
+     * Rows whose scarcest other column has the fewest rows left first, for example the placements
+     * of the domino with the fewest other legal spots. Settling those early avoids spending the
+     * only spot of a domino on another one.
+     */
+    SCARCEST_FIRST;
+
+    int initialScore() {
+        return this == SCARCEST_FIRST ? Integer.MAX_VALUE : 0;
+    }
+
+    /**
+     * @return the score of a row after adding one of its other columns, with size rows left
+     */
+    int addColumn(int score, int size) {
+        return this == SCARCEST_FIRST ? Math.min(score, size) : score + size;
+    }
+
+    /**
+     * @return a key that sorts by score first and by position in the column second
+     */
+    static long sortKey(int score, int position) {
+        return ((long) score << 32) | position;
+    }
+
+    /**
+     * Parses the values of the pips.rowOrder property: matrix, least-constraining or scarcest-first.
+     */
+    public static RowOrder parse(String name) {
+        return valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,166 @@
+package pips_dlx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import pips.PipsSolver;
+import pips.PropagationSolver;
+import pips.SolveStatus;
+import pips_sat.SatPipsSolver;
+
+/**
+ * Measures how the engines scale with board size on boards from PuzzleGenerator.
+ *
+ * For every size each engine solves the same generated board once, with a time budget, and the
+ * harness records the wall-clock time and an upper bound on the peak heap use. An engine that runs out of time or
+ * memory on one size is not run on the larger ones. The results are printed as a table and as a
+ * chart of time against size on a log scale, and written to a CSV file for plotting elsewhere.
+ * DLX runs with the tiling and region hooks, so all engines return real solutions.
+ *
+ * Usage: ScalingBenchmark [maxCells] [timeoutMillis] [seed] [csvFile]
+ */
+public class ScalingBenchmark {
+
+    private static final int[] SIZES = {10, 20, 50, 100, 200, 500, 1000, 2000};
+    private static final int CHART_WIDTH = 50;
+
+    // The peak heap is the sum of the peaks of each heap pool. The pools peak at different times,
+    // so the heap as a whole never held quite that much.
+    private record Measurement(SolveStatus status, long millis, long peakHeapUpperBound) {}
+
+    public static void main(String[] args) throws IOException {
+        int maxCells = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Duration timeout = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 10_000);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        String csvFile = args.length > 3 ? args[3] : "target/scaling.csv";
+
+        Map<String, Function<JsonNode, SolveStatus>> engines = new LinkedHashMap<>();
+        engines.put("DLX", puzzle -> solveWithDlx(puzzle, timeout));
+        engines.put("Backtracking", puzzle -> new PipsSolver(puzzle).solve(timeout).status());
+        engines.put("Propagation", puzzle -> new PropagationSolver(puzzle).solve(timeout).status());
+        engines.put("SAT", puzzle -> new SatPipsSolver(puzzle).solve(timeout).status());
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, List<Measurement>> results = new LinkedHashMap<>();
+        engines.keySet().forEach(engine -> results.put(engine, new ArrayList<>()));
+        List<Integer> sizes = new ArrayList<>();
+        Set<String> stopped = new HashSet<>();
+
+        System.out.printf("%-8s", "cells");
+        engines.keySet().forEach(engine -> System.out.printf(" %28s", engine));
+        System.out.println();
+        for (int cells : SIZES) {
+            if (cells > maxCells) {
+                break;
+            }
+            sizes.add(cells);
+            JsonNode puzzle = mapper.readTree(PipsJsonConverter.convertPuzzle(
+                    new PuzzleGenerator(seed).generate(PuzzleGenerator.Settings.defaults(cells))).toString());
+            // The row is printed once all engines are done, some of them print while solving
+            StringBuilder row = new StringBuilder(String.format("%-8d", cells));
+            for (Map.Entry<String, Function<JsonNode, SolveStatus>> engine : engines.entrySet()) {
+                List<Measurement> measurements = results.get(engine.getKey());
+                Measurement measurement = stopped.contains(engine.getKey()) ? null : measure(engine.getValue(), puzzle);
+                if (measurement != null && measurement.status() != SolveStatus.SOLVED) {
+                    stopped.add(engine.getKey());
+                }
+                measurements.add(measurement);
+                row.append(String.format(" %28s", measurement == null ? "-" : measurement.status() + " "
+                        + measurement.millis() + "ms " + "<=" + measurement.peakHeapUpperBound() / (1 << 20) + "MB"));
+            }
+            System.out.println(row);
+        }
+
+        printChart(sizes, results);
+        writeCsv(csvFile, sizes, results);
+        System.out.println("\nResults written to " + csvFile);
+    }
+
+    private static SolveStatus solveWithDlx(JsonNode puzzle, Duration timeout) {
+        DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+        int[][] matrix = solver.buildExactCoverMatrix(true);
+        if (matrix == null) {
+            return SolveStatus.UNSAT;
+        }
+        DLX dlx = new DLX(matrix);
+        dlx.setPruningHook(PruningHook.combine(solver.createTilingHook(), solver.createRegionHook()));
+        return dlx.solveFirst(timeout).status();
+    }
+
+    /**
+     * Runs one engine after a collection, with the peak usage of the heap pools reset.
+     * Running out of memory counts as an unfinished run.
+     */
+    private static Measurement measure(Function<JsonNode, SolveStatus> engine, JsonNode puzzle) {
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP).toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long start = System.nanoTime();
+        SolveStatus status;
+        try {
+            status = engine.apply(puzzle);
+        } catch (OutOfMemoryError e) {
+            status = SolveStatus.BUDGET_EXHAUSTED;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new Measurement(status, millis, peak);
+    }
+
+    private static void printChart(List<Integer> sizes, Map<String, List<Measurement>> results) {
+        long slowest = 1;
+        for (List<Measurement> measurements : results.values()) {
+            for (Measurement measurement : measurements) {
+                if (measurement != null) {
+                    slowest = Math.max(slowest, measurement.millis());
+                }
+            }
+        }
+        double scale = CHART_WIDTH / Math.log10(slowest + 1.0);
+
+        System.out.println("\nSolve time against board size (log scale, up to " + slowest + " ms; x = did not finish)");
+        for (Map.Entry<String, List<Measurement>> engine : results.entrySet()) {
+            System.out.println(engine.getKey());
+            for (int i = 0; i < sizes.size(); i++) {
+                Measurement measurement = engine.getValue().get(i);
+                if (measurement == null) {
+                    continue;
+                }
+                int bar = (int) Math.round(Math.log10(measurement.millis() + 1.0) * scale);
+                System.out.printf("  %6d |%s%s %d ms%n", sizes.get(i), "#".repeat(bar),
+                        measurement.status() == SolveStatus.SOLVED ? "" : "x", measurement.millis());
+            }
+        }
+    }
+
+    private static void writeCsv(String csvFile, List<Integer> sizes, Map<String, List<Measurement>> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(csvFile)) {
+            writer.println("engine,cells,status,millis,peak_heap_bytes_upper_bound");
+            for (Map.Entry<String, List<Measurement>> engine : results.entrySet()) {
+                for (int i = 0; i < sizes.size(); i++) {
+                    Measurement measurement = engine.getValue().get(i);
+                    if (measurement != null) {
+                        writer.println(engine.getKey() + "," + sizes.get(i) + "," + measurement.status() + ","
+                                + measurement.millis() + "," + measurement.peakHeapUpperBound());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package pips_dlx;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives the solutions of a puzzle as DLX finds them, as row indices of the exact cover matrix.
+ * Implementations decode rows through the placement table of DLXPipsSolver and buffer their
+ * output, so a solution costs a few array lookups and no console round trip.
+ *
+ * close() writes out anything still buffered. Sinks do not close the stream they write to, so
+ * the solutions of several puzzles can go to the same file.
+ */
+@FunctionalInterface
+public interface SolutionSink extends Closeable {
+
+    /**
+     * @param rows Selected rows of one solution
+     */
+    void accept(int[] rows) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * @return a sink that keeps nothing, for when only the number of solutions is wanted
+     */
+    static SolutionSink countOnly() {
+        return rows -> {
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package pips_dlx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Runs every solve path once over a set of puzzles, so that the classes they need (Jackson, Gson,
+ * commons-lang3 and the solvers themselves) are loaded and the hot methods get compiled.
+ *
+ * Used as the training run for the class-data-sharing archive built by the "cds" Maven profile,
+ * and callable in-process by long-running entry points before they take traffic.
+ *
+ * Usage: SolverWarmup [nodeDetailsFile] [rawPuzzleFile] [rounds]
+ */
+public class SolverWarmup {
+
+    public static void main(String[] args) throws IOException {
+        String nodeDetailsFile = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        String rawPuzzleFile = args.length > 1 ? args[1] : "src/main/resources/pips_general.json";
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        long start = System.currentTimeMillis();
+        int solved = warmUp(nodeDetailsFile, rawPuzzleFile, rounds);
+        System.out.println("Warm-up solved " + solved + " puzzles in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    /**
+     * @return the number of puzzles solved across all rounds
+     */
+    public static int warmUp(String nodeDetailsFile, String rawPuzzleFile, int rounds) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode puzzles = mapper.readTree(new File(nodeDetailsFile)).get("pips_medium_puzzles");
+
+        JsonObject rawPuzzles;
+        try (FileReader reader = new FileReader(rawPuzzleFile)) {
+            rawPuzzles = JsonParser.parseReader(reader).getAsJsonObject();
+        }
+
+        int solved = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (JsonNode puzzle : puzzles) {
+                solved += solveOnce(puzzle);
+            }
+            // Daily files hold "easy", "medium" and "hard" puzzles next to metadata such as the print date
+            for (String key : rawPuzzles.keySet()) {
+                if (rawPuzzles.get(key).isJsonObject() && rawPuzzles.getAsJsonObject(key).has("regions")) {
+                    JsonObject converted = PipsJsonConverter.convertPuzzle(rawPuzzles.getAsJsonObject(key));
+                    solved += solveOnce(mapper.readTree(converted.toString()));
+                }
+            }
+        }
+        return solved;
+    }
+
+    private static int solveOnce(JsonNode puzzle) {
+        int[][] matrix = new DLXPipsSolver(puzzle).buildExactCoverMatrix();
+        if (matrix == null) {
+            return 0;
+        }
+        List<Integer> first = ExactCoverSolver.of(matrix).solveFirst();
+        ExactCoverSolver.of(matrix).solve(10_000);
+        return first != null ? 1 : 0;
+    }
+}
@@ -0,0 +1,24 @@
+package pips_jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Turning a region expression string into something that can be checked quickly: a typed
+ * RegionConstraint when a puzzle is loaded, or a truth table in MathExpressionHelper.
+ */
+@Name("pips.ExpressionCompile")
+@Label("Expression Compile")
+@Category("Pips")
+@Description("Compiling a region expression into a typed constraint or truth table")
+public class ExpressionCompileEvent extends jdk.jfr.Event {
+
+    @Label("Expression")
+    public String expression;
+
+    @Label("Result")
+    @Description("Region type or truth table it was compiled into")
+    public String result;
+}
@@ -0,0 +1,27 @@
+package pips_jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One evaluation of an expression string by MathExpressionEvaluator. Answers served from a truth
+ * table are not recorded, so these are the evaluations that still cost a parse.
+ */
+@Name("pips.ExpressionEvaluate")
+@Label("Expression Evaluate")
+@Category("Pips")
+@Description("Expression evaluated by parsing it, either to fill a truth table entry or because it has no table")
+public class ExpressionEvaluateEvent extends jdk.jfr.Event {
+
+    @Label("Expression")
+    public String expression;
+
+    @Label("Table Miss")
+    @Description("True if the answer fills a truth table entry, false if the expression has no usable table")
+    public boolean tableMiss;
+
+    @Label("Satisfied")
+    public boolean satisfied;
+}
@@ -0,0 +1,29 @@
+package pips_jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Building the exact cover matrix of a puzzle in DLXPipsSolver.
+ */
+@Name("pips.MatrixBuild")
+@Label("Matrix Build")
+@Category("Pips")
+@Description("Building the exact cover matrix of a puzzle")
+public class MatrixBuildEvent extends jdk.jfr.Event {
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Columns")
+    public int columns;
+
+    @Label("Both Orientations")
+    public boolean bothOrientations;
+
+    @Label("Region Checks")
+    @Description("Placements checked against the regions of their nodes")
+    public long regionChecks;
+}
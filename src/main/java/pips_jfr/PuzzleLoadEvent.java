@@ -0,0 +1,30 @@
+package pips_jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Reading one puzzle: parsing the node_details format into a PipsPuzzle, or converting a raw NYT
+ * puzzle in PipsJsonConverter.
+ */
+@Name("pips.PuzzleLoad")
+@Label("Puzzle Load")
+@Category("Pips")
+@Description("Parsing or converting one puzzle")
+public class PuzzleLoadEvent extends jdk.jfr.Event {
+
+    @Label("Format")
+    @Description("Format read: node_details or nyt")
+    public String format;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Dominoes")
+    public int dominoes;
+
+    @Label("Regions")
+    public int regions;
+}
@@ -0,0 +1,26 @@
+package pips_jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Turning results into output: solutions written through a SolutionSink by DLXPipsSolver, or
+ * converted puzzles written to a file by PipsJsonConverter. Solutions are written while the search
+ * runs, so for DLXPipsSolver the event spans the search as well.
+ */
+@Name("pips.ResultRender")
+@Label("Result Render")
+@Category("Pips")
+@Description("Writing solutions or converted puzzles as output")
+public class ResultRenderEvent extends jdk.jfr.Event {
+
+    @Label("Target")
+    @Description("console, count, ndjson or binary for solutions, file for converted puzzles")
+    public String target;
+
+    @Label("Items")
+    @Description("Solutions or puzzles written")
+    public int items;
+}
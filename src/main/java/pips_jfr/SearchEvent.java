@@ -0,0 +1,36 @@
+package pips_jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One search of a solving engine, from the call to its return.
+ */
+@Name("pips.Search")
+@Label("Search")
+@Category("Pips")
+@Description("One search of a solving engine")
+public class SearchEvent extends jdk.jfr.Event {
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Mode")
+    @Description("all, first or random")
+    public String mode;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Nodes Visited")
+    public long nodes;
+
+    @Label("Solutions")
+    public long solutions;
+
+    @Label("Pruned Nodes")
+    @Description("Branches cut by a pruning hook or the tiling check")
+    public long prunedNodes;
+}
@@ -0,0 +1,617 @@
+package pips_sat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import pips.CancellationToken;
+import pips.SolveStatus;
+
+/**
+ * Conflict-driven clause learning SAT solver.
+ *
+ * Clauses are given in the DIMACS convention: variables are numbered from 1 and a negative
+ * number is the negated variable. Internally a literal is 2 * var + sign, so that its negation
+ * is literal ^ 1 and it can index the watch lists directly.
+ *
+ * The solver uses two watched literals per clause, VSIDS variable activities kept in a binary
+ * heap, first-UIP conflict analysis with local clause minimisation, phase saving, Luby restarts
+ * and periodic deletion of learnt clauses with a high literal block distance.
+ */
+public class CdclSolver {
+
+    private static final int RESTART_UNIT = 100;
+    private static final double VAR_DECAY = 0.95;
+    private static final int FIRST_REDUCE = 2000;
+    private static final int REDUCE_INCREMENT = 300;
+
+    private int numVars;
+    private final List<int[]> clauses = new ArrayList<>();
+    private final List<Integer> learnts = new ArrayList<>();
+    private int[] lbd = new int[16];
+    private IntVec[] watches = new IntVec[0];
+
+    // Per variable: value (0 unassigned, 1 true, -1 false), decision level, reason clause or -1
+    private byte[] assigns = new byte[0];
+    private int[] level = new int[0];
+    private int[] reason = new int[0];
+    private boolean[] phase = new boolean[0];
+    private boolean[] seen = new boolean[0];
+    private double[] activity = new double[0];
+    private double varIncrement = 1;
+    private final VarHeap heap = new VarHeap();
+
+    private int[] trail = new int[0];
+    private int trailSize;
+    private final IntVec trailLimits = new IntVec();
+    private int propagateHead;
+
+    private boolean unsatisfiable;
+    private boolean[] model;
+
+    private long conflicts;
+    private long decisions;
+    private long propagations;
+    private long nextReduce = FIRST_REDUCE;
+
+    private long conflictLimit;
+    private long deadline;
+    private boolean hasDeadline;
+    private CancellationToken cancellationToken;
+
+    /**
+     * @return a fresh variable, numbered from 1
+     */
+    public int newVar() {
+        int v = numVars++;
+        if (numVars > assigns.length) {
+            int capacity = Math.max(16, assigns.length * 2);
+            assigns = Arrays.copyOf(assigns, capacity);
+            level = Arrays.copyOf(level, capacity);
+            reason = Arrays.copyOf(reason, capacity);
+            phase = Arrays.copyOf(phase, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+            activity = Arrays.copyOf(activity, capacity);
+            trail = Arrays.copyOf(trail, capacity);
+            int oldWatches = watches.length;
+            watches = Arrays.copyOf(watches, capacity * 2);
+            for (int i = oldWatches; i < watches.length; i++) {
+                watches[i] = new IntVec();
+            }
+        }
+        reason[v] = -1;
+        heap.insert(v);
+        return v + 1;
+    }
+
+    public int getNumVars() {
+        return numVars;
+    }
+
+    public int getNumClauses() {
+        return clauses.size() - learnts.size();
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public long getPropagations() {
+        return propagations;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Adds a clause. Must be called between solves, never during one.
+     *
+     * @return false if the formula became trivially unsatisfiable
+     */
+    public boolean addClause(int... dimacs) {
+        if (unsatisfiable) {
+            return false;
+        }
+        cancelUntil(0);
+
+        int[] lits = new int[dimacs.length];
+        int size = 0;
+        for (int d : dimacs) {
+            int lit = toLiteral(d);
+            int value = valueOf(lit);
+            if (value == 1) {
+                return true;
+            }
+            boolean duplicate = false;
+            for (int i = 0; i < size; i++) {
+                if (lits[i] == lit) {
+                    duplicate = true;
+                } else if (lits[i] == (lit ^ 1)) {
+                    return true;
+                }
+            }
+            if (!duplicate && value == 0) {
+                lits[size++] = lit;
+            }
+        }
+
+        if (size == 0) {
+            unsatisfiable = true;
+            return false;
+        }
+        if (size == 1) {
+            enqueue(lits[0], -1);
+            if (propagate() >= 0) {
+                unsatisfiable = true;
+            }
+            return !unsatisfiable;
+        }
+        attach(Arrays.copyOf(lits, size));
+        return true;
+    }
+
+    /**
+     * @return the value of a variable in the last model found
+     */
+    public boolean modelValue(int var) {
+        return model[var - 1];
+    }
+
+    public SolveStatus solve(long conflictBudget) {
+        return solve(conflictBudget, null);
+    }
+
+    public SolveStatus solve(Duration budget) {
+        return solve(Long.MAX_VALUE, budget);
+    }
+
+    private SolveStatus solve(long conflictBudget, Duration budget) {
+        model = null;
+        if (unsatisfiable) {
+            return SolveStatus.UNSAT;
+        }
+        conflictLimit = conflictBudget == Long.MAX_VALUE ? Long.MAX_VALUE : conflicts + conflictBudget;
+        hasDeadline = budget != null;
+        deadline = hasDeadline ? System.nanoTime() + budget.toNanos() : 0;
+
+        SolveStatus status = null;
+        for (int run = 1; status == null; run++) {
+            status = search((long) luby(run) * RESTART_UNIT);
+        }
+        cancelUntil(0);
+        return status;
+    }
+
+    /**
+     * Searches until a model, a refutation, a stop condition, or the restart limit.
+     *
+     * @return the final status, or null to restart
+     */
+    private SolveStatus search(long conflictsUntilRestart) {
+        IntVec learnt = new IntVec();
+        while (true) {
+            int conflict = propagate();
+            if (conflict >= 0) {
+                conflicts++;
+                conflictsUntilRestart--;
+                if (decisionLevel() == 0) {
+                    unsatisfiable = true;
+                    return SolveStatus.UNSAT;
+                }
+                int backjumpLevel = analyze(conflict, learnt);
+                int[] clause = learnt.toArray();
+                int distance = blockDistance(clause);
+                cancelUntil(backjumpLevel);
+                if (clause.length == 1) {
+                    enqueue(clause[0], -1);
+                } else {
+                    int index = attach(clause);
+                    learnts.add(index);
+                    if (index >= lbd.length) {
+                        lbd = Arrays.copyOf(lbd, Math.max(index + 1, lbd.length * 2));
+                    }
+                    lbd[index] = distance;
+                    enqueue(clause[0], index);
+                }
+                varIncrement /= VAR_DECAY;
+
+                if (conflicts >= conflictLimit) {
+                    return SolveStatus.BUDGET_EXHAUSTED;
+                }
+                if (CancellationToken.shouldStop(cancellationToken)) {
+                    return SolveStatus.CANCELLED;
+                }
+                if (hasDeadline && System.nanoTime() - deadline > 0) {
+                    return SolveStatus.BUDGET_EXHAUSTED;
+                }
+            } else {
+                if (conflictsUntilRestart <= 0) {
+                    cancelUntil(0);
+                    return null;
+                }
+                if (conflicts >= nextReduce) {
+                    nextReduce = conflicts + FIRST_REDUCE + REDUCE_INCREMENT * (nextReduce / FIRST_REDUCE);
+                    reduceLearnts();
+                }
+
+                int next = pickBranchVariable();
+                if (next < 0) {
+                    model = new boolean[numVars];
+                    for (int v = 0; v < numVars; v++) {
+                        model[v] = assigns[v] == 1;
+                    }
+                    return SolveStatus.SOLVED;
+                }
+                decisions++;
+                trailLimits.push(trailSize);
+                enqueue(2 * next + (phase[next] ? 0 : 1), -1);
+            }
+        }
+    }
+
+    /**
+     * Unit propagation over the watch lists.
+     *
+     * @return the index of a conflicting clause, or -1
+     */
+    private int propagate() {
+        while (propagateHead < trailSize) {
+            int falseLit = trail[propagateHead++] ^ 1;
+            propagations++;
+            IntVec watchers = watches[falseLit];
+            int[] ws = watchers.data;
+            int i = 0;
+            int j = 0;
+            int end = watchers.size;
+            while (i < end) {
+                int index = ws[i++];
+                int[] c = clauses.get(index);
+                if (c == null) {
+                    continue; // deleted learnt clause, drop the stale watch
+                }
+                if (c[0] == falseLit) {
+                    c[0] = c[1];
+                    c[1] = falseLit;
+                }
+                if (valueOf(c[0]) == 1) {
+                    ws[j++] = index;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < c.length; k++) {
+                    if (valueOf(c[k]) != -1) {
+                        c[1] = c[k];
+                        c[k] = falseLit;
+                        watches[c[1]].push(index);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                ws[j++] = index;
+                if (valueOf(c[0]) == -1) {
+                    while (i < end) {
+                        ws[j++] = ws[i++];
+                    }
+                    watchers.size = j;
+                    propagateHead = trailSize;
+                    return index;
+                }
+                enqueue(c[0], index);
+            }
+            watchers.size = j;
+        }
+        return -1;
+    }
+
+    /**
+     * First-UIP conflict analysis. The learnt clause has the asserting literal first and a
+     * literal of the backjump level second.
+     *
+     * @return the level to backjump to
+     */
+    private int analyze(int conflict, IntVec learnt) {
+        learnt.clear();
+        learnt.push(-1);
+        int pathCount = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+
+        do {
+            int[] c = clauses.get(conflict);
+            for (int k = lit == -1 ? 0 : 1; k < c.length; k++) {
+                int q = c[k];
+                int v = q >> 1;
+                if (!seen[v] && level[v] > 0) {
+                    bumpActivity(v);
+                    seen[v] = true;
+                    if (level[v] >= decisionLevel()) {
+                        pathCount++;
+                    } else {
+                        learnt.push(q);
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            lit = trail[index--];
+            conflict = reason[lit >> 1];
+            seen[lit >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt.data[0] = lit ^ 1;
+
+        // Drop literals implied by the rest of the clause
+        boolean[] keep = new boolean[learnt.size];
+        for (int k = 1; k < learnt.size; k++) {
+            int q = learnt.data[k];
+            keep[k] = reason[q >> 1] < 0 || !isRedundant(q);
+        }
+        int kept = 1;
+        for (int k = 1; k < learnt.size; k++) {
+            seen[learnt.data[k] >> 1] = false;
+            if (keep[k]) {
+                learnt.data[kept++] = learnt.data[k];
+            }
+        }
+        learnt.size = kept;
+
+        if (learnt.size == 1) {
+            return 0;
+        }
+        int max = 1;
+        for (int k = 2; k < learnt.size; k++) {
+            if (level[learnt.data[k] >> 1] > level[learnt.data[max] >> 1]) {
+                max = k;
+            }
+        }
+        int swap = learnt.data[1];
+        learnt.data[1] = learnt.data[max];
+        learnt.data[max] = swap;
+        return level[learnt.data[1] >> 1];
+    }
+
+    private boolean isRedundant(int lit) {
+        int[] c = clauses.get(reason[lit >> 1]);
+        for (int k = 1; k < c.length; k++) {
+            int v = c[k] >> 1;
+            if (!seen[v] && level[v] > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int blockDistance(int[] c) {
+        int[] levels = new int[c.length];
+        int distinct = 0;
+        for (int lit : c) {
+            int l = level[lit >> 1];
+            boolean found = false;
+            for (int i = 0; i < distinct && !found; i++) {
+                found = levels[i] == l;
+            }
+            if (!found) {
+                levels[distinct++] = l;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Deletes the half of the learnt clauses with the highest literal block distance,
+     * keeping clauses that are currently the reason for an assignment.
+     */
+    private void reduceLearnts() {
+        learnts.sort((a, b) -> lbd[a] != lbd[b] ? Integer.compare(lbd[a], lbd[b])
+                : Integer.compare(clauses.get(a).length, clauses.get(b).length));
+        List<Integer> kept = new ArrayList<>();
+        int half = learnts.size() / 2;
+        for (int i = 0; i < learnts.size(); i++) {
+            int index = learnts.get(i);
+            int[] c = clauses.get(index);
+            boolean locked = reason[c[0] >> 1] == index && valueOf(c[0]) == 1;
+            if (i < half || locked || lbd[index] <= 2) {
+                kept.add(index);
+            } else {
+                clauses.set(index, null);
+            }
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+    }
+
+    private int pickBranchVariable() {
+        while (!heap.isEmpty()) {
+            int v = heap.removeMax();
+            if (assigns[v] == 0) {
+                return v;
+            }
+        }
+        return -1;
+    }
+
+    private void bumpActivity(int v) {
+        activity[v] += varIncrement;
+        if (activity[v] > 1e100) {
+            for (int i = 0; i < numVars; i++) {
+                activity[i] *= 1e-100;
+            }
+            varIncrement *= 1e-100;
+        }
+        heap.increased(v);
+    }
+
+    private int attach(int[] c) {
+        clauses.add(c);
+        int index = clauses.size() - 1;
+        watches[c[0]].push(index);
+        watches[c[1]].push(index);
+        return index;
+    }
+
+    private void enqueue(int lit, int from) {
+        int v = lit >> 1;
+        assigns[v] = (byte) ((lit & 1) == 0 ? 1 : -1);
+        level[v] = decisionLevel();
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel() <= target) {
+            return;
+        }
+        int stop = trailLimits.data[target];
+        for (int i = trailSize - 1; i >= stop; i--) {
+            int v = trail[i] >> 1;
+            phase[v] = assigns[v] == 1;
+            assigns[v] = 0;
+            reason[v] = -1;
+            heap.insert(v);
+        }
+        trailSize = stop;
+        propagateHead = stop;
+        trailLimits.size = target;
+    }
+
+    private int decisionLevel() {
+        return trailLimits.size;
+    }
+
+    private int valueOf(int lit) {
+        int value = assigns[lit >> 1];
+        return (lit & 1) == 0 ? value : -value;
+    }
+
+    private static int toLiteral(int dimacs) {
+        return dimacs > 0 ? 2 * (dimacs - 1) : 2 * (-dimacs - 1) + 1;
+    }
+
+    /**
+     * @return the i-th element (from 1) of the Luby sequence 1, 1, 2, 1, 1, 2, 4, ...
+     */
+    static int luby(int i) {
+        for (int k = 1; ; k++) {
+            if (i == (1 << k) - 1) {
+                return 1 << (k - 1);
+            }
+            if (i < (1 << k) - 1) {
+                return luby(i - (1 << (k - 1)) + 1);
+            }
+        }
+    }
+
+    private static final class IntVec {
+        int[] data = new int[4];
+        int size;
+
+        void push(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * Max-heap of variables ordered by activity.
+     */
+    private final class VarHeap {
+        private int[] heap = new int[16];
+        private int[] position = new int[0];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void insert(int v) {
+            if (v >= position.length) {
+                int old = position.length;
+                position = Arrays.copyOf(position, Math.max(16, Math.max(v + 1, old * 2)));
+                Arrays.fill(position, old, position.length, -1);
+            }
+            if (position[v] >= 0) {
+                return;
+            }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            heap[size] = v;
+            position[v] = size;
+            siftUp(size++);
+        }
+
+        void increased(int v) {
+            if (v < position.length && position[v] >= 0) {
+                siftUp(position[v]);
+            }
+        }
+
+        int removeMax() {
+            int top = heap[0];
+            position[top] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int v = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (activity[heap[parent]] >= activity[v]) {
+                    break;
+                }
+                heap[i] = heap[parent];
+                position[heap[i]] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+
+        private void siftDown(int i) {
+            int v = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && activity[heap[child + 1]] > activity[heap[child]]) {
+                    child++;
+                }
+                if (activity[heap[child]] <= activity[v]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                position[heap[i]] = i;
+                i = child;
+            }
+            heap[i] = v;
+            position[v] = i;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package pips_sat;
+
+import java.util.*;
+
+import pips.MathExpressionEvaluator;
+import pips.PipsPuzzle;
+import pips.RegionConstraint;
+
+/**
+ * Encodes a Pips puzzle as CNF for the CdclSolver.
+ *
+ * Variables:
+ * - value[c][v]: node c shows v pips, exactly one per node
+ * - edge[e]: the two nodes of edge e are covered by the same domino, exactly one per node
+ * - type[e][t]: edge e is covered by a domino of type t (an unordered pip pair)
+ *
+ * An edge with values a and b implies the type {a, b}, or is forbidden when no such domino exists,
+ * and each type is used at most as often as it is supplied; since every node is covered exactly once
+ * this forces every domino to be used. Sums, less and greater regions are encoded with chains of
+ * partial-sum variables that forbid any prefix which can no longer reach an allowed total, equals
+ * regions tie the value variables of neighbouring cells, and unequal regions allow each value on
+ * at most one of their cells.
+ */
+public class PipsCnfEncoder {
+
+    private static final int MAX_VALUE = MathExpressionEvaluator.MAX_DOMINO_VALUE;
+
+    private final PipsPuzzle puzzle;
+    private final CdclSolver sat;
+    private final int n;
+    private final int[] domain;
+    private final int[][] valueVar;
+    private final List<int[]> edges = new ArrayList<>();
+    private final List<Integer> edgeVars = new ArrayList<>();
+
+    public PipsCnfEncoder(PipsPuzzle puzzle, CdclSolver sat) {
+        this.puzzle = puzzle;
+        this.sat = sat;
+        this.n = puzzle.size();
+        this.domain = new int[n];
+        this.valueVar = new int[n][MAX_VALUE + 1];
+
+        if (n != 2 * puzzle.getDominoes().size()) {
+            sat.addClause();
+        }
+        restrictDomains();
+        encodeValues();
+        encodeTiling();
+        encodeDominoSupply();
+        for (RegionConstraint region : puzzle.getRegions()) {
+            encodeRegion(region);
+        }
+    }
+
+    /**
+     * Unary pruning: a node can only show pips that some domino has and that its regions allow
+     * with every other cell of the region free.
+     */
+    private void restrictDomains() {
+        int pips = 0;
+        for (var domino : puzzle.getDominoes()) {
+            pips |= 1 << domino.pip1() | 1 << domino.pip2();
+        }
+        Arrays.fill(domain, pips);
+        for (RegionConstraint region : puzzle.getRegions()) {
+            int others = MAX_VALUE * (region.cells().length - 1);
+            int low = 0;
+            int high = MAX_VALUE;
+            if (region instanceof RegionConstraint.SumEquals sum) {
+                low = sum.target() - others;
+                high = sum.target();
+            } else if (region instanceof RegionConstraint.Less less) {
+                high = less.target() - 1;
+            } else if (region instanceof RegionConstraint.Greater greater) {
+                low = greater.target() + 1 - others;
+            }
+            for (int cell : region.cells()) {
+                for (int v = 0; v <= MAX_VALUE; v++) {
+                    if (v < low || v > high) {
+                        domain[cell] &= ~(1 << v);
+                    }
+                }
+            }
+        }
+    }
+
+    private void encodeValues() {
+        for (int c = 0; c < n; c++) {
+            List<Integer> vars = new ArrayList<>();
+            for (int v = 0; v <= MAX_VALUE; v++) {
+                if ((domain[c] & 1 << v) != 0) {
+                    valueVar[c][v] = sat.newVar();
+                    vars.add(valueVar[c][v]);
+                }
+            }
+            exactlyOne(vars);
+        }
+    }
+
+    private void encodeTiling() {
+        List<List<Integer>> incident = new ArrayList<>();
+        for (int c = 0; c < n; c++) {
+            incident.add(new ArrayList<>());
+        }
+        for (int u = 0; u < n; u++) {
+            for (int v : puzzle.getNeighbors(u)) {
+                if (u < v) {
+                    int var = sat.newVar();
+                    edges.add(new int[]{u, v});
+                    edgeVars.add(var);
+                    incident.get(u).add(var);
+                    incident.get(v).add(var);
+                }
+            }
+        }
+        for (List<Integer> vars : incident) {
+            exactlyOne(vars);
+        }
+    }
+
+    private void encodeDominoSupply() {
+        int[][] supply = new int[MAX_VALUE + 1][MAX_VALUE + 1];
+        for (var domino : puzzle.getDominoes()) {
+            supply[Math.min(domino.pip1(), domino.pip2())][Math.max(domino.pip1(), domino.pip2())]++;
+        }
+
+        Map<Integer, List<Integer>> typeUses = new TreeMap<>();
+        for (int e = 0; e < edges.size(); e++) {
+            int u = edges.get(e)[0];
+            int v = edges.get(e)[1];
+            int edge = edgeVars.get(e);
+            Map<Integer, Integer> typeVars = new HashMap<>();
+            for (int a = 0; a <= MAX_VALUE; a++) {
+                for (int b = 0; b <= MAX_VALUE; b++) {
+                    if (valueVar[u][a] == 0 || valueVar[v][b] == 0) {
+                        continue;
+                    }
+                    int low = Math.min(a, b);
+                    int high = Math.max(a, b);
+                    if (supply[low][high] == 0) {
+                        sat.addClause(-edge, -valueVar[u][a], -valueVar[v][b]);
+                        continue;
+                    }
+                    int type = low * (MAX_VALUE + 1) + high;
+                    int typeVar = typeVars.computeIfAbsent(type, t -> {
+                        int var = sat.newVar();
+                        typeUses.computeIfAbsent(t, key -> new ArrayList<>()).add(var);
+                        return var;
+                    });
+                    sat.addClause(-edge, -valueVar[u][a], -valueVar[v][b], typeVar);
+                }
+            }
+        }
+        typeUses.forEach((type, vars) -> atMost(vars, supply[type / (MAX_VALUE + 1)][type % (MAX_VALUE + 1)]));
+    }
+
+    private void encodeRegion(RegionConstraint region) {
+        if (region instanceof RegionConstraint.AllEqual) {
+            encodeEqual(region.cells());
+        } else if (region instanceof RegionConstraint.AllDifferent) {
+            encodeAllDifferent(region.cells());
+        } else {
+            encodeSum(region);
+        }
+    }
+
+    private void encodeSum(RegionConstraint region) {
+        int[] cells = region.cells();
+        int k = cells.length;
+        int[] minRest = new int[k + 1];
+        int[] maxRest = new int[k + 1];
+        for (int i = k - 1; i >= 0; i--) {
+            minRest[i] = minRest[i + 1] + Integer.numberOfTrailingZeros(domain[cells[i]]);
+            maxRest[i] = maxRest[i + 1] + (31 - Integer.numberOfLeadingZeros(domain[cells[i]]));
+        }
+
+        // Partial sum of the cells so far -> variable, 0 standing for the empty prefix
+        Map<Integer, Integer> prefix = Map.of(0, 0);
+        for (int i = 0; i < k; i++) {
+            Map<Integer, Integer> next = new HashMap<>();
+            for (Map.Entry<Integer, Integer> entry : prefix.entrySet()) {
+                for (int v = 0; v <= MAX_VALUE; v++) {
+                    int value = valueVar[cells[i]][v];
+                    if (value == 0) {
+                        continue;
+                    }
+                    int sum = entry.getKey() + v;
+                    boolean reachable = canReach(region, sum + minRest[i + 1], sum + maxRest[i + 1]);
+                    if (!reachable) {
+                        addImplication(entry.getValue(), -value);
+                    } else if (i < k - 1) {
+                        int partial = next.computeIfAbsent(sum, s -> sat.newVar());
+                        addImplication(entry.getValue(), -value, partial);
+                    }
+                }
+            }
+            prefix = next;
+        }
+    }
+
+    /**
+     * @return whether some total between low and high satisfies the region
+     */
+    private static boolean canReach(RegionConstraint region, int low, int high) {
+        if (region instanceof RegionConstraint.SumEquals sum) {
+            return low <= sum.target() && sum.target() <= high;
+        } else if (region instanceof RegionConstraint.Less less) {
+            return low < less.target();
+        } else if (region instanceof RegionConstraint.Greater greater) {
+            return high > greater.target();
+        }
+        return true;
+    }
+
+    /**
+     * Adds (prefix and not(literals...)) -> false, i.e. the clause -prefix or literals, where a
+     * prefix of 0 is always true.
+     */
+    private void addImplication(int prefix, int... literals) {
+        if (prefix == 0) {
+            sat.addClause(literals);
+        } else {
+            int[] clause = Arrays.copyOf(literals, literals.length + 1);
+            clause[literals.length] = -prefix;
+            sat.addClause(clause);
+        }
+    }
+
+    private void encodeEqual(int[] cells) {
+        for (int i = 0; i + 1 < cells.length; i++) {
+            for (int v = 0; v <= MAX_VALUE; v++) {
+                int a = valueVar[cells[i]][v];
+                int b = valueVar[cells[i + 1]][v];
+                if (a != 0 && b != 0) {
+                    sat.addClause(-a, b);
+                    sat.addClause(-b, a);
+                } else if (a != 0) {
+                    sat.addClause(-a);
+                } else if (b != 0) {
+                    sat.addClause(-b);
+                }
+            }
+        }
+    }
+
+    private void encodeAllDifferent(int[] cells) {
+        for (int v = 0; v <= MAX_VALUE; v++) {
+            List<Integer> vars = new ArrayList<>();
+            for (int cell : cells) {
+                if (valueVar[cell][v] != 0) {
+                    vars.add(valueVar[cell][v]);
+                }
+            }
+            atMost(vars, 1);
+        }
+    }
+
+    /**
+     * @return the pip value of every node in the solver's last model, indexed like the puzzle's nodes
+     */
+    public int[] decodeValues() {
+        int[] values = new int[n];
+        for (int c = 0; c < n; c++) {
+            for (int v = 0; v <= MAX_VALUE; v++) {
+                if (valueVar[c][v] != 0 && sat.modelValue(valueVar[c][v])) {
+                    values[c] = v;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return the node pairs covered by one domino in the solver's last model
+     */
+    public List<int[]> decodePairs() {
+        List<int[]> pairs = new ArrayList<>();
+        for (int e = 0; e < edges.size(); e++) {
+            if (sat.modelValue(edgeVars.get(e))) {
+                pairs.add(edges.get(e));
+            }
+        }
+        return pairs;
+    }
+
+    private void exactlyOne(List<Integer> vars) {
+        sat.addClause(vars.stream().mapToInt(Integer::intValue).toArray());
+        atMost(vars, 1);
+    }
+
+    /**
+     * At most k of vars are true: pairwise for small at-most-one constraints, otherwise a
+     * sequential counter where counter[i][j] means at least j + 1 of the first i + 1 vars are true.
+     */
+    private void atMost(List<Integer> vars, int k) {
+        int m = vars.size();
+        if (m <= k) {
+            return;
+        }
+        if (k == 0) {
+            for (int var : vars) {
+                sat.addClause(-var);
+            }
+            return;
+        }
+        if (k == 1 && m <= 6) {
+            for (int i = 0; i < m; i++) {
+                for (int j = i + 1; j < m; j++) {
+                    sat.addClause(-vars.get(i), -vars.get(j));
+                }
+            }
+            return;
+        }
+        int[][] counter = new int[m - 1][k];
+        for (int i = 0; i < m - 1; i++) {
+            for (int j = 0; j < k; j++) {
+                counter[i][j] = sat.newVar();
+            }
+        }
+        sat.addClause(-vars.get(0), counter[0][0]);
+        for (int j = 1; j < k; j++) {
+            sat.addClause(-counter[0][j]);
+        }
+        for (int i = 1; i < m; i++) {
+            int x = vars.get(i);
+            sat.addClause(-x, -counter[i - 1][k - 1]);
+            if (i == m - 1) {
+                break;
+            }
+            sat.addClause(-x, counter[i][0]);
+            sat.addClause(-counter[i - 1][0], counter[i][0]);
+            for (int j = 1; j < k; j++) {
+                sat.addClause(-x, -counter[i - 1][j - 1], counter[i][j]);
+                sat.addClause(-counter[i - 1][j], counter[i][j]);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package pips_sat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import pips.SolveResult;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+
+/**
+ * Compares the SAT backend with DLX, first on every puzzle of a node_details file and then on
+ * synthetic large boards built as disjoint unions of copies of those puzzles. The copies share one
+ * domino pool, so dominoes can move between them and the union is harder than its parts; a second
+ * board per size adds the copies that have no solution on their own.
+ *
+ * Usage: SatBenchmark [puzzleFile] [maxCopies] [timeoutMillis]
+ */
+public class SatBenchmark {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern VARIABLE = Pattern.compile("[A-Za-z]+");
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        int maxCopies = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Duration timeout = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 10_000);
+
+        List<JsonNode> puzzles = new ArrayList<>();
+        mapper.readTree(new File(file)).get("pips_medium_puzzles").forEach(puzzles::add);
+
+        System.out.printf("%-28s %6s %18s %18s%n", "board", "nodes", "DLX", "SAT");
+        for (int i = 0; i < puzzles.size(); i++) {
+            run("puzzle " + i, puzzles.get(i), timeout);
+        }
+
+        List<JsonNode> solvable = new ArrayList<>();
+        List<JsonNode> unsolvable = new ArrayList<>();
+        for (JsonNode puzzle : puzzles) {
+            SolveResult<?> result = new SatPipsSolver(puzzle).solve(timeout);
+            (result.firstSolution() != null ? solvable : unsolvable).add(puzzle);
+        }
+        if (solvable.isEmpty()) {
+            return;
+        }
+        for (int copies = 2; copies <= maxCopies; copies *= 2) {
+            List<JsonNode> parts = new ArrayList<>();
+            for (int i = 0; i < copies; i++) {
+                parts.add(solvable.get(i % solvable.size()));
+            }
+            run(copies + " solvable copies", union(parts), timeout);
+            if (!unsolvable.isEmpty()) {
+                parts.addAll(unsolvable);
+                run(copies + " copies + unsolvable", union(parts), timeout);
+            }
+        }
+    }
+
+    private static void run(String name, JsonNode puzzle, Duration timeout) {
+        long start = System.nanoTime();
+        DLXPipsSolver dlxSolver = new DLXPipsSolver(puzzle);
+        int[][] matrix = dlxSolver.buildExactCoverMatrix();
+        String dlx = matrix == null ? "UNSAT" : new DLX(matrix).solveFirst(timeout).status().name();
+        long dlxMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        String sat = new SatPipsSolver(puzzle).solve(timeout).status().name();
+        long satMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%-28s %6d %18s %18s%n", name, puzzle.get("node_details").size(),
+                dlx + " " + dlxMillis + "ms", sat + " " + satMillis + "ms");
+    }
+
+    /**
+     * Builds one puzzle out of disjoint copies of the given ones, renaming every node of copy i
+     * with a lower-case suffix so names stay alphabetic, as the expression parser expects.
+     * Typed constraints are copied too when every part has them.
+     */
+    static JsonNode union(List<JsonNode> parts) {
+        ObjectNode result = mapper.createObjectNode();
+        ObjectNode nodeDetails = result.putObject("node_details");
+        ArrayNode dominoes = result.putArray("dominoes");
+        boolean typed = parts.stream().allMatch(part -> part.has("constraints"));
+        ArrayNode constraints = typed ? result.putArray("constraints") : null;
+
+        for (int i = 0; i < parts.size(); i++) {
+            JsonNode part = parts.get(i);
+            String suffix = suffix(i);
+            JsonNode details = part.get("node_details");
+            details.fields().forEachRemaining(entry -> {
+                ObjectNode node = entry.getValue().deepCopy();
+                ArrayNode peers = node.putArray("peers");
+                entry.getValue().get("peers").forEach(peer -> peers.add(peer.asText() + suffix));
+                if (node.has("partners_in_expression")) {
+                    ArrayNode partners = node.putArray("partners_in_expression");
+                    entry.getValue().get("partners_in_expression").forEach(partner -> partners.add(partner.asText() + suffix));
+                }
+                if (node.has("expression")) {
+                    node.put("expression", rename(node.get("expression").asText(), details, suffix));
+                }
+                nodeDetails.set(entry.getKey() + suffix, node);
+            });
+            if (typed) {
+                for (JsonNode constraint : part.get("constraints")) {
+                    ObjectNode copy = constraint.deepCopy();
+                    ArrayNode nodes = copy.putArray("nodes");
+                    constraint.get("nodes").forEach(node -> nodes.add(node.asText() + suffix));
+                    constraints.add(copy);
+                }
+            }
+            part.get("dominoes").forEach(domino -> dominoes.add(domino.deepCopy()));
+        }
+        return result;
+    }
+
+    private static String rename(String expression, JsonNode details, String suffix) {
+        Matcher matcher = VARIABLE.matcher(expression);
+        StringBuilder renamed = new StringBuilder();
+        while (matcher.find()) {
+            String token = matcher.group();
+            matcher.appendReplacement(renamed, details.has(token) ? token + suffix : token);
+        }
+        matcher.appendTail(renamed);
+        return renamed.toString();
+    }
+
+    private static String suffix(int index) {
+        StringBuilder suffix = new StringBuilder();
+        do {
+            suffix.append((char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return "x" + suffix;
+    }
+}
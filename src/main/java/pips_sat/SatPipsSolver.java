@@ -0,0 +1,93 @@
+package pips_sat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import pips.CancellationToken;
+import pips.PipsPuzzle;
+import pips.SolveResult;
+import pips.SolveStatus;
+
+/**
+ * Solves a Pips puzzle by encoding it as CNF and handing it to the CDCL solver.
+ *
+ * Unlike the DLX and backtracking engines the SAT backend learns a clause from every conflict,
+ * so it does not revisit the same contradiction in another part of the tree. That matters on
+ * large or heavily constrained boards, where chronological backtracking thrashes.
+ * Budgets are counted in conflicts, which is what SolveResult reports as nodes visited.
+ */
+public class SatPipsSolver {
+
+    private final PipsPuzzle puzzle;
+    private final CdclSolver sat = new CdclSolver();
+    private final PipsCnfEncoder encoder;
+
+    /**
+     * @param puzzle A single puzzle in the node_details format
+     */
+    public SatPipsSolver(JsonNode puzzle) {
+        this(PipsPuzzle.fromJson(puzzle));
+    }
+
+    public SatPipsSolver(PipsPuzzle puzzle) {
+        this.puzzle = puzzle;
+        this.encoder = new PipsCnfEncoder(puzzle, sat);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        JsonNode input = new ObjectMapper().readTree(new File(file));
+        for (JsonNode puzzle : input.get("pips_medium_puzzles")) {
+            System.out.println("SAT Solver is running...");
+            long start = System.currentTimeMillis();
+            SatPipsSolver solver = new SatPipsSolver(puzzle);
+            SolveResult<Map<String, Integer>> result = solver.solve(Long.MAX_VALUE);
+            long end = System.currentTimeMillis();
+            System.out.println(result.status() + " " + (result.firstSolution() != null ? new TreeMap<>(result.firstSolution()) : ""));
+            System.out.println("Variables: " + solver.getCdclSolver().getNumVars() + ", clauses: " + solver.getCdclSolver().getNumClauses()
+                    + ", conflicts: " + solver.getCdclSolver().getConflicts() + ", decisions: " + solver.getCdclSolver().getDecisions());
+            System.out.println("SAT Solver finished in " + (end - start) + " ms.\n");
+        }
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        sat.setCancellationToken(cancellationToken);
+    }
+
+    public SolveResult<Map<String, Integer>> solve(long conflictBudget) {
+        return solve(conflictBudget, null);
+    }
+
+    public SolveResult<Map<String, Integer>> solve(Duration budget) {
+        return solve(Long.MAX_VALUE, budget);
+    }
+
+    private SolveResult<Map<String, Integer>> solve(long conflictBudget, Duration budget) {
+        long startConflicts = sat.getConflicts();
+        SolveStatus status = budget != null ? sat.solve(budget) : sat.solve(conflictBudget);
+        long conflicts = sat.getConflicts() - startConflicts;
+
+        if (status != SolveStatus.SOLVED) {
+            return new SolveResult<>(status, List.of(), conflicts, status == SolveStatus.UNSAT ? 0 : -1);
+        }
+        return new SolveResult<>(SolveStatus.SOLVED, List.of(puzzle.toAssignment(encoder.decodeValues())), conflicts, 0);
+    }
+
+    /**
+     * @return the node pairs covered by one domino in the last solution
+     */
+    public List<int[]> getPairs() {
+        return encoder.decodePairs();
+    }
+
+    public CdclSolver getCdclSolver() {
+        return sat;
+    }
+}
@@ -0,0 +1,125 @@
+package pips_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import pips.FeasibilityCheck;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.DifficultyClassifier;
+import pips_dlx.DifficultyClassifier.Difficulty;
+
+/**
+ * Solves a batch of puzzles, sending each through FeasibilityCheck and DifficultyClassifier
+ * first. Puzzles the check rejects count as unsolvable right away. Trivial boards are
+ * solved inline as soon as they are classified, heavy ones go to a pool of worker threads, so a
+ * slow board no longer holds up the cheap boards behind it. Results are reported as they finish.
+ *
+ * Usage: BatchRunner [puzzleFile] [workers] [timeoutMillis]
+ */
+public class BatchRunner {
+
+    /**
+     * @param index Position of the puzzle in the batch
+     * @param difficulty How the classifier routed it
+     * @param result First solution, as node-to-pip values, or why there is none
+     * @param finishedMillis Time from the start of the batch until the puzzle was done
+     */
+    public record Outcome(int index, Difficulty difficulty, SolveResult<Map<String, Integer>> result, long finishedMillis) {}
+
+    private final ExecutorService pool;
+    private final Duration timeout;
+
+    /**
+     * @param workers Threads for the heavy boards
+     * @param timeout Budget for each board
+     */
+    public BatchRunner(int workers, Duration timeout) {
+        this.pool = Executors.newFixedThreadPool(workers);
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String puzzleFile = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        Duration timeout = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 10_000);
+
+        List<JsonNode> puzzles = new ArrayList<>();
+        new ObjectMapper().readTree(new File(puzzleFile)).get("pips_medium_puzzles").forEach(puzzles::add);
+        BatchRunner runner = new BatchRunner(workers, timeout);
+        long start = System.currentTimeMillis();
+        List<Outcome> outcomes = runner.run(puzzles, outcome -> System.out.println("Puzzle #" + outcome.index() + " ("
+                + outcome.difficulty() + "): " + outcome.result().status() + " after " + outcome.result().nodesVisited()
+                + " nodes, done at " + outcome.finishedMillis() + " ms"));
+        runner.shutdown();
+
+        long trivial = outcomes.stream().filter(outcome -> outcome.difficulty() == Difficulty.TRIVIAL).count();
+        long solved = outcomes.stream().filter(outcome -> outcome.result().status() == SolveStatus.SOLVED).count();
+        System.out.println("\n" + outcomes.size() + " puzzles (" + trivial + " inline, " + (outcomes.size() - trivial)
+                + " on " + workers + " workers), " + solved + " solved, in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    /**
+     * Solves every puzzle and waits for the heavy ones.
+     *
+     * @param onFinished Called with each outcome as soon as the puzzle is done, from the calling
+     *                   thread for trivial boards and from a worker for heavy ones, never concurrently
+     * @return the outcomes in the order of the puzzles
+     */
+    public List<Outcome> run(List<JsonNode> puzzles, Consumer<Outcome> onFinished) throws InterruptedException {
+        long start = System.nanoTime();
+        Outcome[] outcomes = new Outcome[puzzles.size()];
+        Object reporting = new Object();
+        Consumer<Outcome> report = outcome -> {
+            synchronized (reporting) {
+                outcomes[outcome.index()] = outcome;
+                onFinished.accept(outcome);
+            }
+        };
+        List<Future<?>> heavy = new ArrayList<>();
+        for (int i = 0; i < puzzles.size(); i++) {
+            int index = i;
+            FeasibilityCheck check = new FeasibilityCheck(puzzles.get(i));
+            if (check.isRejected()) {
+                report.accept(new Outcome(index, Difficulty.TRIVIAL, new SolveResult<>(SolveStatus.UNSAT, List.of(), 0, 0),
+                        (System.nanoTime() - start) / 1_000_000));
+                continue;
+            }
+            JsonNode puzzle = puzzles.get(i);
+            DifficultyClassifier classifier = new DifficultyClassifier(puzzle);
+            Difficulty difficulty = classifier.getDifficulty();
+            if (difficulty == Difficulty.TRIVIAL) {
+                // Solved right away on the rows the classifier built
+                SolveResult<Map<String, Integer>> result = PortfolioSolver.solveWithDlx(classifier.getSolver(),
+                        classifier.getSparseRows(), null, timeout);
+                report.accept(new Outcome(index, difficulty, result, (System.nanoTime() - start) / 1_000_000));
+            } else {
+                // The matrix is built again on the worker, so queued boards do not hold one
+                heavy.add(pool.submit(() -> {
+                    SolveResult<Map<String, Integer>> result = PortfolioSolver.solveWithDlx(new DLXPipsSolver(puzzle), null, timeout);
+                    report.accept(new Outcome(index, difficulty, result, (System.nanoTime() - start) / 1_000_000));
+                }));
+            }
+        }
+        for (Future<?> future : heavy) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Solving a heavy puzzle failed", e.getCause());
+            }
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
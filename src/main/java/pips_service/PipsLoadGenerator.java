@@ -0,0 +1,82 @@
+package pips_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives a running PipsSolverService with the puzzles of a node_details file and reports
+ * throughput, latency percentiles and the HTTP statuses seen.
+ *
+ * Usage: PipsLoadGenerator [url] [concurrency] [requests] [puzzleFile]
+ */
+public class PipsLoadGenerator {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/solve";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        String puzzleFile = args.length > 3 ? args[3] : "src/main/resources/all_pips.json";
+
+        List<String> bodies = new ArrayList<>();
+        ObjectMapper mapper = new ObjectMapper();
+        for (JsonNode puzzle : mapper.readTree(new File(puzzleFile)).get("pips_medium_puzzles")) {
+            bodies.add(mapper.writeValueAsString(puzzle));
+        }
+        System.out.println("Sending " + requests + " requests over " + concurrency + " connections, cycling through "
+                + bodies.size() + " puzzles from " + puzzleFile);
+
+        HttpClient client = HttpClient.newHttpClient();
+        AtomicInteger next = new AtomicInteger();
+        long[] latencies = new long[requests];
+        Map<Integer, Integer> statuses = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < concurrency; c++) {
+            pool.execute(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                            .POST(HttpRequest.BodyPublishers.ofString(bodies.get(i % bodies.size())))
+                            .header("Content-Type", "application/json")
+                            .build();
+                    long sent = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (IOException e) {
+                        status = -1;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                    statuses.merge(status, 1, Integer::sum);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("Throughput: %.1f requests/s over %.2f s%n", requests / seconds, seconds);
+        System.out.printf("Latency ms: p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99), latencies[requests - 1] / 1e6);
+        System.out.println("Statuses (-1 = connection error): " + new TreeMap<>(statuses));
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
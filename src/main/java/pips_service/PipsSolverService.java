@@ -0,0 +1,252 @@
+package pips_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+import pips.CancellationToken;
+import pips.FeasibilityCheck;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.ExactCoverSolver;
+import pips_dlx.MatrixPreprocessor;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.Placement;
+import pips_dlx.PruningHook;
+import pips_dlx.SolverWarmup;
+
+/**
+ * Long-running local solver service, so repeated solves skip JVM startup and JIT warm-up.
+ *
+ * POST /solve takes one puzzle, either in the raw NYT format (dominoes and regions) or in the
+ * node_details format, and answers with the domino placements of the first solution. Puzzles
+ * that FeasibilityCheck rejects are answered straight away, malformed ones with 400.
+ * Puzzles are solved on a fixed worker pool behind a bounded queue; when the queue is full
+ * the request is rejected with 503 instead of piling up. The timeout covers building the matrix
+ * as well as the search. A request that times out in the queue or on a worker is answered with
+ * 504 and cancelled, and so is a search that runs out of its budget, with status
+ * BUDGET_EXHAUSTED and the nodes it visited.
+ *
+ * Usage: PipsSolverService [port] [workers] [queueCapacity] [timeoutMillis]
+ */
+public class PipsSolverService {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService httpThreads;
+    private final Duration solveTimeout;
+
+    public PipsSolverService(int port, int workerCount, int queueCapacity, Duration solveTimeout) throws IOException {
+        this.solveTimeout = solveTimeout;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+        // Every admitted request holds one HTTP thread while it waits, plus a few for rejections
+        this.httpThreads = Executors.newFixedThreadPool(workerCount + queueCapacity + 4);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(httpThreads);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : workerCount * 4;
+        long timeoutMillis = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+
+        try {
+            long start = System.currentTimeMillis();
+            SolverWarmup.warmUp("src/main/resources/all_pips.json", "src/main/resources/pips_general.json", 3);
+            System.out.println("Warm-up finished in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (IOException e) {
+            System.out.println("Skipping warm-up, bundled puzzles not found: " + e.getMessage());
+        }
+
+        PipsSolverService service = new PipsSolverService(port, workerCount, queueCapacity, Duration.ofMillis(timeoutMillis));
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+        service.start();
+        System.out.println("Pips solver service listening on port " + port + " with " + workerCount
+                + " workers, queue capacity " + queueCapacity + " and a " + timeoutMillis + " ms solve timeout");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the service listens on, which the system picks when it was created with port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+        httpThreads.shutdownNow();
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("active", workers.getActiveCount());
+        body.put("queued", workers.getQueue().size());
+        body.put("completed", workers.getCompletedTaskCount());
+        send(exchange, 200, body);
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, error("Use POST with a puzzle JSON body"));
+            return;
+        }
+
+        JsonNode puzzle;
+        try (InputStream body = exchange.getRequestBody()) {
+            puzzle = toNodeDetails(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            send(exchange, 400, error("Unreadable puzzle: " + e.getMessage()));
+            return;
+        }
+        if (puzzle == null) {
+            send(exchange, 400, error("Expected a puzzle with either node_details or regions"));
+            return;
+        }
+        // Boards that counting alone rules out are answered without taking a worker
+        FeasibilityCheck check = new FeasibilityCheck(puzzle);
+        if (check.isMalformed()) {
+            send(exchange, 400, error("Malformed puzzle: " + check.getReason()));
+            return;
+        }
+        if (check.isRejected()) {
+            ObjectNode response = mapper.createObjectNode();
+            response.putArray("placements");
+            response.put("status", "UNSAT");
+            response.put("reason", check.getReason());
+            response.put("elapsed_ms", 0);
+            send(exchange, 200, response);
+            return;
+        }
+
+        CancellationToken token = new CancellationToken();
+        Future<ObjectNode> result;
+        try {
+            result = workers.submit(() -> solve(puzzle, token));
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+            send(exchange, 503, error("Solver queue is full"));
+            return;
+        }
+
+        try {
+            // The solve bounds itself; the extra second covers time spent waiting in the queue
+            ObjectNode response = result.get(solveTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+            boolean exhausted = SolveStatus.BUDGET_EXHAUSTED.name().equals(response.path("status").asText());
+            send(exchange, exhausted ? 504 : 200, response);
+        } catch (TimeoutException e) {
+            token.cancel();
+            result.cancel(true);
+            // A request that timed out in the queue would otherwise hold its place until a worker takes it
+            workers.purge();
+            send(exchange, 504, error("Solve did not finish in time"));
+        } catch (InterruptedException e) {
+            token.cancel();
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            send(exchange, 503, error("Service is shutting down"));
+        } catch (ExecutionException e) {
+            send(exchange, 500, error("Solver failed: " + e.getCause()));
+        }
+    }
+
+    private ObjectNode solve(JsonNode puzzle, CancellationToken token) {
+        long start = System.nanoTime();
+        ObjectNode response = mapper.createObjectNode();
+        DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+        // Building and reducing the matrix of a large board take seconds; a 504 cancels them along with the search
+        solver.setCancellationToken(token);
+        // Both ways round, so every legal board is a cover; the region hook rejects the rest
+        int[][] rows = solver.buildSparseRows(true);
+
+        // The two orientations of a domino on a pair share their columns, so duplicates are not merged
+        MatrixPreprocessor preprocessor = rows == null ? null
+                : MatrixPreprocessor.fromSparseRows(rows, solver.getColumnCount(), false, token);
+
+        ArrayNode placements = response.putArray("placements");
+        if (solver.isCancelled() || preprocessor != null && preprocessor.isCancelled()) {
+            response.put("status", SolveStatus.CANCELLED.name());
+        } else if (preprocessor == null || preprocessor.isInfeasible()) {
+            response.put("status", "UNSAT");
+        } else {
+            ExactCoverSolver engine = ExactCoverSolver.ofSparseRows(preprocessor.getSparseRows(), preprocessor.getColumnCount());
+            engine.setCancellationToken(token);
+            engine.setPruningHook(preprocessor.wrap(PruningHook.combine(solver.createTilingHook(), solver.createRegionHook())));
+            // The build and preprocessing count against the solve timeout
+            Duration remaining = solveTimeout.minusNanos(System.nanoTime() - start);
+            SolveResult<List<Integer>> result = engine.solveFirst(remaining.isNegative() ? Duration.ZERO : remaining);
+            response.put("status", result.status().name());
+            response.put("nodes", result.nodesVisited());
+            if (result.firstSolution() != null) {
+                for (int row : preprocessor.toOriginal(result.firstSolution())) {
+                    Placement placement = solver.getPlacement(row);
+                    ObjectNode entry = placements.addObject();
+                    entry.putArray("nodes").add(placement.node()).add(placement.peer());
+                    entry.putArray("pips").add(placement.nodePip()).add(placement.peerPip());
+                }
+            }
+        }
+        response.put("elapsed_ms", (System.nanoTime() - start) / 1_000_000);
+        return response;
+    }
+
+    /**
+     * Accepts a puzzle in the node_details format as is and converts one in the raw NYT format.
+     *
+     * @return the puzzle in the node_details format, or null if it is in neither format
+     */
+    static JsonNode toNodeDetails(String body) {
+        try {
+            JsonNode puzzle = mapper.readTree(body);
+            if (puzzle.has("node_details")) {
+                return puzzle;
+            }
+            if (puzzle.has("regions")) {
+                String converted = PipsJsonConverter.convertPuzzle(JsonParser.parseString(body).getAsJsonObject()).toString();
+                return mapper.readTree(converted);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static ObjectNode error(String message) {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("error", message);
+        return body;
+    }
+
+    private static void send(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
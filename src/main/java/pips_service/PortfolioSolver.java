@@ -0,0 +1,238 @@
+package pips_service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import pips.CancellationToken;
+import pips.PipsSolver;
+import pips.PropagationSolver;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.ExactCoverSolver;
+import pips_dlx.Placement;
+import pips_dlx.PruningHook;
+import pips_sat.SatPipsSolver;
+
+/**
+ * Races several engines on the same puzzle, one thread each, and returns the first definitive
+ * answer: a solution or a proof that there is none. The other engines are cancelled as soon as
+ * one answers. solve() gives them STOP_WAIT to stop, so they do not slow down the next puzzle,
+ * and returns after that even if one is still winding down. A portfolio races one puzzle at a time.
+ *
+ * Every answer is logged with the engine that gave it, and getWins() counts the wins per engine,
+ * so a batch of puzzles shows which engine to route each kind of board to without a race.
+ *
+ * Usage: PortfolioSolver [puzzleFile] [timeoutMillis] [engines], engines being a comma-separated
+ * subset of DLX, Backtracking, Propagation and SAT
+ */
+public class PortfolioSolver {
+
+    public static final List<String> ENGINES = List.of("DLX", "Backtracking", "Propagation", "SAT");
+    // How long solve() waits for the cancelled engines before returning the answer
+    static final Duration STOP_WAIT = Duration.ofMillis(200);
+
+    /**
+     * @param engine The engine that answered, null if none did
+     * @param result Its result, with a solution as node-to-pip values
+     * @param elapsedMillis Wall-clock time until the answer
+     */
+    public record Result(String engine, SolveResult<Map<String, Integer>> result, long elapsedMillis) {}
+
+    @FunctionalInterface
+    private interface Engine {
+        SolveResult<Map<String, Integer>> solve(JsonNode puzzle, CancellationToken token, Duration budget);
+    }
+
+    private final Map<String, Engine> engines = new LinkedHashMap<>();
+    private final ExecutorService threads;
+    private final Map<String, Long> wins = new ConcurrentHashMap<>();
+    private CancellationToken cancellationToken;
+
+    public PortfolioSolver() {
+        this(ENGINES);
+    }
+
+    /**
+     * @param engineNames Engines to race, from ENGINES
+     */
+    public PortfolioSolver(List<String> engineNames) {
+        for (String name : engineNames) {
+            engines.put(name, switch (name) {
+                case "DLX" -> (puzzle, token, budget) -> solveWithDlx(new DLXPipsSolver(puzzle), token, budget);
+                case "Backtracking" -> (puzzle, token, budget) -> {
+                    PipsSolver solver = new PipsSolver(puzzle);
+                    solver.setCancellationToken(token);
+                    return solver.solve(budget);
+                };
+                case "Propagation" -> (puzzle, token, budget) -> {
+                    PropagationSolver solver = new PropagationSolver(puzzle);
+                    solver.setCancellationToken(token);
+                    return solver.solve(budget);
+                };
+                case "SAT" -> (puzzle, token, budget) -> {
+                    SatPipsSolver solver = new SatPipsSolver(puzzle);
+                    solver.setCancellationToken(token);
+                    return solver.solve(budget);
+                };
+                default -> throw new IllegalArgumentException("Unknown engine: " + name + ", expected one of " + ENGINES);
+            });
+        }
+        if (engines.isEmpty()) {
+            throw new IllegalArgumentException("A portfolio needs at least one engine");
+        }
+        threads = Executors.newFixedThreadPool(engines.size(), runnable -> {
+            Thread thread = new Thread(runnable, "portfolio-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String puzzleFile = args.length > 0 ? args[0] : "src/main/resources/all_pips.json";
+        Duration timeout = Duration.ofMillis(args.length > 1 ? Long.parseLong(args[1]) : 10_000);
+        List<String> engineNames = args.length > 2 ? List.of(args[2].split(",")) : ENGINES;
+
+        PortfolioSolver portfolio = new PortfolioSolver(engineNames);
+        JsonNode puzzles = new ObjectMapper().readTree(new File(puzzleFile)).get("pips_medium_puzzles");
+        for (int p = 0; p < puzzles.size(); p++) {
+            Result result = portfolio.solve(puzzles.get(p), timeout);
+            System.out.println("Puzzle #" + p + ": " + result.result().status() + " from "
+                    + (result.engine() == null ? "no engine" : result.engine()) + " in " + result.elapsedMillis() + " ms");
+        }
+        System.out.println("Wins per engine: " + new TreeMap<>(portfolio.getWins()));
+        portfolio.shutdown();
+    }
+
+    /**
+     * Sets a token polled while waiting for the engines; cancelling it cancels all of them.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Starts every engine on the puzzle, each with the whole budget, and returns the first
+     * SOLVED or UNSAT result. If no engine gets one in time, the result has no engine and the
+     * status BUDGET_EXHAUSTED, or CANCELLED when the caller cancelled.
+     */
+    public Result solve(JsonNode puzzle, Duration budget) throws InterruptedException {
+        long start = System.nanoTime();
+        CancellationToken token = new CancellationToken();
+        CompletionService<Result> race = new ExecutorCompletionService<>(threads);
+        List<Future<Result>> running = new ArrayList<>();
+        // Opens once every engine has returned, winner or not
+        CountDownLatch finished = new CountDownLatch(engines.size());
+        for (Map.Entry<String, Engine> engine : engines.entrySet()) {
+            running.add(race.submit(() -> {
+                try {
+                    return new Result(engine.getKey(), engine.getValue().solve(puzzle, token, budget),
+                            (System.nanoTime() - start) / 1_000_000);
+                } finally {
+                    finished.countDown();
+                }
+            }));
+        }
+
+        Result winner = null;
+        long nodes = 0;
+        boolean stopped = false;
+        try {
+            for (int pending = running.size(); pending > 0 && winner == null; ) {
+                if (CancellationToken.shouldStop(cancellationToken)) {
+                    stopped = true;
+                    break;
+                }
+                Future<Result> done = race.poll(10, TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    continue;
+                }
+                pending--;
+                try {
+                    Result result = done.get();
+                    nodes += result.result().nodesVisited();
+                    SolveStatus status = result.result().status();
+                    if (status == SolveStatus.SOLVED || status == SolveStatus.UNSAT) {
+                        winner = result;
+                    }
+                } catch (ExecutionException e) {
+                    // One engine failing, for example out of memory on a large board, leaves the race to the others
+                    System.out.println("Portfolio: an engine failed: " + e.getCause());
+                }
+            }
+        } finally {
+            // Every engine polls the token; cancelling the futures instead could drop a task that
+            // has not started yet, and the latch would never open
+            token.cancel();
+            if (!finished.await(STOP_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.out.println("Portfolio: " + finished.getCount() + " cancelled engine(s) still stopping");
+            }
+        }
+
+        if (winner == null) {
+            SolveStatus status = stopped ? SolveStatus.CANCELLED : SolveStatus.BUDGET_EXHAUSTED;
+            return new Result(null, new SolveResult<>(status, List.of(), nodes, -1), (System.nanoTime() - start) / 1_000_000);
+        }
+        wins.merge(winner.engine(), 1L, Long::sum);
+        System.out.println("Portfolio: " + winner.engine() + " answered " + winner.result().status() + " for a "
+                + puzzle.get("node_details").size() + "-cell board in " + winner.elapsedMillis() + " ms");
+        return winner;
+    }
+
+    /**
+     * @return the number of puzzles each engine answered first, since this portfolio was created
+     */
+    public Map<String, Long> getWins() {
+        return Map.copyOf(wins);
+    }
+
+    public void shutdown() {
+        threads.shutdownNow();
+    }
+
+    /**
+     * Builds the rows of both orientations with the given solver and finds the first cover, with
+     * the tiling and region hooks, so the cover is a solution of the puzzle. The matrix of a large
+     * board takes long to build, so the build polls the token too, and its rows are kept sparse.
+     */
+    static SolveResult<Map<String, Integer>> solveWithDlx(DLXPipsSolver solver, CancellationToken token, Duration budget) {
+        solver.setCancellationToken(token);
+        int[][] rows = solver.buildSparseRows(true);
+        if (solver.isCancelled()) {
+            return new SolveResult<>(SolveStatus.CANCELLED, List.of(), 0, -1);
+        }
+        return solveWithDlx(solver, rows, token, budget);
+    }
+
+    /**
+     * Same as solveWithDlx(solver, token, budget) on rows the solver already built with both
+     * orientations, for instance while DifficultyClassifier looked at the board.
+     */
+    static SolveResult<Map<String, Integer>> solveWithDlx(DLXPipsSolver solver, int[][] rows, CancellationToken token, Duration budget) {
+        if (rows == null) {
+            return new SolveResult<>(SolveStatus.UNSAT, List.of(), 0, 0);
+        }
+        ExactCoverSolver engine = ExactCoverSolver.ofSparseRows(rows, solver.getColumnCount());
+        engine.setCancellationToken(token);
+        engine.setPruningHook(PruningHook.combine(solver.createTilingHook(), solver.createRegionHook()));
+        SolveResult<List<Integer>> result = engine.solveFirst(budget);
+
+        List<Map<String, Integer>> solutions = new ArrayList<>();
+        if (result.firstSolution() != null) {
+            Map<String, Integer> values = new HashMap<>();
+            for (int row : result.firstSolution()) {
+                Placement placement = solver.getPlacement(row);
+                values.put(placement.node(), placement.nodePip());
+                values.put(placement.peer(), placement.peerPip());
+            }
+            solutions.add(values);
+        }
+        return new SolveResult<>(result.status(), solutions, result.nodesVisited(), result.estimatedRemainingNodes());
+    }
+}
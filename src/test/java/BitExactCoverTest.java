@@ -0,0 +1,93 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.SolveStatus;
+import pips_dlx.BitExactCover;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.ExactCoverSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for pips_dlx.BitExactCover.
+ */
+public class BitExactCoverTest {
+
+    // Knuth's example from the Dancing Links paper, the only cover is rows 0, 3 and 4
+    private static final int[][] KNUTH_MATRIX = {
+            {0, 0, 1, 0, 1, 1, 0},
+            {1, 0, 0, 1, 0, 0, 1},
+            {0, 1, 1, 0, 0, 1, 0},
+            {1, 0, 0, 1, 0, 0, 0},
+            {0, 1, 0, 0, 0, 0, 1},
+            {0, 0, 0, 1, 1, 0, 1}
+    };
+
+    // Four cells in a line and two dominoes; only the outer pairs tile, in either domino order
+    private static final int[][] TWO_DOMINO_MATRIX = {
+            {1, 1, 0, 0, 1, 0},
+            {1, 1, 0, 0, 0, 1},
+            {0, 0, 1, 1, 1, 0},
+            {0, 0, 1, 1, 0, 1},
+            {0, 1, 1, 0, 1, 0},
+            {0, 1, 1, 0, 0, 1}
+    };
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING BIT EXACT COVER TESTS =====\n");
+
+        check("solveFirst finds Knuth's cover", sorted(new BitExactCover(KNUTH_MATRIX).solveFirst()), List.of(0, 3, 4));
+        check("solve counts both domino orders", new BitExactCover(TWO_DOMINO_MATRIX).solve().size(), 2);
+        check("no cover", new BitExactCover(new int[][]{{1, 0}, {1, 0}}).solveFirst(), null);
+        check("empty row is never chosen", new BitExactCover(new int[][]{{0, 0}, {1, 1}}).solve().size(), 1);
+
+        BitExactCover budgeted = new BitExactCover(TWO_DOMINO_MATRIX);
+        check("solve out of budget", budgeted.solve(1).status(), SolveStatus.BUDGET_EXHAUSTED);
+        check("solve again after the budget ran out", budgeted.solve(100).status(), SolveStatus.SOLVED);
+        check("solveFirst with time budget", budgeted.solveFirst(Duration.ofSeconds(1)).solutions().size(), 1);
+
+        // Columns 64 and up live in the second mask: a chain of 100 columns covered by 50 pairs
+        int[][] wide = new int[99][100];
+        for (int r = 0; r < 99; r++) {
+            wide[r][r] = 1;
+            wide[r][r + 1] = 1;
+        }
+        check("100 columns, one cover", new BitExactCover(wide).solve().size(), 1);
+        check("too many columns", BitExactCover.fits(new int[1][129]), false);
+        check("of() picks the bit engine", ExactCoverSolver.of(KNUTH_MATRIX) instanceof BitExactCover, true);
+        check("of() falls back to DLX", ExactCoverSolver.of(new int[1][129]) instanceof DLX, true);
+
+        // Same covers, in the same order, and the same nodes as DLX on the bundled puzzles
+        JsonNode puzzles = new ObjectMapper().readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        boolean sameCovers = true;
+        boolean sameNodes = true;
+        for (int p : new int[]{0, 1, 3, 4, 6}) {
+            int[][] matrix = new DLXPipsSolver(puzzles.get(p)).buildExactCoverMatrix();
+            DLX dlx = new DLX(matrix);
+            BitExactCover bits = new BitExactCover(matrix);
+            sameCovers &= dlx.solve().equals(bits.solve());
+            sameNodes &= dlx.getNodeCount() == bits.getNodeCount();
+        }
+        check("same covers as DLX on all_pips", sameCovers, true);
+        check("same node counts as DLX on all_pips", sameNodes, true);
+    }
+
+    private static List<Integer> sorted(List<Integer> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Integer> copy = new ArrayList<>(rows);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
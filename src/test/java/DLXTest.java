@@ -0,0 +1,101 @@
+import pips.CancellationToken;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.DLX;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test class for pips_dlx.DLX.
+ */
+public class DLXTest {
+
+    // Knuth's example from the Dancing Links paper, the only cover is rows 0, 3 and 4
+    private static final int[][] KNUTH_MATRIX = {
+            {0, 0, 1, 0, 1, 1, 0},
+            {1, 0, 0, 1, 0, 0, 1},
+            {0, 1, 1, 0, 0, 1, 0},
+            {1, 0, 0, 1, 0, 0, 0},
+            {0, 1, 0, 0, 0, 0, 1},
+            {0, 0, 0, 1, 1, 0, 1}
+    };
+
+    // Four cells in a line and two dominoes; only the outer pairs tile, in either domino order
+    private static final int[][] TWO_DOMINO_MATRIX = {
+            {1, 1, 0, 0, 1, 0},
+            {1, 1, 0, 0, 0, 1},
+            {0, 0, 1, 1, 1, 0},
+            {0, 0, 1, 1, 0, 1},
+            {0, 1, 1, 0, 1, 0},
+            {0, 1, 1, 0, 0, 1}
+    };
+
+    public static void main(String[] args) {
+        System.out.println("===== RUNNING DLX TESTS =====\n");
+
+        check("solveFirst finds Knuth's cover", sorted(new DLX(KNUTH_MATRIX).solveFirst()), List.of(0, 3, 4));
+        check("solve finds exactly one cover", new DLX(KNUTH_MATRIX).solve().size(), 1);
+        check("solve counts both domino orders", new DLX(TWO_DOMINO_MATRIX).solve().size(), 2);
+
+        // The same matrix given as the columns of the ones of each row
+        int[][] knuthRows = {{2, 4, 5}, {0, 3, 6}, {1, 2, 5}, {0, 3}, {1, 6}, {3, 4, 6}};
+        check("sparse rows find Knuth's cover", sorted(DLX.fromSparseRows(knuthRows, 7).solveFirst()), List.of(0, 3, 4));
+        check("sparse rows estimate the same tree", DLX.fromSparseRows(knuthRows, 7).estimateTreeSize(10, 3),
+                new DLX(KNUTH_MATRIX).estimateTreeSize(10, 3));
+
+        DLX random = new DLX(KNUTH_MATRIX);
+        check("solveRandom finds Knuth's cover", sorted(random.solveRandom(42)), List.of(0, 3, 4));
+        check("solveRandom can be called again", sorted(random.solveRandom(7, 1)), List.of(0, 3, 4));
+        check("sampleSolutions returns requested count", new DLX(TWO_DOMINO_MATRIX).sampleSolutions(5, 1).size(), 5);
+        check("solveRandom reports no cover", new DLX(new int[][]{{1, 0}, {1, 0}}).solveRandom(1), null);
+
+        DLX estimated = new DLX(TWO_DOMINO_MATRIX);
+        // Column 0 has two rows, each leaves a single forced row: 1 + 2 + 2 nodes
+        check("estimateTreeSize on a uniform tree", estimated.estimateTreeSize(10, 3), 5.0);
+        check("estimate leaves the links intact", estimated.solve().size(), 2);
+
+        DLX budgeted = new DLX(TWO_DOMINO_MATRIX);
+        check("solve within budget", budgeted.solve(100).status(), SolveStatus.SOLVED);
+        check("solve out of budget", budgeted.solve(1).status(), SolveStatus.BUDGET_EXHAUSTED);
+        check("solveFirst with time budget", budgeted.solveFirst(Duration.ofSeconds(1)).solutions().size(), 1);
+        check("budgeted solve on no cover", new DLX(new int[][]{{1, 0}, {1, 0}}).solve(100).status(), SolveStatus.UNSAT);
+
+        // Two rows per column, 4,096 covers: enough nodes to reach the first poll of the token
+        int[][] choices = new int[24][12];
+        for (int row = 0; row < choices.length; row++) {
+            choices[row][row / 2] = 1;
+        }
+        DLX cancellable = new DLX(choices);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        cancellable.setCancellationToken(token);
+        check("pre-cancelled token stops the search", cancellable.solve(Duration.ofSeconds(10)).status(), SolveStatus.CANCELLED);
+        cancellable.setCancellationToken(null);
+        Thread.currentThread().interrupt();
+        SolveResult<List<Integer>> interrupted = cancellable.solve(Duration.ofSeconds(10));
+        // Clears the flag again for the checks below
+        boolean wasInterrupted = Thread.interrupted();
+        check("interrupted thread stops the search", interrupted.status(), SolveStatus.CANCELLED);
+        check("interrupt is left for the caller", wasInterrupted, true);
+        SolveResult<List<Integer>> again = cancellable.solve(100_000);
+        check("solves again after cancellation", again.status(), SolveStatus.SOLVED);
+        check("all covers after cancellation", again.solutions().size(), 4096);
+    }
+
+    private static List<Integer> sorted(List<Integer> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Integer> copy = new ArrayList<>(rows);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,111 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.SolveStatus;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.DancingCells;
+import pips_dlx.PruningHook;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class for pips_dlx.DancingCells.
+ */
+public class DancingCellsTest {
+
+    // Knuth's example from the Dancing Links paper, the only cover is rows 0, 3 and 4
+    private static final int[][] KNUTH_MATRIX = {
+            {0, 0, 1, 0, 1, 1, 0},
+            {1, 0, 0, 1, 0, 0, 1},
+            {0, 1, 1, 0, 0, 1, 0},
+            {1, 0, 0, 1, 0, 0, 0},
+            {0, 1, 0, 0, 0, 0, 1},
+            {0, 0, 0, 1, 1, 0, 1}
+    };
+
+    // Four cells in a line and two dominoes; only the outer pairs tile, in either domino order
+    private static final int[][] TWO_DOMINO_MATRIX = {
+            {1, 1, 0, 0, 1, 0},
+            {1, 1, 0, 0, 0, 1},
+            {0, 0, 1, 1, 1, 0},
+            {0, 0, 1, 1, 0, 1},
+            {0, 1, 1, 0, 1, 0},
+            {0, 1, 1, 0, 0, 1}
+    };
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING DANCING CELLS TESTS =====\n");
+
+        check("solveFirst finds Knuth's cover", sorted(new DancingCells(KNUTH_MATRIX).solveFirst()), List.of(0, 3, 4));
+        check("solve finds exactly one cover", new DancingCells(KNUTH_MATRIX).solve().size(), 1);
+        check("solve counts both domino orders", new DancingCells(TWO_DOMINO_MATRIX).solve().size(), 2);
+        check("no cover", new DancingCells(new int[][]{{1, 0}, {1, 0}}).solveFirst(), null);
+
+        DancingCells budgeted = new DancingCells(TWO_DOMINO_MATRIX);
+        check("solve within budget", budgeted.solve(100).status(), SolveStatus.SOLVED);
+        check("solve out of budget", budgeted.solve(1).status(), SolveStatus.BUDGET_EXHAUSTED);
+        check("sets restored after the budget ran out", budgeted.solve().size(), 2);
+        check("solveFirst with time budget", budgeted.solveFirst(Duration.ofSeconds(1)).solutions().size(), 1);
+        check("budgeted solve on no cover", new DancingCells(new int[][]{{1, 0}, {1, 0}}).solve(100).status(), SolveStatus.UNSAT);
+
+        // Rejecting every cover that uses row 0 leaves the other domino order
+        DancingCells hooked = new DancingCells(TWO_DOMINO_MATRIX);
+        hooked.setPruningHook(new PruningHook() {
+            private final List<Integer> selected = new ArrayList<>();
+
+            @Override
+            public void rowSelected(int row) {
+                selected.add(row);
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+                selected.remove(selected.size() - 1);
+            }
+
+            @Override
+            public boolean canExtend() {
+                return !selected.contains(0);
+            }
+        });
+        check("pruning hook cuts covers", sorted(hooked.solveFirst()), List.of(1, 2));
+
+        // Same covers as DLX on every bundled puzzle
+        JsonNode puzzles = new ObjectMapper().readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        boolean same = true;
+        for (int p : new int[]{0, 1, 3, 4, 6}) {
+            int[][] matrix = new DLXPipsSolver(puzzles.get(p)).buildExactCoverMatrix();
+            same &= asSets(new DLX(matrix).solve()).equals(asSets(new DancingCells(matrix).solve()));
+        }
+        check("same covers as DLX on all_pips", same, true);
+    }
+
+    private static Set<List<Integer>> asSets(List<List<Integer>> solutions) {
+        Set<List<Integer>> set = new HashSet<>();
+        for (List<Integer> solution : solutions) {
+            set.add(sorted(solution));
+        }
+        return set;
+    }
+
+    private static List<Integer> sorted(List<Integer> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Integer> copy = new ArrayList<>(rows);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,148 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.CancellationToken;
+import pips.Domino;
+import pips.PipsPuzzle;
+import pips.RegionConstraint;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.DecomposingCounter;
+import pips_dlx.PruningHook;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Test class for pips_dlx.DecomposingCounter.
+ */
+public class DecomposingCounterTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING DECOMPOSING COUNTER TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        JsonNode medium = mapper.readTree(new File("src/main/resources/pips_medium.json")).get("pips_medium_puzzles").get(0);
+        check("medium count matches DLX", new DecomposingCounter(medium).countSolutions(), (long) enumerate(medium));
+
+        JsonNode hard = mapper.readTree(new File("src/main/resources/pips_hard.json")).get("pips_medium_puzzles").get(0);
+        check("hard count matches DLX", new DecomposingCounter(hard).countSolutions(), (long) enumerate(hard));
+
+        // Two separate pairs sharing two dominoes: either domino can go on either pair, either way round
+        JsonNode split = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "ANY"},
+                   "B": {"peers": ["A"], "expression": "ANY"},
+                   "C": {"peers": ["D"], "expression": "ANY"},
+                   "D": {"peers": ["C"], "expression": "ANY"}},
+                 "dominoes": [[1, 2], [3, 4]]}""");
+        DecomposingCounter counter = new DecomposingCounter(split);
+        check("disjoint pairs share the supply", counter.countSolutions(), 8L);
+        check("board splits at the root", counter.getSplits(), 1L);
+
+        // A 2x3 board with a sum, an equals and a less region and two identical dominoes
+        JsonNode regions = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B", "D"], "expression": "A+D=5"},
+                   "B": {"peers": ["A", "C", "E"], "expression": "B=C"},
+                   "C": {"peers": ["B", "F"], "expression": "B=C"},
+                   "D": {"peers": ["A", "E"], "expression": "A+D=5"},
+                   "E": {"peers": ["B", "D", "F"], "expression": "E+F<6"},
+                   "F": {"peers": ["C", "E"], "expression": "E+F<6"}},
+                 "dominoes": [[1, 4], [1, 4], [2, 2]]}""");
+        long expected = bruteForce(regions);
+        check("regions count matches brute force", new DecomposingCounter(regions).countSolutions(), expected);
+        check("regions count matches DLX", (long) enumerate(regions), expected);
+        check("brute force finds solutions", expected > 0, true);
+
+        // Solving through the split checks the regions as well
+        JsonNode all = mapper.readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        check("all_pips #0 unsolvable", new DecomposingCounter(all.get(0)).solve(Duration.ofSeconds(10)).status(), SolveStatus.UNSAT);
+        int valid = 0;
+        for (int p = 1; p < all.size(); p++) {
+            SolveResult<Map<String, Integer>> result = new DecomposingCounter(all.get(p)).solve(Duration.ofSeconds(10));
+            valid += result.status() == SolveStatus.SOLVED && isSolution(all.get(p), result.firstSolution()) ? 1 : 0;
+        }
+        check("other all_pips puzzles solved", valid, all.size() - 1);
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        DecomposingCounter cancelled = new DecomposingCounter(hard);
+        cancelled.setCancellationToken(token);
+        check("cancelled token stops the solve", cancelled.solve(Duration.ofSeconds(10)).status(), SolveStatus.CANCELLED);
+    }
+
+    private static boolean isSolution(JsonNode puzzle, Map<String, Integer> solution) {
+        PipsPuzzle model = PipsPuzzle.fromJson(puzzle);
+        for (String node : model.getNodes()) {
+            if (!solution.containsKey(node) || !model.isConsistent(node, solution)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Covers over both orientations that satisfy every region
+    private static int enumerate(JsonNode puzzle) {
+        DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+        DLX dlx = DLX.fromSparseRows(solver.buildSparseRows(true), solver.getColumnCount());
+        dlx.setPruningHook(PruningHook.combine(solver.createTilingHook(), solver.createRegionHook()));
+        return dlx.solve().size();
+    }
+
+    // Every way to lay all the dominoes, each domino told apart by its position, checked once the board is full
+    private static long bruteForce(JsonNode puzzle) {
+        PipsPuzzle model = PipsPuzzle.fromJson(puzzle);
+        int[] values = new int[model.size()];
+        Arrays.fill(values, RegionConstraint.UNASSIGNED);
+        return bruteForce(model, values, new boolean[model.getDominoes().size()]);
+    }
+
+    private static long bruteForce(PipsPuzzle model, int[] values, boolean[] used) {
+        int node = 0;
+        while (node < values.length && values[node] != RegionConstraint.UNASSIGNED) {
+            node++;
+        }
+        if (node == values.length) {
+            for (RegionConstraint region : model.getRegions()) {
+                if (!region.isConsistent(values)) {
+                    return 0;
+                }
+            }
+            return 1;
+        }
+        long count = 0;
+        for (int peer : model.getNeighbors(node)) {
+            if (values[peer] != RegionConstraint.UNASSIGNED) {
+                continue;
+            }
+            for (int d = 0; d < used.length; d++) {
+                if (used[d]) {
+                    continue;
+                }
+                Domino domino = model.getDominoes().get(d);
+                used[d] = true;
+                values[node] = domino.pip1();
+                values[peer] = domino.pip2();
+                count += bruteForce(model, values, used);
+                if (domino.pip1() != domino.pip2()) {
+                    values[node] = domino.pip2();
+                    values[peer] = domino.pip1();
+                    count += bruteForce(model, values, used);
+                }
+                values[node] = RegionConstraint.UNASSIGNED;
+                values[peer] = RegionConstraint.UNASSIGNED;
+                used[d] = false;
+            }
+        }
+        return count;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
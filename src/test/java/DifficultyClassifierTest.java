@@ -0,0 +1,83 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.SolveStatus;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.DifficultyClassifier;
+import pips_dlx.DifficultyClassifier.Difficulty;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PuzzleGenerator;
+import pips_service.BatchRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for pips_dlx.DifficultyClassifier and the routing of pips_service.BatchRunner.
+ */
+public class DifficultyClassifierTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== RUNNING DIFFICULTY CLASSIFIER TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode puzzles = mapper.readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+
+        DifficultyClassifier small = new DifficultyClassifier(puzzles.get(3));
+        check("small board is trivial", small.getDifficulty(), Difficulty.TRIVIAL);
+        check("cells", small.getCells(), 10);
+        check("dominoes", small.getDominoes(), 5);
+        check("matrix rows", small.getMatrixRows(), new DLXPipsSolver(puzzles.get(3)).buildExactCoverMatrix(true).length);
+        check("rows kept with their solver", small.getSolver().getPlacements().size(), small.getSparseRows().length);
+        check("regions rule out some pips", small.getTightness() > 0 && small.getTightness() < 1, true);
+
+        // Its tree counts some 10 million covers, but DLX with the hooks solves it within a few dozen nodes
+        check("24-cell daily board is trivial", new DifficultyClassifier(puzzles.get(5)).getDifficulty(), Difficulty.TRIVIAL);
+
+        JsonNode large = mapper.readTree(PipsJsonConverter.convertPuzzle(
+                new PuzzleGenerator(2).generate(PuzzleGenerator.Settings.defaults(64))).toString());
+        check("64-cell board is heavy", new DifficultyClassifier(large).getDifficulty(), Difficulty.HEAVY);
+
+        JsonNode open = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "ANY", "partners_in_expression": []},
+                   "B": {"peers": ["A", "C"], "expression": "ANY", "partners_in_expression": []},
+                   "C": {"peers": ["B", "D"], "expression": "ANY", "partners_in_expression": []},
+                   "D": {"peers": ["C"], "expression": "ANY", "partners_in_expression": []}},
+                 "dominoes": [[1, 2], [2, 1]]}""");
+        DifficultyClassifier openBoard = new DifficultyClassifier(open);
+        check("cells in no region", openBoard.getAnyCells(), 4);
+        check("no region, no tightness", openBoard.getTightness(), 0.0);
+        check("repeated domino", openBoard.getRepeatedDominoes(), 1);
+
+        // No domino fits, which needs no search at all
+        JsonNode impossible = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B=12", "partners_in_expression": ["B"]},
+                   "B": {"peers": ["A"], "expression": "A+B=12", "partners_in_expression": ["A"]}},
+                 "dominoes": [[6, 5]]}""");
+        DifficultyClassifier none = new DifficultyClassifier(impossible);
+        check("no placements is trivial", none.getDifficulty(), Difficulty.TRIVIAL);
+        check("no matrix rows", none.getMatrixRows(), 0);
+
+        // Trivial boards are done before the heavy one queued ahead of them
+        List<JsonNode> batch = new ArrayList<>();
+        batch.add(large);
+        puzzles.forEach(batch::add);
+        List<Integer> reported = new ArrayList<>();
+        BatchRunner runner = new BatchRunner(2, Duration.ofSeconds(10));
+        List<BatchRunner.Outcome> outcomes = runner.run(batch, outcome -> reported.add(outcome.index()));
+        runner.shutdown();
+        check("every puzzle reported", reported.size(), batch.size());
+        check("outcomes in batch order", outcomes.get(4).index(), 4);
+        check("unsolvable board answered", outcomes.get(1).result().status(), SolveStatus.UNSAT);
+        check("heavy board not reported first", reported.get(0) != 0, true);
+        check("heavy board solved", outcomes.get(0).result().status(), SolveStatus.SOLVED);
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,112 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.FeasibilityCheck;
+import pips.PipsSolver;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PuzzleGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Test class for pips.FeasibilityCheck, the counting arguments run before the search.
+ */
+public class FeasibilityCheckTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING FEASIBILITY CHECK TESTS =====\n");
+
+        JsonNode puzzles = mapper.readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        check("all_pips #0 rejected", new FeasibilityCheck(puzzles.get(0)).isRejected(), true);
+        check("all_pips #0 is not malformed", new FeasibilityCheck(puzzles.get(0)).isMalformed(), false);
+        int rejected = 0;
+        for (int p = 1; p < puzzles.size(); p++) {
+            rejected += new FeasibilityCheck(puzzles.get(p)).isRejected() ? 1 : 0;
+        }
+        check("solvable all_pips puzzles accepted", rejected, 0);
+
+        PipsSolver solver = new PipsSolver(puzzles.get(0));
+        SolveResult<Map<String, Integer>> result = solver.solve(100_000);
+        check("solver answers UNSAT", result.status(), SolveStatus.UNSAT);
+        check("without visiting a node", result.nodesVisited(), 0L);
+
+        // Malformed input
+        check("no node_details", new FeasibilityCheck(mapper.readTree("{\"dominoes\": [[1, 2]]}")).isMalformed(), true);
+        check("pip of 7", new FeasibilityCheck(pair("ANY", "ANY", "[[7, 1]]")).isMalformed(), true);
+        check("domino of three pips", new FeasibilityCheck(pair("ANY", "ANY", "[[1, 2, 3]]")).isMalformed(), true);
+        check("unreadable expression", new FeasibilityCheck(pair("A*B=3", "A*B=3", "[[1, 3]]")).isMalformed(), true);
+
+        String message = null;
+        try {
+            new PipsSolver(pair("ANY", "ANY", "[[7, 1]]"));
+        } catch (IllegalArgumentException e) {
+            message = e.getMessage();
+        }
+        check("solver refuses malformed input", message, "Malformed puzzle: Domino [7,1] has pips outside 0-6");
+
+        // Contradictions
+        check("cells do not match dominoes", new FeasibilityCheck(pair("ANY", "ANY", "[[1, 2], [3, 4]]")).isRejected(), true);
+        check("no 6 for A=6", new FeasibilityCheck(pair("A=6", "ANY", "[[1, 2]]")).isRejected(), true);
+        check("6 for A=6", new FeasibilityCheck(pair("A=6", "ANY", "[[6, 2]]")).isRejected(), false);
+        check("sum target out of range", new FeasibilityCheck(pair("A+B=12", "A+B=12", "[[6, 5]]")).isRejected(), true);
+        check("unequal region, one value", new FeasibilityCheck(pair("A!=B", "A!=B", "[[3, 3]]")).isRejected(), true);
+        check("equals region, different pips", new FeasibilityCheck(pair("A=B", "A=B", "[[3, 4]]")).isRejected(), true);
+        check("equals region, same pips", new FeasibilityCheck(pair("A=B", "A=B", "[[4, 4]]")).isRejected(), false);
+
+        // Two cells pinned to 5 between them, with only one 5 on the dominoes
+        JsonNode line = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A=5", "partners_in_expression": []},
+                   "B": {"peers": ["A", "C"], "expression": "ANY", "partners_in_expression": []},
+                   "C": {"peers": ["B", "D"], "expression": "ANY", "partners_in_expression": []},
+                   "D": {"peers": ["C"], "expression": "D=5", "partners_in_expression": []}},
+                 "dominoes": [[5, 1], [2, 3]]}""");
+        check("two cells share one 5", new FeasibilityCheck(line).isRejected(), true);
+
+        // Each sum fits on its own, but the dominoes carry 18 pips and the regions take 12
+        JsonNode total = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B=6", "partners_in_expression": ["B"]},
+                   "B": {"peers": ["A", "C"], "expression": "A+B=6", "partners_in_expression": ["A"]},
+                   "C": {"peers": ["B", "D"], "expression": "C+D=6", "partners_in_expression": ["D"]},
+                   "D": {"peers": ["C"], "expression": "C+D=6", "partners_in_expression": ["C"]}},
+                 "dominoes": [[1, 5], [6, 6]]}""");
+        check("pips do not add up", new FeasibilityCheck(total).isRejected(), true);
+
+        JsonNode gap = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "ANY", "partners_in_expression": []},
+                   "B": {"peers": ["A"], "expression": "ANY", "partners_in_expression": []},
+                   "C": {"peers": ["D"], "expression": "ANY", "partners_in_expression": []},
+                   "D": {"peers": ["C"], "expression": "ANY", "partners_in_expression": []}},
+                 "dominoes": [[1, 2], [3, 4]]}""");
+        check("two separate dominoes accepted", new FeasibilityCheck(gap).isRejected(), false);
+
+        // Generated boards always have a solution
+        rejected = 0;
+        for (long seed = 1; seed <= 50; seed++) {
+            JsonNode board = mapper.readTree(PipsJsonConverter.convertPuzzle(
+                    new PuzzleGenerator(seed).generate(PuzzleGenerator.Settings.defaults(8 + 2 * (int) (seed % 20)))).toString());
+            rejected += new FeasibilityCheck(board).isRejected() ? 1 : 0;
+        }
+        check("no generated board rejected", rejected, 0);
+    }
+
+    private static JsonNode pair(String expressionA, String expressionB, String dominoes) throws IOException {
+        return mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "%s", "partners_in_expression": ["B"]},
+                   "B": {"peers": ["A"], "expression": "%s", "partners_in_expression": ["A"]}},
+                 "dominoes": %s}""".formatted(expressionA, expressionB, dominoes));
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
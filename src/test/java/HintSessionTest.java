@@ -0,0 +1,100 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.MathExpressionHelper;
+import pips.SolveStatus;
+import pips_dlx.HintSession;
+import pips_dlx.Placement;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for pips_dlx.HintSession.
+ */
+public class HintSessionTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING HINT SESSION TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        // Four nodes in a line A-B-C-D; A and B must add up to 3
+        JsonNode line = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B=3"},
+                   "B": {"peers": ["A", "C"], "expression": "A+B=3"},
+                   "C": {"peers": ["B", "D"], "expression": "ANY"},
+                   "D": {"peers": ["C"], "expression": "ANY"}},
+                 "dominoes": [[1, 2], [3, 4]]}""");
+        HintSession session = new HintSession(line);
+        check("empty board is solvable", session.complete(1000).status(), SolveStatus.SOLVED);
+        check("domino breaking a region is refused", session.place("A", 3, "B", 4), false);
+        check("domino laid the other way round", session.place("A", 2, "B", 1), true);
+        check("covered node is refused", session.place("B", 3, "C", 4), false);
+        Placement hint = session.hint(Duration.ofSeconds(1));
+        check("hint fills the rest", hint == null ? null : hint.dominoIndex(), 1);
+        check("take back empties the board", session.takeBack("B") && session.getPlaced().isEmpty(), true);
+
+        // Covering B and C leaves A and D on their own
+        check("middle domino is accepted", session.place("C", 2, "B", 1), true);
+        check("board cut in two is unsolvable", session.complete(1000).status(), SolveStatus.UNSAT);
+        check("undo restores the board", session.undo() && session.complete(1000).status() == SolveStatus.SOLVED, true);
+
+        // A 2x3 board, A B C over D E F; A and B must add up to 5
+        JsonNode grid = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B", "D"], "expression": "A+B=5"},
+                   "B": {"peers": ["A", "C", "E"], "expression": "A+B=5"},
+                   "C": {"peers": ["B", "F"], "expression": "ANY"},
+                   "D": {"peers": ["A", "E"], "expression": "ANY"},
+                   "E": {"peers": ["B", "D", "F"], "expression": "ANY"},
+                   "F": {"peers": ["C", "E"], "expression": "ANY"}},
+                 "dominoes": [[1, 2], [3, 4], [5, 6]]}""");
+        HintSession gridSession = new HintSession(grid);
+        check("two dominoes breaking A+B=5 laid", gridSession.place("A", 1, "D", 2) && gridSession.place("B", 3, "E", 4), true);
+        check("broken region is unsolvable", gridSession.complete(1000).status(), SolveStatus.UNSAT);
+        check("last domino laid", gridSession.place("C", 5, "F", 6), true);
+        // Every region touched by the laid dominoes is checked, not only those of the last one
+        check("full board breaking a region", gridSession.complete(1000).status(), SolveStatus.UNSAT);
+        check("board fixed after undoing two", gridSession.undo() && gridSession.undo()
+                && gridSession.place("B", 4, "E", 3) && gridSession.complete(1000).status() == SolveStatus.SOLVED, true);
+
+        JsonNode medium = mapper.readTree(new File("src/main/resources/pips_medium.json")).get("pips_medium_puzzles").get(0);
+        HintSession mediumSession = new HintSession(medium);
+        List<Placement> solution = mediumSession.complete(Duration.ofSeconds(10)).firstSolution();
+        check("medium puzzle has a valid solution", solution != null && isValid(medium, solution), true);
+        // Lay half the solution, then ask for the rest
+        for (int i = 0; i < solution.size() / 2; i++) {
+            Placement p = solution.get(i);
+            mediumSession.place(p.node(), p.nodePip(), p.peer(), p.peerPip());
+        }
+        List<Placement> rest = mediumSession.complete(Duration.ofSeconds(10)).firstSolution();
+        check("completion of half a board", rest == null ? -1 : rest.size(), solution.size() - solution.size() / 2);
+        rest.addAll(0, mediumSession.getPlaced());
+        check("completed board is valid", isValid(medium, rest), true);
+    }
+
+    private static boolean isValid(JsonNode puzzle, List<Placement> placements) {
+        Map<String, Integer> values = new HashMap<>();
+        for (Placement p : placements) {
+            values.put(p.node(), p.nodePip());
+            values.put(p.peer(), p.peerPip());
+        }
+        if (values.size() != puzzle.get("node_details").size()) {
+            return false;
+        }
+        boolean valid = true;
+        for (var it = puzzle.get("node_details").fields(); it.hasNext(); ) {
+            valid &= MathExpressionHelper.satisfies(it.next().getValue().get("expression").asText(), values);
+        }
+        return valid;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
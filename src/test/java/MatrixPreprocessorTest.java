@@ -0,0 +1,150 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.MatrixPreprocessor;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PruningHook;
+import pips_dlx.PuzzleGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class for pips_dlx.MatrixPreprocessor.
+ */
+public class MatrixPreprocessorTest {
+
+    // Knuth's example from the Dancing Links paper, the only cover is rows 0, 3 and 4
+    private static final int[][] KNUTH_MATRIX = {
+            {0, 0, 1, 0, 1, 1, 0},
+            {1, 0, 0, 1, 0, 0, 1},
+            {0, 1, 1, 0, 0, 1, 0},
+            {1, 0, 0, 1, 0, 0, 0},
+            {0, 1, 0, 0, 0, 0, 1},
+            {0, 0, 0, 1, 1, 0, 1}
+    };
+
+    // Four cells in a line and two dominoes; only the outer pairs tile, in either domino order
+    private static final int[][] TWO_DOMINO_MATRIX = {
+            {1, 1, 0, 0, 1, 0},
+            {1, 1, 0, 0, 0, 1},
+            {0, 0, 1, 1, 1, 0},
+            {0, 0, 1, 1, 0, 1},
+            {0, 1, 1, 0, 1, 0},
+            {0, 1, 1, 0, 0, 1}
+    };
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING MATRIX PREPROCESSOR TESTS =====\n");
+
+        // Removing the rows that strand a column leaves a single row for every column
+        MatrixPreprocessor knuth = new MatrixPreprocessor(KNUTH_MATRIX);
+        check("Knuth solved by preprocessing", knuth.getMatrix()[0].length, 0);
+        check("Knuth forced rows", sorted(knuth.getForcedRows()), List.of(0, 3, 4));
+        check("Knuth cover in original rows", sorted(toList(knuth.toOriginal(new int[0]))), List.of(0, 3, 4));
+
+        // The middle pair strands both outer cells, the four outer placements stay
+        MatrixPreprocessor dominoes = new MatrixPreprocessor(TWO_DOMINO_MATRIX);
+        check("blocking rows removed", dominoes.getBlockingRows(), 2);
+        check("rows left", dominoes.getMatrix().length, 4);
+        check("covers kept", asSets(map(dominoes, new DLX(dominoes.getMatrix()).solve())),
+                asSets(new DLX(TWO_DOMINO_MATRIX).solve()));
+
+        check("empty column is infeasible", new MatrixPreprocessor(new int[][]{{1, 0}, {1, 0}}).getMatrix(), null);
+        check("forced rows that clash are infeasible", new MatrixPreprocessor(new int[][]{{1, 1, 0}, {0, 1, 1}}).isInfeasible(), true);
+
+        int[][] duplicated = {{1, 1, 0, 0}, {1, 1, 0, 0}, {0, 0, 1, 1}, {1, 0, 1, 0}, {0, 1, 0, 1}};
+        MatrixPreprocessor merged = new MatrixPreprocessor(duplicated);
+        check("duplicate rows merged", merged.getDuplicateRows(), 1);
+        check("covers without duplicates", new DLX(merged.getMatrix()).solve().size(), 2);
+        check("duplicates kept on request", new MatrixPreprocessor(duplicated, false).getDuplicateRows(), 0);
+
+        // The wrapped hook sees original rows, the forced ones right away
+        List<Integer> seen = new ArrayList<>();
+        PruningHook recorder = new PruningHook() {
+            @Override
+            public void rowSelected(int row) {
+                seen.add(row);
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+                seen.remove(Integer.valueOf(row));
+            }
+
+            @Override
+            public boolean canExtend() {
+                return true;
+            }
+        };
+        knuth.wrap(recorder);
+        check("hook told about forced rows", sorted(seen), List.of(0, 3, 4));
+        seen.clear();
+        merged.wrap(recorder).rowSelected(1);
+        check("hook gets original rows", seen, List.of(2));
+
+        // Same covers as the original matrix on the bundled puzzles
+        JsonNode puzzles = new ObjectMapper().readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        boolean same = true;
+        boolean smaller = true;
+        for (int p : new int[]{0, 1, 3, 4, 6}) {
+            int[][] matrix = new DLXPipsSolver(puzzles.get(p)).buildExactCoverMatrix();
+            MatrixPreprocessor preprocessor = new MatrixPreprocessor(matrix);
+            same &= asSets(new DLX(matrix).solve()).equals(asSets(map(preprocessor, new DLX(preprocessor.getMatrix()).solve())));
+            smaller &= preprocessor.getMatrix().length < matrix.length;
+        }
+        check("same covers on all_pips", same, true);
+        check("fewer rows on all_pips", smaller, true);
+
+        // Rows given by their columns reduce the same way, without a dense matrix
+        JsonNode large = new ObjectMapper().readTree(PipsJsonConverter.convertPuzzle(
+                new PuzzleGenerator(1).generate(PuzzleGenerator.Settings.defaults(200))).toString());
+        DLXPipsSolver solver = new DLXPipsSolver(large);
+        MatrixPreprocessor dense = new MatrixPreprocessor(solver.buildExactCoverMatrix(true), false);
+        MatrixPreprocessor sparse = MatrixPreprocessor.fromSparseRows(solver.buildSparseRows(true), solver.getColumnCount(), false, null);
+        check("sparse rows reduce alike", Arrays.deepEquals(sparse.getMatrix(), dense.getMatrix()), true);
+        check("blocking rows on a 200-cell board", sparse.getBlockingRows() > 0, true);
+        check("sparse rows of the reduced matrix", sparse.getSparseRows().length, dense.getMatrix().length);
+    }
+
+    private static List<List<Integer>> map(MatrixPreprocessor preprocessor, List<List<Integer>> solutions) {
+        List<List<Integer>> mapped = new ArrayList<>();
+        for (List<Integer> solution : solutions) {
+            mapped.add(preprocessor.toOriginal(solution));
+        }
+        return mapped;
+    }
+
+    private static List<Integer> toList(int[] rows) {
+        return Arrays.stream(rows).boxed().toList();
+    }
+
+    private static Set<List<Integer>> asSets(List<List<Integer>> solutions) {
+        Set<List<Integer>> set = new HashSet<>();
+        for (List<Integer> solution : solutions) {
+            set.add(sorted(solution));
+        }
+        return set;
+    }
+
+    private static List<Integer> sorted(List<Integer> rows) {
+        if (rows == null) {
+            return null;
+        }
+        List<Integer> copy = new ArrayList<>(rows);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,151 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.Domino;
+import pips.PipsPuzzle;
+import pips.RegionConstraint;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PuzzleGenerator;
+import pips_service.PipsSolverService;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Test class for pips_service.PipsSolverService, run on a port the system picks.
+ */
+public class PipsSolverServiceTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== RUNNING PIPS SOLVER SERVICE TESTS =====\n");
+        JsonNode puzzles = mapper.readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+
+        PipsSolverService service = new PipsSolverService(0, 1, 6, Duration.ofMillis(300));
+        service.start();
+        String url = "http://localhost:" + service.getPort();
+        try {
+            HttpResponse<String> solved = client.send(post(url, puzzles.get(1).toString()), HttpResponse.BodyHandlers.ofString());
+            check("solvable puzzle answered", solved.statusCode(), 200);
+            check("solvable puzzle solved", mapper.readTree(solved.body()).get("status").asText(), "SOLVED");
+            int valid = 0;
+            for (int p = 1; p < puzzles.size(); p++) {
+                JsonNode response = mapper.readTree(client.send(post(url, puzzles.get(p).toString()), HttpResponse.BodyHandlers.ofString()).body());
+                valid += isSolution(puzzles.get(p), response.get("placements")) ? 1 : 0;
+            }
+            check("placements meet regions and dominoes", valid, puzzles.size() - 1);
+            HttpResponse<String> unsat = client.send(post(url, puzzles.get(0).toString()), HttpResponse.BodyHandlers.ofString());
+            check("rejected puzzle answered as UNSAT", mapper.readTree(unsat.body()).get("status").asText(), "UNSAT");
+            // Passes the feasibility check, but A and D are on different dominoes and sum to at least 4
+            String crossed = """
+                    {"node_details": {
+                       "A": {"peers": ["B", "C"], "expression": "A+D=3"},
+                       "B": {"peers": ["A", "D"], "expression": "B+C=7"},
+                       "C": {"peers": ["A", "D"], "expression": "B+C=7"},
+                       "D": {"peers": ["B", "C"], "expression": "A+D=3"}},
+                     "dominoes": [[1, 2], [3, 4]]}""";
+            HttpResponse<String> searched = client.send(post(url, crossed), HttpResponse.BodyHandlers.ofString());
+            check("unsolvable puzzle answered", searched.statusCode(), 200);
+            check("unsolvable puzzle passes the check", mapper.readTree(searched.body()).has("reason"), false);
+            check("unsolvable puzzle searched to UNSAT", mapper.readTree(searched.body()).get("status").asText(), "UNSAT");
+            check("malformed puzzle", client.send(post(url, "{\"node_details\": {}, \"dominoes\": [[7, 1]]}"),
+                    HttpResponse.BodyHandlers.ofString()).statusCode(), 400);
+            check("GET is refused", client.send(HttpRequest.newBuilder(URI.create(url + "/solve")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode(), 405);
+
+            // A search that runs out of its 300 ms is a timeout as well, answered with what it got to
+            String large = PipsJsonConverter.convertPuzzle(new PuzzleGenerator(3).generate(PuzzleGenerator.Settings.defaults(200))).toString();
+            HttpResponse<String> exhausted = client.send(post(url, large), HttpResponse.BodyHandlers.ofString());
+            check("exhausted budget answered with 504", exhausted.statusCode(), 504);
+            check("504 reports the exhausted budget", mapper.readTree(exhausted.body()).get("status").asText(), "BUDGET_EXHAUSTED");
+
+            // Each of these takes longer than its 300 ms on the one worker: one runs, six queue, one
+            // is turned away, and those not answered after 1.3 s time out
+            List<CompletableFuture<HttpResponse<String>>> burst = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                burst.add(client.sendAsync(post(url, large), HttpResponse.BodyHandlers.ofString()));
+            }
+            int ok = 0;
+            int busy = 0;
+            int timedOut = 0;
+            boolean retryAfter = true;
+            for (CompletableFuture<HttpResponse<String>> request : burst) {
+                HttpResponse<String> response = request.join();
+                switch (response.statusCode()) {
+                    case 200 -> ok++;
+                    case 503 -> {
+                        busy++;
+                        retryAfter &= response.headers().firstValue("Retry-After").isPresent();
+                    }
+                    case 504 -> timedOut++;
+                    default -> { }
+                }
+            }
+            check("queue full answered with 503", busy, 1);
+            check("503 carries Retry-After", retryAfter, true);
+            check("late requests time out with 504", timedOut > 0, true);
+            check("admitted requests answered", ok + timedOut, 7);
+
+            // Timed-out requests are cancelled, so the worker is free soon after the last answer
+            long idleBy = System.currentTimeMillis() + 1000;
+            JsonNode health;
+            do {
+                Thread.sleep(20);
+                health = mapper.readTree(client.send(HttpRequest.newBuilder(URI.create(url + "/health")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()).body());
+            } while ((health.get("active").asInt() > 0 || health.get("queued").asInt() > 0) && System.currentTimeMillis() < idleBy);
+            check("worker idle after the timeouts", health.get("active").asInt() + health.get("queued").asInt(), 0);
+        } finally {
+            service.stop();
+        }
+    }
+
+    // Every node covered once by a domino on two neighbours, the puzzle's dominoes used up and every region met
+    private static boolean isSolution(JsonNode puzzle, JsonNode placements) {
+        PipsPuzzle model = PipsPuzzle.fromJson(puzzle);
+        int[] values = new int[model.size()];
+        Arrays.fill(values, RegionConstraint.UNASSIGNED);
+        Map<Domino, Integer> dominoes = new HashMap<>();
+        for (Domino domino : model.getDominoes()) {
+            dominoes.merge(new Domino(Math.min(domino.pip1(), domino.pip2()), Math.max(domino.pip1(), domino.pip2())), 1, Integer::sum);
+        }
+        for (JsonNode placement : placements) {
+            int node = model.indexOf(placement.get("nodes").get(0).asText());
+            int peer = model.indexOf(placement.get("nodes").get(1).asText());
+            int nodePip = placement.get("pips").get(0).asInt();
+            int peerPip = placement.get("pips").get(1).asInt();
+            if (values[node] != RegionConstraint.UNASSIGNED || values[peer] != RegionConstraint.UNASSIGNED
+                    || Arrays.stream(model.getNeighbors(node)).noneMatch(n -> n == peer)) {
+                return false;
+            }
+            values[node] = nodePip;
+            values[peer] = peerPip;
+            dominoes.merge(new Domino(Math.min(nodePip, peerPip), Math.max(nodePip, peerPip)), -1, Integer::sum);
+        }
+        if (Arrays.stream(values).anyMatch(v -> v == RegionConstraint.UNASSIGNED) || dominoes.values().stream().anyMatch(n -> n != 0)) {
+            return false;
+        }
+        return model.getRegions().stream().allMatch(region -> region.isConsistent(values));
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url + "/solve")).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
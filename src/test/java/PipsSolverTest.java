@@ -0,0 +1,100 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.CancellationToken;
+import pips.PipsPuzzle;
+import pips.PipsSolver;
+import pips.RegionConstraint;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PuzzleGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Test class for pips.PipsSolver, the backtracking search with dynamic ordering, backjumping and nogoods.
+ */
+public class PipsSolverTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING PIPS SOLVER TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        JsonNode puzzles = mapper.readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        check("all_pips #0 has no solution", new PipsSolver(puzzles.get(0)).solve(100_000).status(), SolveStatus.UNSAT);
+        boolean valid = true;
+        for (int p : new int[]{1, 2, 3, 4, 6}) {
+            SolveResult<Map<String, Integer>> result = new PipsSolver(puzzles.get(p)).solve(100_000);
+            valid &= result.status() == SolveStatus.SOLVED && isValid(puzzles.get(p), result.firstSolution());
+        }
+        check("valid solutions on all_pips", valid, true);
+
+        // Ran past a minute while the search went on from a neighbour of the last domino
+        SolveResult<Map<String, Integer>> large = new PipsSolver(puzzles.get(5)).solve(1_000);
+        check("24-cell puzzle solved", large.status(), SolveStatus.SOLVED);
+        check("24-cell solution is valid", isValid(puzzles.get(5), large.firstSolution()), true);
+
+        // Took 358,051 nodes before failures were traced back to their causes
+        JsonNode hard = mapper.readTree(new File("src/main/resources/pips_hard.json")).get("pips_medium_puzzles").get(0);
+        PipsSolver hardSolver = new PipsSolver(hard);
+        SolveResult<Map<String, Integer>> hardResult = hardSolver.solve(20_000);
+        check("hard puzzle solved", hardResult.status(), SolveStatus.SOLVED);
+        check("hard puzzle solution is valid", isValid(hard, hardResult.firstSolution()), true);
+        check("hard puzzle backjumps", hardSolver.getBackjumps() > 0, true);
+        check("hard puzzle uses nogoods", hardSolver.getNogoodHits() > 0, true);
+
+        // The hard puzzle takes enough nodes to reach the first poll of the token
+        PipsSolver cancellable = new PipsSolver(hard);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        cancellable.setCancellationToken(token);
+        check("pre-cancelled token stops the search", cancellable.solve(Duration.ofSeconds(10)).status(), SolveStatus.CANCELLED);
+        cancellable.setCancellationToken(null);
+        Thread.currentThread().interrupt();
+        SolveResult<Map<String, Integer>> interrupted = cancellable.solve(Duration.ofSeconds(10));
+        // Clears the flag again for the checks below
+        boolean wasInterrupted = Thread.interrupted();
+        check("interrupted thread stops the search", interrupted.status(), SolveStatus.CANCELLED);
+        check("interrupt is left for the caller", wasInterrupted, true);
+        SolveResult<Map<String, Integer>> again = cancellable.solve(20_000);
+        check("solves again after cancellation", again.status(), SolveStatus.SOLVED);
+        check("solution after cancellation is valid", isValid(hard, again.firstSolution()), true);
+
+        // Generated boards always have a solution, and often repeat a domino
+        int unsat = 0;
+        for (long seed = 1; seed <= 20; seed++) {
+            JsonNode board = mapper.readTree(PipsJsonConverter.convertPuzzle(
+                    new PuzzleGenerator(seed).generate(PuzzleGenerator.Settings.defaults(16))).toString());
+            if (new PipsSolver(board).solve(200_000).status() == SolveStatus.UNSAT) {
+                unsat++;
+            }
+        }
+        check("no generated board reported unsolvable", unsat, 0);
+    }
+
+    private static boolean isValid(JsonNode puzzle, Map<String, Integer> solution) {
+        PipsPuzzle model = PipsPuzzle.fromJson(puzzle);
+        int[] values = new int[model.size()];
+        for (int i = 0; i < model.size(); i++) {
+            Integer value = solution.get(model.getNode(i));
+            if (value == null) {
+                return false;
+            }
+            values[i] = value;
+        }
+        for (RegionConstraint region : model.getRegions()) {
+            if (!region.isConsistent(values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,107 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.CancellationToken;
+import pips.PipsPuzzle;
+import pips.RegionConstraint;
+import pips.SolveStatus;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PuzzleGenerator;
+import pips_service.PortfolioSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for pips_service.PortfolioSolver.
+ */
+public class PortfolioSolverTest {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.out.println("===== RUNNING PORTFOLIO SOLVER TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode puzzles = mapper.readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        JsonNode hard = mapper.readTree(new File("src/main/resources/pips_hard.json")).get("pips_medium_puzzles").get(0);
+
+        boolean rejected = false;
+        try {
+            new PortfolioSolver(List.of("DLX", "Guessing"));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check("unknown engine rejected", rejected, true);
+
+        PortfolioSolver portfolio = new PortfolioSolver();
+        PortfolioSolver.Result unsat = portfolio.solve(puzzles.get(0), Duration.ofSeconds(10));
+        check("unsolvable puzzle answered", unsat.result().status(), SolveStatus.UNSAT);
+        boolean valid = true;
+        for (int p = 1; p < puzzles.size(); p++) {
+            PortfolioSolver.Result result = portfolio.solve(puzzles.get(p), Duration.ofSeconds(10));
+            valid &= result.result().status() == SolveStatus.SOLVED && isValid(puzzles.get(p), result.result().firstSolution());
+        }
+        check("valid solutions on all_pips", valid, true);
+        check("one win per puzzle", portfolio.getWins().values().stream().mapToLong(Long::longValue).sum(), (long) puzzles.size());
+        portfolio.shutdown();
+
+        // Every engine hands back node values, the DLX placements included
+        for (String engine : PortfolioSolver.ENGINES) {
+            PortfolioSolver single = new PortfolioSolver(List.of(engine));
+            PortfolioSolver.Result result = single.solve(hard, Duration.ofSeconds(30));
+            check(engine + " alone solves the hard puzzle", result.engine() + " " + isValid(hard, result.result().firstSolution()), engine + " true");
+            single.shutdown();
+        }
+
+        // On a large board the engines that lose are still busy when one answers, and are not waited for
+        JsonNode large = mapper.readTree(PipsJsonConverter.convertPuzzle(
+                new PuzzleGenerator(1).generate(PuzzleGenerator.Settings.defaults(200))).toString());
+        PortfolioSolver race = new PortfolioSolver();
+        long start = System.nanoTime();
+        PortfolioSolver.Result first = race.solve(large, Duration.ofSeconds(30));
+        long returned = (System.nanoTime() - start) / 1_000_000;
+        check("large board solved", first.result().status(), SolveStatus.SOLVED);
+        check("returned soon after the answer", returned - first.elapsedMillis() < 1000, true);
+        race.shutdown();
+
+        PortfolioSolver backtracking = new PortfolioSolver(List.of("Backtracking"));
+        PortfolioSolver.Result timedOut = backtracking.solve(hard, Duration.ZERO);
+        check("no answer within the budget", timedOut.result().status(), SolveStatus.BUDGET_EXHAUSTED);
+        check("no winner without an answer", timedOut.engine(), null);
+        check("no win counted", backtracking.getWins().isEmpty(), true);
+        backtracking.shutdown();
+
+        PortfolioSolver sat = new PortfolioSolver(List.of("SAT"));
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        sat.setCancellationToken(token);
+        check("caller cancels the race", sat.solve(hard, Duration.ofSeconds(30)).result().status(), SolveStatus.CANCELLED);
+        sat.shutdown();
+    }
+
+    private static boolean isValid(JsonNode puzzle, Map<String, Integer> solution) {
+        if (solution == null) {
+            return false;
+        }
+        PipsPuzzle model = PipsPuzzle.fromJson(puzzle);
+        int[] values = new int[model.size()];
+        for (int i = 0; i < model.size(); i++) {
+            Integer value = solution.get(model.getNode(i));
+            if (value == null) {
+                return false;
+            }
+            values[i] = value;
+        }
+        for (RegionConstraint region : model.getRegions()) {
+            if (!region.isConsistent(values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
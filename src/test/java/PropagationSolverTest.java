@@ -0,0 +1,61 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.MathExpressionHelper;
+import pips.PropagationSolver;
+import pips.SolveResult;
+import pips.SolveStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Test class for pips.PropagationSolver.
+ */
+public class PropagationSolverTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING PROPAGATION SOLVER TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        JsonNode medium = mapper.readTree(new File("src/main/resources/pips_medium.json")).get("pips_medium_puzzles").get(0);
+        PropagationSolver solver = new PropagationSolver(medium);
+        SolveResult<Map<String, Integer>> result = solver.solve(Long.MAX_VALUE);
+        check("medium puzzle is solved", result.status(), SolveStatus.SOLVED);
+        check("solution satisfies every region", satisfiesAll(medium, result.firstSolution()), true);
+        System.out.println("  choice points: " + solver.getChoicePoints() + ", propagator runs: " + solver.getPropagations());
+
+        JsonNode hard = mapper.readTree(new File("src/main/resources/pips_hard.json")).get("pips_medium_puzzles").get(0);
+        SolveResult<Map<String, Integer>> hardResult = new PropagationSolver(hard).solve(Long.MAX_VALUE);
+        check("hard puzzle is solved", hardResult.status(), SolveStatus.SOLVED);
+        check("hard solution satisfies every region", satisfiesAll(hard, hardResult.firstSolution()), true);
+
+        // Two cells whose sum must be 12, but the only domino is [6, 5]
+        JsonNode impossible = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B=12", "partners_in_expression": ["B"]},
+                   "B": {"peers": ["A"], "expression": "A+B=12", "partners_in_expression": ["A"]}},
+                 "dominoes": [[6, 5]]}""");
+        PropagationSolver impossibleSolver = new PropagationSolver(impossible);
+        check("impossible sum is UNSAT", impossibleSolver.solve(Long.MAX_VALUE).status(), SolveStatus.UNSAT);
+        check("proved without branching", impossibleSolver.getChoicePoints(), 0L);
+
+        check("budget is respected", new PropagationSolver(hard).solve(1).status(), SolveStatus.BUDGET_EXHAUSTED);
+    }
+
+    private static boolean satisfiesAll(JsonNode puzzle, Map<String, Integer> values) {
+        if (values == null) {
+            return false;
+        }
+        for (JsonNode node : puzzle.get("node_details")) {
+            if (!MathExpressionHelper.satisfies(node.get("expression").asText(), values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,64 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import pips.PipsPuzzle;
+import pips.SolveStatus;
+import pips_dlx.PipsJsonConverter;
+import pips_dlx.PuzzleGenerator;
+import pips_sat.SatPipsSolver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test class for pips_dlx.PuzzleGenerator.
+ */
+public class PuzzleGeneratorTest {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("===== RUNNING PUZZLE GENERATOR TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        PuzzleGenerator.Settings settings = PuzzleGenerator.Settings.defaults(200);
+        JsonObject raw = new PuzzleGenerator(5).generate(settings);
+        check("same seed, same puzzle", new PuzzleGenerator(5).generate(settings).equals(raw), true);
+        check("different seed, different puzzle", new PuzzleGenerator(6).generate(settings).equals(raw), false);
+        check("number of dominoes", raw.getAsJsonArray("dominoes").size(), 100);
+
+        // The i-th pair of the solution carries the i-th domino, halves in the same order
+        JsonObject converted = PipsJsonConverter.convertPuzzle(raw);
+        Map<String, String> nodeOfCell = new HashMap<>();
+        converted.getAsJsonObject("cell_mapping").entrySet().forEach(e -> nodeOfCell.put(e.getValue().getAsString(), e.getKey()));
+        Map<String, Integer> assignment = new HashMap<>();
+        JsonArray solution = raw.getAsJsonArray("solution");
+        for (int i = 0; i < solution.size(); i++) {
+            JsonArray domino = raw.getAsJsonArray("dominoes").get(i).getAsJsonArray();
+            for (int half = 0; half < 2; half++) {
+                assignment.put(nodeOfCell.get(cell(solution.get(i).getAsJsonArray().get(half))), domino.get(half).getAsInt());
+            }
+        }
+        check("solution covers every cell", assignment.size(), 200);
+
+        JsonNode puzzleJson = mapper.readTree(converted.toString());
+        PipsPuzzle puzzle = PipsPuzzle.fromJson(puzzleJson);
+        boolean valid = true;
+        for (String node : puzzle.getNodes()) {
+            valid &= puzzle.isConsistent(node, assignment);
+        }
+        check("solution meets every region", valid, true);
+
+        JsonNode small = mapper.readTree(PipsJsonConverter.convertPuzzle(
+                new PuzzleGenerator(1).generate(PuzzleGenerator.Settings.defaults(30))).toString());
+        check("small board is solvable", new SatPipsSolver(small).solve(100_000).status(), SolveStatus.SOLVED);
+    }
+
+    private static String cell(JsonElement index) {
+        return index.getAsJsonArray().get(0).getAsInt() + "," + index.getAsJsonArray().get(1).getAsInt();
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
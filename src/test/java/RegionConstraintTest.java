@@ -0,0 +1,87 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import pips.PipsPuzzle;
+import pips.PropagationSolver;
+import pips.RegionConstraint;
+import pips.SolveStatus;
+import pips_dlx.PipsJsonConverter;
+import pips_sat.SatPipsSolver;
+
+import java.io.FileReader;
+import java.util.Map;
+
+/**
+ * Test class for pips.RegionConstraint and the typed regions read by pips.PipsPuzzle.
+ */
+public class RegionConstraintTest {
+
+    private static final int E = RegionConstraint.UNASSIGNED;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("===== RUNNING REGION CONSTRAINT TESTS =====\n");
+
+        int[] cells = {0, 1, 2};
+        check("sum still reachable", new RegionConstraint.SumEquals(cells, 10).isConsistent(new int[]{5, 4, E}), true);
+        check("sum already exceeded", new RegionConstraint.SumEquals(cells, 10).isConsistent(new int[]{6, 5, E}), false);
+        check("sum out of reach", new RegionConstraint.SumEquals(cells, 15).isConsistent(new int[]{1, 1, E}), false);
+        check("less with empty cells", new RegionConstraint.Less(cells, 3).isConsistent(new int[]{2, E, E}), true);
+        check("less broken", new RegionConstraint.Less(cells, 3).isConsistent(new int[]{2, 1, E}), false);
+        check("greater still reachable", new RegionConstraint.Greater(cells, 11).isConsistent(new int[]{0, E, E}), true);
+        check("greater out of reach", new RegionConstraint.Greater(cells, 12).isConsistent(new int[]{0, 0, 6}), false);
+        check("equal cells", new RegionConstraint.AllEqual(cells).isConsistent(new int[]{4, E, 4}), true);
+        check("unequal value in equals", new RegionConstraint.AllEqual(cells).isConsistent(new int[]{4, E, 3}), false);
+        check("different cells", new RegionConstraint.AllDifferent(cells).isConsistent(new int[]{1, 2, E}), true);
+        check("repeated value in unequal", new RegionConstraint.AllDifferent(cells).isConsistent(new int[]{1, E, 1}), false);
+
+        // Equality and printing follow the cells, not the array instance
+        check("equal by cells", new RegionConstraint.SumEquals(new int[]{0, 1}, 5), new RegionConstraint.SumEquals(new int[]{0, 1}, 5));
+        check("hash by cells", new RegionConstraint.AllEqual(new int[]{2, 3}).hashCode(), new RegionConstraint.AllEqual(new int[]{2, 3}).hashCode());
+        check("target compared", new RegionConstraint.Less(cells, 3).equals(new RegionConstraint.Less(cells, 4)), false);
+        check("type compared", new RegionConstraint.AllEqual(cells).equals(new RegionConstraint.AllDifferent(cells)), false);
+        check("printed with cells", new RegionConstraint.Greater(new int[]{0, 2}, 7).toString(), "Greater[cells=[0, 2], target=7]");
+
+        // Expressions of the node_details format, including the =null written for equals regions by older converters
+        ObjectMapper mapper = new ObjectMapper();
+        PipsPuzzle legacy = PipsPuzzle.fromJson(mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B+C+D=null"},
+                   "B": {"peers": ["A", "C"], "expression": "A+B+C+D=null"},
+                   "C": {"peers": ["B", "D"], "expression": "A+B+C+D=null"},
+                   "D": {"peers": ["C", "E"], "expression": "A+B+C+D=null"},
+                   "E": {"peers": ["D", "F"], "expression": "E!=F"},
+                   "F": {"peers": ["E"], "expression": "E!=F"}},
+                 "dominoes": [[1, 1], [1, 1], [2, 3]]}"""));
+        check("=null read as equals", legacy.getRegions().get(0).type(), "equals");
+        check("!= read as unequal", legacy.getRegions().get(1).type(), "unequal");
+
+        // A raw NYT puzzle: two cells that must differ
+        JsonObject raw = JsonParser.parseString("""
+                {"dominoes": [[2, 2]],
+                 "regions": [{"indices": [[0, 0], [0, 1]], "type": "unequal"}]}""").getAsJsonObject();
+        JsonNode converted = mapper.readTree(PipsJsonConverter.convertPuzzle(raw).toString());
+        check("converter writes typed constraints", converted.get("constraints").get(0).get("type").asText(), "unequal");
+        check("double on unequal region is UNSAT", new SatPipsSolver(converted).solve(1000).status(), SolveStatus.UNSAT);
+        check("propagation agrees", new PropagationSolver(converted).solve(1000).status(), SolveStatus.UNSAT);
+        raw.getAsJsonArray("dominoes").get(0).getAsJsonArray().set(1, new JsonPrimitive(5));
+        converted = mapper.readTree(PipsJsonConverter.convertPuzzle(raw).toString());
+        check("different halves are SOLVED", new SatPipsSolver(converted).solve(1000).status(), SolveStatus.SOLVED);
+
+        // The hard puzzle of the sample daily file, converted with its typed regions
+        JsonObject daily = JsonParser.parseReader(new FileReader("src/main/resources/pips_general.json")).getAsJsonObject();
+        JsonNode hard = mapper.readTree(PipsJsonConverter.convertPuzzle(daily.getAsJsonObject("hard")).toString());
+        PipsPuzzle puzzle = PipsPuzzle.fromJson(hard);
+        Map<String, Integer> solution = new SatPipsSolver(puzzle).solve(100_000).firstSolution();
+        boolean valid = solution != null;
+        for (int i = 0; valid && i < puzzle.size(); i++) {
+            valid = puzzle.isConsistent(puzzle.getNode(i), solution);
+        }
+        check("daily hard solution meets every region", valid, true);
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,143 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips_dlx.BitExactCover;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.DancingCells;
+import pips_dlx.ExactCoverSolver;
+import pips_dlx.PruningHook;
+import pips_dlx.RowOrder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test class for pips_dlx.RowOrder in the exact cover engines.
+ */
+public class RowOrderTest {
+
+    // Column 0 is chosen first, with rows 0 and 1. Once it is covered, row 0 leaves its other
+    // columns with 2 and 5 rows, row 1 leaves them with 3 and 3: row 1 removes fewer rows, but
+    // row 0 has the scarcest column.
+    private static final int[][] CHOICE_MATRIX = {
+            {1, 1, 1, 0, 0},
+            {1, 0, 0, 1, 1},
+            {0, 1, 0, 0, 0},
+            {0, 1, 0, 0, 0},
+            {0, 0, 1, 0, 0},
+            {0, 0, 1, 0, 0},
+            {0, 0, 1, 0, 0},
+            {0, 0, 1, 0, 0},
+            {0, 0, 1, 0, 0},
+            {0, 0, 0, 1, 0},
+            {0, 0, 0, 1, 0},
+            {0, 0, 0, 1, 0},
+            {0, 0, 0, 0, 1},
+            {0, 0, 0, 0, 1},
+            {0, 0, 0, 0, 1}
+    };
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING ROW ORDER TESTS =====\n");
+
+        check("parse least-constraining", RowOrder.parse("least-constraining"), RowOrder.LEAST_CONSTRAINING);
+        check("parse scarcest-first", RowOrder.parse("Scarcest-First"), RowOrder.SCARCEST_FIRST);
+
+        for (String engine : List.of("DLX", "DancingCells", "BitExactCover")) {
+            check(engine + " matrix order", firstRow(engine, RowOrder.MATRIX), 0);
+            check(engine + " least constraining", firstRow(engine, RowOrder.LEAST_CONSTRAINING), 1);
+            check(engine + " scarcest first", firstRow(engine, RowOrder.SCARCEST_FIRST), 0);
+        }
+
+        // Every order finds the same covers, and the bit engine visits the same nodes as DLX
+        JsonNode puzzles = new ObjectMapper().readTree(new File("src/main/resources/all_pips.json")).get("pips_medium_puzzles");
+        for (RowOrder order : RowOrder.values()) {
+            boolean sameCovers = true;
+            boolean sameNodes = true;
+            for (int p : new int[]{0, 1, 3, 4, 6}) {
+                int[][] matrix = new DLXPipsSolver(puzzles.get(p)).buildExactCoverMatrix();
+                Set<List<Integer>> expected = asSets(new DLX(matrix).solve());
+                for (ExactCoverSolver engine : List.of(new DLX(matrix), new DancingCells(matrix), new BitExactCover(matrix))) {
+                    engine.setRowOrder(order);
+                    sameCovers &= asSets(engine.solve()).equals(expected);
+                }
+                DLX dlx = new DLX(matrix);
+                BitExactCover bits = new BitExactCover(matrix);
+                dlx.setRowOrder(order);
+                bits.setRowOrder(order);
+                sameNodes &= dlx.solveFirst().equals(bits.solveFirst()) && dlx.getNodeCount() == bits.getNodeCount();
+            }
+            check("same covers, " + order, sameCovers, true);
+            check("same first cover as DLX, " + order, sameNodes, true);
+        }
+
+        // With region checks, least constraining first needs fewer nodes to the first solution
+        check("fewer nodes on all_pips", firstSolutionNodes(puzzles, RowOrder.LEAST_CONSTRAINING)
+                < firstSolutionNodes(puzzles, RowOrder.MATRIX), true);
+
+        // The randomized search still finds solutions with an order set
+        DLX random = new DLX(new DLXPipsSolver(puzzles.get(4)).buildExactCoverMatrix());
+        random.setRowOrder(RowOrder.SCARCEST_FIRST);
+        check("randomized search with order", random.solveRandom(7) != null, true);
+    }
+
+    private static int firstRow(String name, RowOrder order) {
+        ExactCoverSolver engine = switch (name) {
+            case "DLX" -> new DLX(CHOICE_MATRIX);
+            case "DancingCells" -> new DancingCells(CHOICE_MATRIX);
+            default -> new BitExactCover(CHOICE_MATRIX);
+        };
+        List<Integer> chosen = new ArrayList<>();
+        engine.setRowOrder(order);
+        engine.setPruningHook(new PruningHook() {
+            @Override
+            public void rowSelected(int row) {
+                chosen.add(row);
+            }
+
+            @Override
+            public void rowDeselected(int row) {
+            }
+
+            @Override
+            public boolean canExtend() {
+                return true;
+            }
+        });
+        engine.solveFirst();
+        return chosen.get(0);
+    }
+
+    private static long firstSolutionNodes(JsonNode puzzles, RowOrder order) {
+        long nodes = 0;
+        for (JsonNode puzzle : puzzles) {
+            DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+            DLX dlx = new DLX(solver.buildExactCoverMatrix(true));
+            dlx.setPruningHook(PruningHook.combine(solver.createTilingHook(), solver.createRegionHook()));
+            dlx.setRowOrder(order);
+            dlx.solveFirst();
+            nodes += dlx.getNodeCount();
+        }
+        return nodes;
+    }
+
+    private static Set<List<Integer>> asSets(List<List<Integer>> solutions) {
+        Set<List<Integer>> set = new HashSet<>();
+        for (List<Integer> solution : solutions) {
+            List<Integer> copy = new ArrayList<>(solution);
+            Collections.sort(copy);
+            set.add(copy);
+        }
+        return set;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,97 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips.MathExpressionHelper;
+import pips.SolveResult;
+import pips.SolveStatus;
+import pips_sat.CdclSolver;
+import pips_sat.SatPipsSolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Test class for pips_sat.CdclSolver and pips_sat.SatPipsSolver.
+ */
+public class SatPipsSolverTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING SAT SOLVER TESTS =====\n");
+
+        CdclSolver simple = new CdclSolver();
+        int a = simple.newVar();
+        int b = simple.newVar();
+        int c = simple.newVar();
+        simple.addClause(a, b);
+        simple.addClause(-a, c);
+        simple.addClause(-b, c);
+        simple.addClause(-c, -a);
+        SolveStatus simpleStatus = simple.solve(Long.MAX_VALUE);
+        check("small formula is satisfiable", simpleStatus, SolveStatus.SOLVED);
+        check("model satisfies the clauses", !simple.modelValue(a) && simple.modelValue(b) && simple.modelValue(c), true);
+
+        check("5 pigeons in 4 holes is UNSAT", pigeonhole(4).solve(Long.MAX_VALUE), SolveStatus.UNSAT);
+        check("conflict budget is respected", pigeonhole(7).solve(1), SolveStatus.BUDGET_EXHAUSTED);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode medium = mapper.readTree(new File("src/main/resources/pips_medium.json")).get("pips_medium_puzzles").get(0);
+        SatPipsSolver solver = new SatPipsSolver(medium);
+        SolveResult<Map<String, Integer>> result = solver.solve(Long.MAX_VALUE);
+        check("medium puzzle is solved", result.status(), SolveStatus.SOLVED);
+        check("solution satisfies every region", satisfiesAll(medium, result.firstSolution()), true);
+        check("every node is in one domino", solver.getPairs().size() * 2, medium.get("node_details").size());
+
+        JsonNode hard = mapper.readTree(new File("src/main/resources/pips_hard.json")).get("pips_medium_puzzles").get(0);
+        SolveResult<Map<String, Integer>> hardResult = new SatPipsSolver(hard).solve(Long.MAX_VALUE);
+        check("hard puzzle is solved", hardResult.status(), SolveStatus.SOLVED);
+        check("hard solution satisfies every region", satisfiesAll(hard, hardResult.firstSolution()), true);
+
+        // Two cells whose sum must be 12, but the only domino is [6, 5]
+        JsonNode impossible = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B=12", "partners_in_expression": ["B"]},
+                   "B": {"peers": ["A"], "expression": "A+B=12", "partners_in_expression": ["A"]}},
+                 "dominoes": [[6, 5]]}""");
+        SatPipsSolver impossibleSolver = new SatPipsSolver(impossible);
+        check("impossible sum is UNSAT", impossibleSolver.solve(Long.MAX_VALUE).status(), SolveStatus.UNSAT);
+        check("refuted by the encoding alone", impossibleSolver.getCdclSolver().getConflicts(), 0L);
+    }
+
+    /**
+     * @return a solver holding the pigeonhole formula for holes + 1 pigeons
+     */
+    private static CdclSolver pigeonhole(int holes) {
+        CdclSolver solver = new CdclSolver();
+        int[][] in = new int[holes + 1][holes];
+        for (int p = 0; p <= holes; p++) {
+            for (int h = 0; h < holes; h++) {
+                in[p][h] = solver.newVar();
+            }
+            solver.addClause(in[p]);
+        }
+        for (int h = 0; h < holes; h++) {
+            for (int p = 0; p <= holes; p++) {
+                for (int q = p + 1; q <= holes; q++) {
+                    solver.addClause(-in[p][h], -in[q][h]);
+                }
+            }
+        }
+        return solver;
+    }
+
+    private static boolean satisfiesAll(JsonNode puzzle, Map<String, Integer> values) {
+        if (values == null) {
+            return false;
+        }
+        for (JsonNode node : puzzle.get("node_details")) {
+            if (!MathExpressionHelper.satisfies(node.get("expression").asText(), values)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,89 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pips_dlx.BinarySolutionSink;
+import pips_dlx.ConsoleSolutionSink;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+import pips_dlx.NdjsonSolutionSink;
+import pips_dlx.SolutionSink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the SolutionSink implementations and DLX.forEachSolution().
+ */
+public class SolutionSinkTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING SOLUTION SINK TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode puzzle = mapper.readTree(new File("src/main/resources/pips_medium.json")).get("pips_medium_puzzles").get(0);
+        DLXPipsSolver solver = new DLXPipsSolver(puzzle);
+        int[][] matrix = solver.buildExactCoverMatrix();
+        List<List<Integer>> expected = new DLX(matrix).solve();
+
+        List<int[]> streamed = new ArrayList<>();
+        long count = new DLX(matrix).forEachSolution(streamed::add);
+        check("forEachSolution count", count, (long) expected.size());
+        check("forEachSolution first solution", streamed.isEmpty() ? null : toList(streamed.get(0)), expected.get(0));
+        check("count-only sink", new DLX(matrix).forEachSolution(rows -> accept(SolutionSink.countOnly(), rows)), count);
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        try (SolutionSink sink = new NdjsonSolutionSink(ndjson, solver.getPlacements(), 3)) {
+            new DLX(matrix).forEachSolution(rows -> accept(sink, rows));
+        }
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        check("one NDJSON line per solution", (long) lines.length, count);
+        JsonNode first = mapper.readTree(lines[0]);
+        check("NDJSON puzzle index", first.get("puzzle").asInt(), 3);
+        check("NDJSON placements", first.get("placements").size(), expected.get(0).size());
+        check("NDJSON first node", first.get("placements").get(0).get("node").asText(),
+                solver.getPlacement(expected.get(0).get(0)).node());
+
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        try (SolutionSink sink = new BinarySolutionSink(binary, solver.getNodes(), solver.getPlacements(), 3)) {
+            new DLX(matrix).forEachSolution(rows -> accept(sink, rows));
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(binary.toByteArray()));
+        check("binary puzzle index", (int) in.readShort(), 3);
+        check("binary placements", (int) in.readShort(), expected.get(0).size());
+        check("binary first node", solver.getNodes().get(in.readShort()), solver.getPlacement(expected.get(0).get(0)).node());
+        check("binary size", binary.size(), (int) count * (4 + 7 * expected.get(0).size()));
+
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        try (SolutionSink sink = new ConsoleSolutionSink(console, solver.getPlacements())) {
+            new DLX(matrix).forEachSolution(rows -> accept(sink, rows));
+        }
+        String text = console.toString(StandardCharsets.UTF_8);
+        check("console lists the selected rows", text.contains("Selected rows: " + expected.get(0)), true);
+    }
+
+    private static void accept(SolutionSink sink, int[] rows) {
+        try {
+            sink.accept(rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Integer> toList(int[] rows) {
+        List<Integer> list = new ArrayList<>();
+        for (int r : rows) {
+            list.add(r);
+        }
+        return list;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,91 @@
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import pips.MathExpressionHelper;
+import pips.PipsSolver;
+import pips_dlx.DLX;
+import pips_dlx.DLXPipsSolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test class for the JFR events in pips_jfr.
+ */
+public class SolverEventsTest {
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING SOLVER EVENTS TESTS =====\n");
+        ObjectMapper mapper = new ObjectMapper();
+
+        // Four nodes in a line A-B-C-D; A and B must add up to 3
+        JsonNode line = mapper.readTree("""
+                {"node_details": {
+                   "A": {"peers": ["B"], "expression": "A+B=3"},
+                   "B": {"peers": ["A", "C"], "expression": "A+B=3"},
+                   "C": {"peers": ["B", "D"], "expression": "ANY"},
+                   "D": {"peers": ["C"], "expression": "ANY"}},
+                 "dominoes": [[1, 2], [3, 4]]}""");
+
+        Path file = Files.createTempFile("pips-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("pips.PuzzleLoad", "pips.ExpressionCompile", "pips.ExpressionEvaluate",
+                    "pips.MatrixBuild", "pips.Search")) {
+                recording.enable(name);
+            }
+            recording.start();
+            DLXPipsSolver solver = new DLXPipsSolver(line);
+            int[][] matrix = solver.buildExactCoverMatrix();
+            new DLX(matrix).solve();
+            new PipsSolver(line).solve(1000);
+            MathExpressionHelper.satisfies("X+Y=9", Map.of("X", 4, "Y", 5));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        RecordedEvent load = find(events, "pips.PuzzleLoad");
+        check("puzzle load recorded", load != null, true);
+        check("puzzle load nodes", load == null ? null : load.getInt("nodes"), 4);
+        check("puzzle load regions", load == null ? null : load.getInt("regions"), 1);
+
+        RecordedEvent compile = find(events, "pips.ExpressionCompile");
+        check("region expression compiled", compile == null ? null : compile.getString("result"), "sum");
+
+        RecordedEvent build = find(events, "pips.MatrixBuild");
+        check("matrix build rows", build == null ? null : build.getInt("rows"), 5);
+        check("matrix build columns", build == null ? null : build.getInt("columns"), 6);
+
+        RecordedEvent dlx = find(events, "pips.Search", "DLX");
+        check("DLX search solutions", dlx == null ? null : dlx.getLong("solutions"), 1L);
+        check("DLX search status", dlx == null ? null : dlx.getString("status"), "SOLVED");
+
+        RecordedEvent backtracking = find(events, "pips.Search", "Backtracking");
+        check("backtracking search status", backtracking == null ? null : backtracking.getString("status"), "SOLVED");
+
+        RecordedEvent evaluate = find(events, "pips.ExpressionEvaluate");
+        check("truth table miss recorded", evaluate == null ? null : evaluate.getBoolean("tableMiss"), true);
+        check("render not enabled, not recorded", find(events, "pips.ResultRender"), null);
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).findFirst().orElse(null);
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name, String engine) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name) && engine.equals(e.getString("engine")))
+                .findFirst().orElse(null);
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,35 @@
+import pips_dlx.SolverWarmup;
+
+import java.io.IOException;
+
+/**
+ * Test class for pips_dlx.SolverWarmup, the training run of the CDS archive.
+ */
+public class SolverWarmupTest {
+
+    private static final String NODE_DETAILS = "src/main/resources/all_pips.json";
+    private static final String RAW = "src/main/resources/pips_general.json";
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("===== RUNNING SOLVER WARM-UP TESTS =====\n");
+
+        // Seven puzzles in all_pips.json and the easy, medium and hard puzzles of pips_general.json.
+        // #0 of all_pips.json counts as well: the warm-up matrix only checks each placement on its own.
+        check("every bundled puzzle solved", SolverWarmup.warmUp(NODE_DETAILS, RAW, 1), 10);
+        check("once per round", SolverWarmup.warmUp(NODE_DETAILS, RAW, 2), 20);
+        check("no rounds", SolverWarmup.warmUp(NODE_DETAILS, RAW, 0), 0);
+
+        boolean missing = false;
+        try {
+            SolverWarmup.warmUp(NODE_DETAILS, "src/main/resources/missing.json", 1);
+        } catch (IOException e) {
+            missing = true;
+        }
+        check("missing file reported", missing, true);
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        boolean pass = expected == null ? result == null : expected.equals(result);
+        System.out.printf("%-45s Result: %-15s Expected: %-15s %s%n", name, result, expected, pass ? "✓" : "✗");
+    }
+}
@@ -0,0 +1,81 @@
+import pips.TilingChecker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test class for pips.TilingChecker.
+ */
+public class TilingCheckerTest {
+
+    public static void main(String[] args) {
+        System.out.println("===== RUNNING TILING CHECKER TESTS =====\n");
+
+        // 2x3 grid, cells numbered row by row:
+        // 0 1 2
+        // 3 4 5
+        TilingChecker checker = new TilingChecker(grid(3, 2));
+        check("empty 2x3 grid is tileable", checker.isTileable(), true);
+
+        checker.fill(0);
+        check("odd number of empty cells", checker.isTileable(), false);
+
+        // Filling 0 and 4 leaves 1, 2, 3, 5: both components {1, 2, 5} and {3} are odd
+        checker.fill(4);
+        check("isolated cell", checker.isTileable(), false);
+
+        checker.unfill(4);
+        checker.fill(1);
+        check("after covering a domino", checker.isTileable(), true);
+
+        // Filling 1 and 3 leaves 0, 2, 4, 5: even, but 0 is cut off from the rest
+        checker.unfill(0);
+        checker.fill(3);
+        check("cut-off corner", checker.isTileable(), false);
+        check("cut-off corner is explained by its neighbours", Arrays.toString(checker.untileableBoundary()), "[1, 3]");
+
+        // 4x4 grid without two opposite corners: even and connected, but both removed cells share a colour
+        TilingChecker mutilated = new TilingChecker(grid(4, 4));
+        mutilated.fill(0);
+        mutilated.fill(15);
+        check("mutilated board is not tileable", mutilated.isTileable(), false);
+        check("mutilated board is explained by the corners", Arrays.toString(mutilated.untileableBoundary()), "[0, 15]");
+        mutilated.unfill(15);
+        mutilated.fill(1);
+        check("one cell of each colour removed", mutilated.isTileable(), true);
+
+        // Even and balanced, but cells 0 and 5 can only pair with 1; cell 6 hangs off cell 3
+        TilingChecker star = new TilingChecker(new int[][]{{1}, {0, 2, 5}, {1, 3, 4}, {2, 6}, {2}, {1}, {3}});
+        star.fill(6);
+        check("no perfect matching", star.isTileable(), false);
+        check("no perfect matching is explained", Arrays.toString(star.untileableBoundary()), "[6]");
+    }
+
+    private static int[][] grid(int width, int height) {
+        int[][] neighbors = new int[width * height][];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                List<Integer> cells = new ArrayList<>();
+                if (x > 0) {
+                    cells.add(y * width + x - 1);
+                }
+                if (x < width - 1) {
+                    cells.add(y * width + x + 1);
+                }
+                if (y > 0) {
+                    cells.add((y - 1) * width + x);
+                }
+                if (y < height - 1) {
+                    cells.add((y + 1) * width + x);
+                }
+                neighbors[y * width + x] = cells.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return neighbors;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
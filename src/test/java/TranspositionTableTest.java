@@ -0,0 +1,58 @@
+import pips.TranspositionTable;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for pips.TranspositionTable.
+ */
+public class TranspositionTableTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("===== RUNNING TRANSPOSITION TABLE TESTS =====\n");
+
+        TranspositionTable table = new TranspositionTable(1000);
+        check("capacity is rounded to a power of two", table.capacity(), 1024);
+        check("unknown hash is absent", table.contains(42L), false);
+        table.add(42L);
+        check("added hash is found", table.contains(42L), true);
+        table.add(0L);
+        check("zero hash is stored", table.contains(0L), true);
+
+        // Far more hashes than slots: the table must stay bounded and keep the most recent ones
+        SplittableRandom random = new SplittableRandom(7);
+        long last = 0;
+        for (int i = 0; i < 100_000; i++) {
+            last = random.nextLong();
+            table.add(last);
+        }
+        check("most recent hash survives eviction", table.contains(last), true);
+
+        // Four threads filling one shared table, then checking their own recent hashes
+        TranspositionTable shared = new TranspositionTable(1 << 16);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        boolean[] ok = new boolean[4];
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                for (long i = 0; i < 5_000; i++) {
+                    shared.add(i * 4 + thread);
+                }
+                boolean found = true;
+                for (long i = 0; i < 5_000; i++) {
+                    found &= shared.contains(i * 4 + thread);
+                }
+                ok[thread] = found;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        check("parallel adds are all visible", ok[0] && ok[1] && ok[2] && ok[3], true);
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}
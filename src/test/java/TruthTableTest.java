@@ -0,0 +1,50 @@
+import pips.MathExpressionEvaluator;
+import pips.MathExpressionHelper;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test class for the truth tables in pips.MathExpressionHelper: every partial assignment of pip
+ * values must get the same answer as the evaluator.
+ */
+public class TruthTableTest {
+
+    public static void main(String[] args) {
+        System.out.println("===== RUNNING TRUTH TABLE TESTS =====\n");
+
+        String[] expressions = {"A>4", "A<3", "A+B=7", "A=B", "A+B+C=9", "A+B+C<5", "A=B=C", "A+B+C/2=5", "A+B+C+D=12"};
+        for (String expression : expressions) {
+            String[] variables = expression.replaceAll("[^A-Z]", "").split("");
+            check(expression + " matches evaluator", mismatches(expression, variables, 0, new HashMap<>()), 0);
+            // Second pass reads the entries filled by the first one
+            check(expression + " cached entries", mismatches(expression, variables, 0, new HashMap<>()), 0);
+        }
+
+        Map<String, Integer> outOfRange = new HashMap<>();
+        outOfRange.put("A", 12);
+        check("value above 6 falls back", MathExpressionHelper.satisfies("A>4", outOfRange),
+                MathExpressionEvaluator.evaluate("A>4", outOfRange, true));
+        check("single node overload", MathExpressionHelper.satisfies("A+B=7", "A", 3), true);
+        check("ANY region", MathExpressionHelper.satisfies("ANY", outOfRange), true);
+    }
+
+    // Tries every value 0-6 or unassigned for each variable
+    private static int mismatches(String expression, String[] variables, int next, Map<String, Integer> values) {
+        if (next == variables.length) {
+            boolean expected = MathExpressionEvaluator.evaluate(expression, values, true);
+            return MathExpressionHelper.satisfies(expression, values) == expected ? 0 : 1;
+        }
+        int count = mismatches(expression, variables, next + 1, values);
+        for (int value = 0; value <= 6; value++) {
+            values.put(variables[next], value);
+            count += mismatches(expression, variables, next + 1, values);
+        }
+        values.remove(variables[next]);
+        return count;
+    }
+
+    private static void check(String name, Object result, Object expected) {
+        System.out.printf("%-40s Result: %-10s Expected: %-10s %s%n", name, result, expected, expected.equals(result) ? "✓" : "✗");
+    }
+}